@@ -18,6 +18,7 @@ import com.pahimar.ee3.reference.Messages;
 import com.pahimar.ee3.reference.Reference;
 import com.pahimar.ee3.reference.Settings;
 import com.pahimar.ee3.test.EnergyValueMappingsTestSuite;
+import com.pahimar.ee3.util.AsyncIOHelper;
 import com.pahimar.ee3.util.FluidHelper;
 import com.pahimar.ee3.util.LogHelper;
 import com.pahimar.ee3.util.SerializationHelper;
@@ -133,11 +134,11 @@ public class EquivalentExchange3
     {
         WorldEventHandler.hasInitilialized = false;
 
-        EnergyValueRegistry.getInstance().save();
+        AsyncIOHelper.waitFor(EnergyValueRegistry.getInstance().save());
         EnergyValueRegistry.invalidateInstance();
 
         TransmutationKnowledgeRegistry.getInstance().clear();
-        AbilityRegistry.getInstance().save();
+        AsyncIOHelper.waitFor(AbilityRegistry.getInstance().save());
     }
 
     // TODO Switch refactor EnergyValueRegistry.getInstance() to getEnergyValueRegistry()(?)
@@ -190,6 +190,30 @@ public class TransmutationKnowledgeRegistryProxy
         }
     }
 
+    public static Set<UUID> getPlayersKnowing(ItemStack itemStack)
+    {
+        init();
+
+        if (ee3Mod != null)
+        {
+            return EE3Wrapper.ee3mod.getTransmutationKnowledgeRegistry().getPlayersKnowing(itemStack);
+        }
+
+        return null;
+    }
+
+    public static int makeEveryoneForget(ItemStack itemStack)
+    {
+        init();
+
+        if (ee3Mod != null)
+        {
+            return EE3Wrapper.ee3mod.getTransmutationKnowledgeRegistry().makeEveryoneForget(itemStack);
+        }
+
+        return 0;
+    }
+
     public static boolean doesTemplateKnow(ItemStack itemStack)
     {
         init();
@@ -1,34 +1,50 @@
 package com.pahimar.ee3.client.gui.element;
 
 import com.pahimar.ee3.inventory.element.IElementTextFieldHandler;
-import com.pahimar.ee3.network.PacketHandler;
 import com.pahimar.ee3.network.message.MessageGuiElementTextFieldUpdate;
 import com.pahimar.repackage.cofh.lib.gui.GuiBase;
 import com.pahimar.repackage.cofh.lib.gui.element.ElementTextField;
 
 public class ElementSearchField extends ElementTextField
 {
+    private final ElementUpdateThrottle updateThrottle = new ElementUpdateThrottle();
+
     public ElementSearchField(GuiBase gui, int posX, int posY, String name, int width, int height)
     {
         super(gui, posX, posY, name, width, height);
     }
 
+    /**
+     * Sends the held back search update straight away
+     */
+    public void flushUpdates()
+    {
+        updateThrottle.flush();
+    }
+
     @Override
     protected void onCharacterEntered(boolean success)
     {
         if (success && this.gui.inventorySlots instanceof IElementTextFieldHandler)
         {
             ((IElementTextFieldHandler) this.gui.inventorySlots).handleElementTextFieldUpdate(this.name, this.getText());
-            PacketHandler.INSTANCE.sendToServer(new MessageGuiElementTextFieldUpdate(this));
+            updateThrottle.send(new MessageGuiElementTextFieldUpdate(this));
         }
     }
 
+    @Override
+    protected void onFocusLost()
+    {
+        updateThrottle.flush();
+    }
+
     @Override
     protected boolean onEnter()
     {
         if (isFocused())
         {
             this.setFocused(false);
+            updateThrottle.flush();
         }
         return super.onEnter();
     }
@@ -40,7 +56,8 @@ public class ElementSearchField extends ElementTextField
         if (mouseButton == 1)
         {
             this.setText("");
-            PacketHandler.INSTANCE.sendToServer(new MessageGuiElementTextFieldUpdate(this));
+            updateThrottle.send(new MessageGuiElementTextFieldUpdate(this));
+            updateThrottle.flush();
         }
 
         return true;
@@ -55,4 +72,11 @@ public class ElementSearchField extends ElementTextField
             this.setFocused(true);
         }
     }
+
+    @Override
+    public void update(int mouseX, int mouseY)
+    {
+        super.update(mouseX, mouseY);
+        updateThrottle.update();
+    }
 }
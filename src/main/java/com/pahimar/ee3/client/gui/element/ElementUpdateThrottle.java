@@ -0,0 +1,58 @@
+package com.pahimar.ee3.client.gui.element;
+
+import com.pahimar.ee3.network.PacketHandler;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+
+/**
+ * Sends the updates of a GUI element to the server at most once every interval. An update made within the interval of
+ * the last one sent is held back, and replaced by any later update, until the interval is up or the element flushes it
+ * (e.g. when it loses focus).
+ */
+@SideOnly(Side.CLIENT)
+public class ElementUpdateThrottle
+{
+    public static final long DEFAULT_UPDATE_INTERVAL = 250;
+
+    private final long updateInterval;
+    private IMessage pendingMessage;
+    private long lastSendTime;
+
+    public ElementUpdateThrottle()
+    {
+        this(DEFAULT_UPDATE_INTERVAL);
+    }
+
+    public ElementUpdateThrottle(long updateInterval)
+    {
+        this.updateInterval = updateInterval;
+    }
+
+    public void send(IMessage message)
+    {
+        pendingMessage = message;
+        update();
+    }
+
+    /**
+     * Sends the held back update, if its interval is up. Meant to be called every frame by the element.
+     */
+    public void update()
+    {
+        if (pendingMessage != null && System.currentTimeMillis() - lastSendTime >= updateInterval)
+        {
+            flush();
+        }
+    }
+
+    public void flush()
+    {
+        if (pendingMessage != null)
+        {
+            PacketHandler.INSTANCE.sendToServer(pendingMessage);
+            pendingMessage = null;
+            lastSendTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.pahimar.ee3.client.gui.inventory;
 
 import com.pahimar.ee3.client.gui.element.ElementSearchField;
 import com.pahimar.ee3.client.gui.element.ElementStatefulButton;
+import com.pahimar.ee3.client.gui.element.ElementUpdateThrottle;
 import com.pahimar.ee3.inventory.ContainerTransmutationTablet;
 import com.pahimar.ee3.network.PacketHandler;
 import com.pahimar.ee3.network.message.MessageGuiElementClicked;
@@ -13,11 +14,11 @@ import com.pahimar.ee3.tileentity.TileEntityTransmutationTablet;
 import com.pahimar.repackage.cofh.lib.gui.GuiBase;
 import com.pahimar.repackage.cofh.lib.gui.GuiColor;
 import com.pahimar.repackage.cofh.lib.gui.element.ElementSlider;
-import com.pahimar.repackage.cofh.lib.gui.element.ElementTextField;
 import com.pahimar.repackage.cofh.lib.render.RenderHelper;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
 import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.inventory.Slot;
 import net.minecraft.util.StatCollector;
 
 import java.text.DecimalFormat;
@@ -27,10 +28,11 @@ public class GuiTransmutationTablet extends GuiBase
 {
     private TileEntityTransmutationTablet tileEntityTransmutationTablet;
 
-    private ElementTextField searchTextField;
+    private ElementSearchField searchTextField;
     private ElementStatefulButton sortOptionButton;
     private ElementStatefulButton sortOrderButton;
     private ElementSlider slider;
+    private final ElementUpdateThrottle sliderUpdateThrottle = new ElementUpdateThrottle();
     protected int tickCount;
 
     private static DecimalFormat energyValueDecimalFormat = new DecimalFormat("###,###,###,###,###.###");
@@ -126,16 +128,23 @@ public class GuiTransmutationTablet extends GuiBase
             }
 
             @Override
-            public boolean onMouseWheel(int mouseX, int mouseY, int movement)
+            public void onValueChanged(int value)
             {
-                PacketHandler.INSTANCE.sendToServer(new MessageSliderElementUpdated(this));
-                return super.onMouseWheel(mouseX, mouseY, movement);
+                ((ContainerTransmutationTablet) inventorySlots).handleElementSliderUpdate(getName(), value);
+                sliderUpdateThrottle.send(new MessageSliderElementUpdated(this));
             }
 
             @Override
             public void onStopDragging()
             {
-                PacketHandler.INSTANCE.sendToServer(new MessageSliderElementUpdated(this));
+                sliderUpdateThrottle.flush();
+            }
+
+            @Override
+            public void update(int mouseX, int mouseY)
+            {
+                super.update(mouseX, mouseY);
+                sliderUpdateThrottle.update();
             }
 
             @Override
@@ -169,6 +178,21 @@ public class GuiTransmutationTablet extends GuiBase
         tickCount++;
     }
 
+    /**
+     * Sends any held back search or scroll update before the click, so the server applies the click to the page shown here
+     */
+    @Override
+    protected void handleMouseClick(Slot slot, int slotIndex, int mouseButton, int clickType)
+    {
+        if (slot != null)
+        {
+            searchTextField.flushUpdates();
+            sliderUpdateThrottle.flush();
+        }
+
+        super.handleMouseClick(slot, slotIndex, mouseButton, clickType);
+    }
+
     @Override
     protected boolean checkHotbarKeys(int key)
     {
@@ -0,0 +1,17 @@
+package com.pahimar.ee3.client.handler;
+
+import com.pahimar.ee3.client.util.EnergyValueSyncReceiver;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.network.FMLNetworkEvent;
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+
+@SideOnly(Side.CLIENT)
+public class ClientConnectionEventHandler
+{
+    @SubscribeEvent
+    public void onClientDisconnectionFromServer(FMLNetworkEvent.ClientDisconnectionFromServerEvent event)
+    {
+        EnergyValueSyncReceiver.reset();
+    }
+}
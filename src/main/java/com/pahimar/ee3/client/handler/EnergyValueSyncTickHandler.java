@@ -0,0 +1,20 @@
+package com.pahimar.ee3.client.handler;
+
+import com.pahimar.ee3.client.util.EnergyValueSyncReceiver;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+
+@SideOnly(Side.CLIENT)
+public class EnergyValueSyncTickHandler
+{
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.START)
+        {
+            EnergyValueSyncReceiver.loadReceivedValues();
+        }
+    }
+}
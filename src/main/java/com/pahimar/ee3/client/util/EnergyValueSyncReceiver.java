@@ -0,0 +1,296 @@
+package com.pahimar.ee3.client.util;
+
+import com.pahimar.ee3.api.exchange.EnergyValue;
+import com.pahimar.ee3.exchange.EnergyValueRegistry;
+import com.pahimar.ee3.exchange.WrappedStack;
+import com.pahimar.ee3.network.PacketHandler;
+import com.pahimar.ee3.network.message.MessageRequestEnergyValues;
+import com.pahimar.ee3.network.message.MessageSyncEnergyValues;
+import com.pahimar.ee3.serialization.EnergyValueRegistryBinarySerializer;
+import com.pahimar.ee3.util.CompressionHelper;
+import com.pahimar.ee3.util.LogHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Receives the energy values the server syncs to the client.
+ * <p/>
+ * Chunks are reassembled on the network thread, everything expensive (reading the cached snapshot, decompressing,
+ * decoding and preparing the registry maps) happens on a dedicated worker thread, and the prepared values are swapped
+ * into the registry on the client thread (see {@link #loadReceivedValues}), so the registry never changes while the
+ * client thread is using it.
+ * <p/>
+ * Individual changes that arrive while values are still being transferred or decoded are held back until those values
+ * have been swapped in, as the values would otherwise overwrite the (newer) changes.
+ * <p/>
+ * Everything received from a server is dropped once the client disconnects or the next server announces its version (see
+ * {@link #reset}). Work still running for the previous server is told apart by the generation it was started in, and its
+ * results are thrown away.
+ */
+public class EnergyValueSyncReceiver
+{
+    private static ExecutorService executorService;
+    private static final Object executorSyncRoot = new Object();
+    private static final AtomicReference<EnergyValueRegistry.PreparedValues> receivedValues = new AtomicReference<EnergyValueRegistry.PreparedValues>();
+    private static final Queue<Map<WrappedStack, EnergyValue>> receivedChanges = new ConcurrentLinkedQueue<Map<WrappedStack, EnergyValue>>();
+    private static final AtomicInteger pendingValueCount = new AtomicInteger();
+
+    private static int generation;
+    private static MessageSyncEnergyValues transferHeader;
+    private static ByteArrayOutputStream transferPayload;
+    private static int nextChunkIndex;
+
+    private static ExecutorService getExecutorService()
+    {
+        if (executorService == null)
+        {
+            synchronized (executorSyncRoot)
+            {
+                if (executorService == null)
+                {
+                    executorService = Executors.newSingleThreadExecutor(new ThreadFactory()
+                    {
+                        @Override
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new Thread(runnable, "EE3 Energy Value Sync Thread");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+
+        return executorService;
+    }
+
+    /**
+     * Uses the cached snapshot if the server announced it as current, and asks the server for whatever else is needed
+     */
+    public static synchronized void onVersionAnnounced(final String hash)
+    {
+        reset();
+
+        final int taskGeneration = generation;
+        pendingValueCount.incrementAndGet();
+
+        getExecutorService().submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    String cachedHash = ServerEnergyValueCache.getCachedHash();
+
+                    if (hash.equals(cachedHash) && publishValues(taskGeneration, EnergyValueRegistry.prepareValues(ServerEnergyValueCache.getCachedSnapshot(cachedHash))))
+                    {
+                        LogHelper.info("Client successfully loaded the server's EnergyValues from its cache");
+                    }
+
+                    if (isCurrent(taskGeneration))
+                    {
+                        PacketHandler.INSTANCE.sendToServer(new MessageRequestEnergyValues(cachedHash));
+                    }
+                }
+                finally
+                {
+                    finishPendingValues(taskGeneration);
+                }
+            }
+        });
+    }
+
+    public static synchronized void receiveChunk(MessageSyncEnergyValues message)
+    {
+        if (message.chunkIndex == 0)
+        {
+            // A transfer that replaces an unfinished one takes over its place among the pending values
+            if (transferHeader == null)
+            {
+                pendingValueCount.incrementAndGet();
+            }
+
+            transferHeader = message;
+            transferPayload = new ByteArrayOutputStream();
+            nextChunkIndex = 0;
+        }
+        else if (transferHeader == null || !transferHeader.hash.equals(message.hash) || message.chunkIndex != nextChunkIndex)
+        {
+            LogHelper.warn(String.format("Client received EnergyValue chunk %s of %s out of order - discarding it", message.chunkIndex + 1, message.chunkCount));
+
+            if (transferHeader != null)
+            {
+                transferHeader = null;
+                pendingValueCount.decrementAndGet();
+            }
+
+            return;
+        }
+
+        transferPayload.write(message.payloadChunk, 0, message.payloadChunk.length);
+        nextChunkIndex++;
+
+        if (nextChunkIndex == message.chunkCount)
+        {
+            final MessageSyncEnergyValues header = transferHeader;
+            final byte[] compressedPayload = transferPayload.toByteArray();
+            final int taskGeneration = generation;
+            transferHeader = null;
+            transferPayload = null;
+
+            getExecutorService().submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        decode(header, compressedPayload, taskGeneration);
+                    }
+                    finally
+                    {
+                        finishPendingValues(taskGeneration);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void decode(MessageSyncEnergyValues header, byte[] compressedPayload, int taskGeneration)
+    {
+        try
+        {
+            Map<WrappedStack, EnergyValue> stackValueMap;
+
+            if (header.payloadType == MessageSyncEnergyValues.DELTA)
+            {
+                Map<WrappedStack, EnergyValue> cachedSnapshot = ServerEnergyValueCache.getCachedSnapshot(header.baseHash);
+
+                if (cachedSnapshot == null && isCurrent(taskGeneration))
+                {
+                    LogHelper.info("Client received EnergyValue changes for a snapshot it does not have - requesting all EnergyValues from server");
+                    PacketHandler.INSTANCE.sendToServer(new MessageRequestEnergyValues(null));
+                    return;
+                }
+                else if (cachedSnapshot == null)
+                {
+                    return;
+                }
+
+                stackValueMap = EnergyValueRegistryBinarySerializer.applyDelta(cachedSnapshot, CompressionHelper.decompressByteArray(compressedPayload));
+                ServerEnergyValueCache.store(header.hash, stackValueMap, null);
+            }
+            else
+            {
+                stackValueMap = EnergyValueRegistryBinarySerializer.snapshotFromBytes(CompressionHelper.decompressByteArray(compressedPayload));
+                ServerEnergyValueCache.store(header.hash, stackValueMap, compressedPayload);
+            }
+
+            if (publishValues(taskGeneration, EnergyValueRegistry.prepareValues(stackValueMap)))
+            {
+                LogHelper.info(String.format("Client successfully received EnergyValues from server (%s bytes)", compressedPayload.length));
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            LogHelper.info("Client failed to receive EnergyValues from server - falling back to local EnergyValues");
+        }
+    }
+
+    /**
+     * Drops everything received from the server so far: unfinished transfers, values not swapped in yet and held back
+     * changes. Work still running for it no longer counts as pending, and its results are ignored.
+     */
+    public static synchronized void reset()
+    {
+        generation++;
+        transferHeader = null;
+        transferPayload = null;
+        nextChunkIndex = 0;
+        pendingValueCount.set(0);
+        receivedValues.set(null);
+        receivedChanges.clear();
+    }
+
+    private static synchronized boolean isCurrent(int taskGeneration)
+    {
+        return taskGeneration == generation;
+    }
+
+    /**
+     * @return whether the values were published, which they are not if they were prepared for a previous server
+     */
+    private static synchronized boolean publishValues(int taskGeneration, EnergyValueRegistry.PreparedValues preparedValues)
+    {
+        if (taskGeneration == generation)
+        {
+            receivedValues.set(preparedValues);
+            return true;
+        }
+
+        return false;
+    }
+
+    private static synchronized void finishPendingValues(int taskGeneration)
+    {
+        if (taskGeneration == generation)
+        {
+            pendingValueCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues individual energy value changes, to be applied together with any others received before the next client tick
+     */
+    public static void receiveChanges(Map<WrappedStack, EnergyValue> stackValueMap)
+    {
+        receivedChanges.add(stackValueMap);
+    }
+
+    /**
+     * Swaps the most recently received energy values into the registry, followed by all changes received since the last
+     * call as one update. Changes are kept queued while values are still being transferred or decoded, so they are only
+     * applied on top of those values. Called on the client thread.
+     */
+    public static void loadReceivedValues()
+    {
+        EnergyValueRegistry.PreparedValues preparedValues = receivedValues.getAndSet(null);
+
+        if (preparedValues != null)
+        {
+            EnergyValueRegistry.getInstance().loadPreparedValues(preparedValues);
+        }
+
+        // Values are published before they stop counting as pending, so once none are pending any last ones are visible
+        if (pendingValueCount.get() > 0 || receivedValues.get() != null)
+        {
+            return;
+        }
+
+        if (!receivedChanges.isEmpty())
+        {
+            Map<WrappedStack, EnergyValue> changedStackValueMap = new TreeMap<WrappedStack, EnergyValue>();
+
+            Map<WrappedStack, EnergyValue> stackValueMap;
+            while ((stackValueMap = receivedChanges.poll()) != null)
+            {
+                changedStackValueMap.putAll(stackValueMap);
+            }
+
+            EnergyValueRegistry.getInstance().setEnergyValues(changedStackValueMap);
+        }
+    }
+}
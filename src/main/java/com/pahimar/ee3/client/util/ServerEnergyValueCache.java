@@ -0,0 +1,173 @@
+package com.pahimar.ee3.client.util;
+
+import com.pahimar.ee3.api.exchange.EnergyValue;
+import com.pahimar.ee3.exchange.WrappedStack;
+import com.pahimar.ee3.filesystem.FileSystem;
+import com.pahimar.ee3.serialization.EnergyValueRegistryBinarySerializer;
+import com.pahimar.ee3.util.AsyncIOHelper;
+import com.pahimar.ee3.util.CompressionHelper;
+import com.pahimar.ee3.util.LogHelper;
+import com.pahimar.ee3.util.SerializationHelper;
+import com.pahimar.ee3.util.SyncedFileOutputStream;
+import cpw.mods.fml.client.FMLClientHandler;
+import net.minecraft.client.multiplayer.ServerData;
+
+import javax.naming.OperationNotSupportedException;
+import java.io.*;
+import java.util.Map;
+
+/**
+ * Keeps the last energy value snapshot received from each server on disk, so that on the next login the server only has
+ * to send what changed since (or nothing at all).
+ * <p/>
+ * Each server gets one file named after its address, holding the hash the server identified the snapshot by, followed by
+ * the compressed binary snapshot.
+ */
+public class ServerEnergyValueCache
+{
+    private static final String CACHE_FILE_EXTENSION = ".bin";
+
+    private static String cachedServerAddress;
+    private static String cachedHash;
+    private static Map<WrappedStack, EnergyValue> cachedSnapshot;
+
+    /**
+     * @return the hash of the snapshot cached for the current server, or null if there is none
+     */
+    public static synchronized String getCachedHash()
+    {
+        loadIfNeeded();
+        return cachedHash;
+    }
+
+    /**
+     * @return the snapshot cached for the current server if it has the given hash, otherwise null
+     */
+    public static synchronized Map<WrappedStack, EnergyValue> getCachedSnapshot(String hash)
+    {
+        loadIfNeeded();
+        return hash != null && hash.equals(cachedHash) ? cachedSnapshot : null;
+    }
+
+    /**
+     * Remembers the snapshot for the current server and writes it to disk on the background I/O thread
+     *
+     * @param compressedSnapshot the snapshot as received, or null to have it encoded from the mappings
+     */
+    public static synchronized void store(final String hash, final Map<WrappedStack, EnergyValue> stackValueMap, final byte[] compressedSnapshot)
+    {
+        cachedServerAddress = getCurrentServerAddress();
+        cachedHash = hash;
+        cachedSnapshot = stackValueMap;
+
+        final File cacheFile = getCacheFile(cachedServerAddress);
+        if (cacheFile != null)
+        {
+            AsyncIOHelper.submit("save server energy values", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    byte[] snapshotBytes = compressedSnapshot != null ? compressedSnapshot : CompressionHelper.compressByteArray(EnergyValueRegistryBinarySerializer.snapshotToBytes(stackValueMap));
+                    writeCacheFile(cacheFile, hash, snapshotBytes);
+                }
+            });
+        }
+    }
+
+    private static void loadIfNeeded()
+    {
+        String serverAddress = getCurrentServerAddress();
+
+        if (!serverAddress.equals(cachedServerAddress))
+        {
+            cachedServerAddress = serverAddress;
+            cachedHash = null;
+            cachedSnapshot = null;
+
+            File cacheFile = getCacheFile(serverAddress);
+            if (cacheFile != null && cacheFile.isFile())
+            {
+                try
+                {
+                    DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+
+                    try
+                    {
+                        String hash = dataInputStream.readUTF();
+                        byte[] compressedSnapshot = new byte[dataInputStream.readInt()];
+                        dataInputStream.readFully(compressedSnapshot);
+
+                        cachedSnapshot = EnergyValueRegistryBinarySerializer.snapshotFromBytes(CompressionHelper.decompressByteArray(compressedSnapshot));
+                        cachedHash = hash;
+                    }
+                    finally
+                    {
+                        dataInputStream.close();
+                    }
+                }
+                catch (IOException e)
+                {
+                    LogHelper.warn("Unable to read the cached energy values of the server: " + cacheFile.getAbsolutePath());
+                    cachedSnapshot = null;
+                }
+            }
+        }
+    }
+
+    private static void writeCacheFile(File cacheFile, String hash, byte[] compressedSnapshot)
+    {
+        cacheFile.getParentFile().mkdirs();
+        File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+
+        try
+        {
+            DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new SyncedFileOutputStream(tempFile)));
+
+            try
+            {
+                dataOutputStream.writeUTF(hash);
+                dataOutputStream.writeInt(compressedSnapshot.length);
+                dataOutputStream.write(compressedSnapshot);
+            }
+            finally
+            {
+                dataOutputStream.close();
+            }
+
+            SerializationHelper.replaceFile(tempFile, cacheFile);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private static String getCurrentServerAddress()
+    {
+        ServerData serverData = FMLClientHandler.instance().getClient().func_147104_D();
+        return serverData != null && serverData.serverIP != null ? serverData.serverIP : "";
+    }
+
+    /**
+     * @return the cache file of the server, or null if the server address is not known
+     */
+    private static File getCacheFile(String serverAddress)
+    {
+        if (serverAddress.isEmpty())
+        {
+            return null;
+        }
+
+        try
+        {
+            return new File(FileSystem.getGlobal().getServerEnergyValuesDirectory(), serverAddress.replaceAll("[^A-Za-z0-9._-]", "_") + CACHE_FILE_EXTENSION);
+        }
+        catch (OperationNotSupportedException e)
+        {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+}
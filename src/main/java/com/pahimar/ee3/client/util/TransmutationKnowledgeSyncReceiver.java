@@ -0,0 +1,94 @@
+package com.pahimar.ee3.client.util;
+
+import com.pahimar.ee3.inventory.ContainerTransmutationTablet;
+import com.pahimar.ee3.network.PacketHandler;
+import com.pahimar.ee3.network.message.MessageRequestTransmutationKnowledge;
+import com.pahimar.ee3.network.message.MessageTransmutationKnowledgeChange;
+import com.pahimar.ee3.network.message.MessageTransmutationKnowledgeUpdate;
+import com.pahimar.ee3.tileentity.TileEntityTransmutationTablet;
+import cpw.mods.fml.client.FMLClientHandler;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import net.minecraft.client.gui.inventory.GuiContainer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Receives the knowledge updates and changes the server sends to the open Transmutation Tablet on the network thread, and
+ * applies them (in the order they were received) on the client thread (see {@link #applyReceivedMessages}), so the
+ * tablet's knowledge never changes while the client thread is paging through it
+ */
+public class TransmutationKnowledgeSyncReceiver
+{
+    private static final Queue<IMessage> receivedMessages = new ConcurrentLinkedQueue<IMessage>();
+
+    public static void receiveUpdate(MessageTransmutationKnowledgeUpdate message)
+    {
+        receivedMessages.add(message);
+    }
+
+    public static void receiveChange(MessageTransmutationKnowledgeChange message)
+    {
+        receivedMessages.add(message);
+    }
+
+    /**
+     * Applies everything received since the last call to the open tablet, asking the server for the whole of the knowledge
+     * (once) if a change does not apply. Called on the client thread.
+     */
+    public static void applyReceivedMessages()
+    {
+        boolean resyncRequested = false;
+
+        IMessage message;
+        while ((message = receivedMessages.poll()) != null)
+        {
+            ContainerTransmutationTablet containerTransmutationTablet = getOpenTablet();
+
+            if (message instanceof MessageTransmutationKnowledgeUpdate)
+            {
+                MessageTransmutationKnowledgeUpdate updateMessage = (MessageTransmutationKnowledgeUpdate) message;
+
+                if (containerTransmutationTablet != null && FMLClientHandler.instance().getWorldClient().getTileEntity(updateMessage.xCoord, updateMessage.yCoord, updateMessage.zCoord) instanceof TileEntityTransmutationTablet)
+                {
+                    containerTransmutationTablet.handleTransmutationKnowledgeUpdate(updateMessage.transmutationKnowledge, updateMessage.knowledgeVersion);
+                    resyncRequested = false;
+                }
+            }
+            else if (message instanceof MessageTransmutationKnowledgeChange)
+            {
+                MessageTransmutationKnowledgeChange changeMessage = (MessageTransmutationKnowledgeChange) message;
+
+                if (containerTransmutationTablet != null && isAt(containerTransmutationTablet, changeMessage.xCoord, changeMessage.yCoord, changeMessage.zCoord))
+                {
+                    if (!containerTransmutationTablet.handleTransmutationKnowledgeChange(changeMessage.itemStack, changeMessage.learned, changeMessage.baseKnowledgeVersion, changeMessage.knowledgeVersion) && !resyncRequested)
+                    {
+                        PacketHandler.INSTANCE.sendToServer(new MessageRequestTransmutationKnowledge(changeMessage.xCoord, changeMessage.yCoord, changeMessage.zCoord));
+                        resyncRequested = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static ContainerTransmutationTablet getOpenTablet()
+    {
+        if (FMLClientHandler.instance().getClient().currentScreen instanceof GuiContainer)
+        {
+            GuiContainer guiContainer = (GuiContainer) FMLClientHandler.instance().getClient().currentScreen;
+
+            if (guiContainer.inventorySlots instanceof ContainerTransmutationTablet)
+            {
+                return (ContainerTransmutationTablet) guiContainer.inventorySlots;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isAt(ContainerTransmutationTablet containerTransmutationTablet, int xCoord, int yCoord, int zCoord)
+    {
+        TileEntityTransmutationTablet tileEntityTransmutationTablet = containerTransmutationTablet.tileEntityTransmutationTablet;
+        return tileEntityTransmutationTablet.xCoord == xCoord && tileEntityTransmutationTablet.yCoord == yCoord && tileEntityTransmutationTablet.zCoord == zCoord;
+    }
+}
@@ -66,6 +66,8 @@ public class CommandEE extends CommandBase
         modCommands.add(new CommandSetEnergyValue());
         modCommands.add(new CommandSetEnergyValueCurrentItem());
         modCommands.add(new CommandSyncEnergyValues());
+        modCommands.add(new CommandNetworkStatistics());
+        modCommands.add(new CommandPersistenceStatistics());
         modCommands.add(new CommandPlayerLearnItem());
         modCommands.add(new CommandPlayerLearnCurrentItem());
         modCommands.add(new CommandPlayerForgetEverything());
@@ -0,0 +1,78 @@
+package com.pahimar.ee3.command;
+
+import com.pahimar.ee3.network.NetworkStatistics;
+import com.pahimar.ee3.reference.Messages;
+import com.pahimar.ee3.reference.Names;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatComponentTranslation;
+
+import java.util.List;
+
+public class CommandNetworkStatistics extends CommandBase
+{
+    private static final String RESET = "reset";
+
+    @Override
+    public String getCommandName()
+    {
+        return Names.Commands.NETWORK_STATISTICS;
+    }
+
+    @Override
+    public int getRequiredPermissionLevel()
+    {
+        return 4;
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender commandSender)
+    {
+        return Messages.Commands.NETWORK_STATISTICS_USAGE;
+    }
+
+    @Override
+    public void processCommand(ICommandSender commandSender, String[] args)
+    {
+        if (args.length == 1)
+        {
+            long seconds = (System.currentTimeMillis() - NetworkStatistics.getStartTime()) / 1000;
+            List<NetworkStatistics.MessageStatistics> statistics = NetworkStatistics.getStatistics();
+
+            if (statistics.isEmpty())
+            {
+                commandSender.addChatMessage(new ChatComponentTranslation(Messages.Commands.NETWORK_STATISTICS_EMPTY, seconds));
+            }
+            else
+            {
+                commandSender.addChatMessage(new ChatComponentTranslation(Messages.Commands.NETWORK_STATISTICS_HEADER, seconds));
+
+                for (NetworkStatistics.MessageStatistics messageStatistics : statistics)
+                {
+                    commandSender.addChatMessage(new ChatComponentTranslation(Messages.Commands.NETWORK_STATISTICS_ENTRY, messageStatistics.direction, messageStatistics.messageType, messageStatistics.count, messageStatistics.bytes, String.format("%.2f", messageStatistics.nanos / 1000000d)));
+                }
+            }
+        }
+        else if (args.length == 2 && args[1].equalsIgnoreCase(RESET))
+        {
+            NetworkStatistics.reset();
+            func_152373_a(commandSender, this, Messages.Commands.NETWORK_STATISTICS_RESET, new Object[]{commandSender.getCommandSenderName()});
+        }
+        else
+        {
+            throw new WrongUsageException(Messages.Commands.NETWORK_STATISTICS_USAGE);
+        }
+    }
+
+    @Override
+    public List addTabCompletionOptions(ICommandSender commandSender, String[] args)
+    {
+        if (args.length == 2)
+        {
+            return getListOfStringsMatchingLastWord(args, RESET);
+        }
+
+        return null;
+    }
+}
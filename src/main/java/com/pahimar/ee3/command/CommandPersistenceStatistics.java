@@ -0,0 +1,45 @@
+package com.pahimar.ee3.command;
+
+import com.pahimar.ee3.knowledge.AbilityRegistry;
+import com.pahimar.ee3.knowledge.TransmutationKnowledgeRegistry;
+import com.pahimar.ee3.reference.Messages;
+import com.pahimar.ee3.reference.Names;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatComponentTranslation;
+
+public class CommandPersistenceStatistics extends CommandBase
+{
+    @Override
+    public String getCommandName()
+    {
+        return Names.Commands.PERSISTENCE_STATISTICS;
+    }
+
+    @Override
+    public int getRequiredPermissionLevel()
+    {
+        return 4;
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender commandSender)
+    {
+        return Messages.Commands.PERSISTENCE_STATISTICS_USAGE;
+    }
+
+    @Override
+    public void processCommand(ICommandSender commandSender, String[] args)
+    {
+        if (args.length == 1)
+        {
+            commandSender.addChatMessage(new ChatComponentTranslation(Messages.Commands.PERSISTENCE_STATISTICS_DIRTY_PLAYERS, TransmutationKnowledgeRegistry.getInstance().getDirtyPlayerCount()));
+            commandSender.addChatMessage(new ChatComponentTranslation(Messages.Commands.PERSISTENCE_STATISTICS_ABILITY_SAVE_LATENCY, AbilityRegistry.getInstance().getLastSaveLatency()));
+        }
+        else
+        {
+            throw new WrongUsageException(Messages.Commands.PERSISTENCE_STATISTICS_USAGE);
+        }
+    }
+}
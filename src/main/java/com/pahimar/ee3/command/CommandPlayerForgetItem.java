@@ -14,10 +14,17 @@ import net.minecraft.nbt.JsonToNBT;
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class CommandPlayerForgetItem extends CommandBase
 {
+    /**
+     * Player name that makes every player (online or not) that knows the item forget it
+     */
+    private static final String EVERYONE = "*";
+
     @Override
     public String getCommandName()
     {
@@ -45,9 +52,10 @@ public class CommandPlayerForgetItem extends CommandBase
         }
         else
         {
-            EntityPlayer entityPlayer = getPlayer(commandSender, args[1]);
+            boolean forEveryone = args[1].equals(EVERYONE);
+            EntityPlayer entityPlayer = forEveryone ? null : getPlayer(commandSender, args[1]);
 
-            if (entityPlayer != null)
+            if (forEveryone || entityPlayer != null)
             {
                 Item item = getItemByText(commandSender, args[2]);
                 int metaData = 0;
@@ -82,8 +90,16 @@ public class CommandPlayerForgetItem extends CommandBase
                     }
                 }
 
-                TransmutationKnowledgeRegistryProxy.makePlayerForget(entityPlayer, itemStack);
-                func_152373_a(commandSender, this, Messages.Commands.PLAYER_FORGET_ITEM_SUCCESS, new Object[]{commandSender.getCommandSenderName(), entityPlayer.getCommandSenderName(), itemStack.func_151000_E()});
+                if (forEveryone)
+                {
+                    int forgottenCount = TransmutationKnowledgeRegistryProxy.makeEveryoneForget(itemStack);
+                    func_152373_a(commandSender, this, Messages.Commands.PLAYER_FORGET_ITEM_EVERYONE_SUCCESS, new Object[]{commandSender.getCommandSenderName(), forgottenCount, itemStack.func_151000_E()});
+                }
+                else
+                {
+                    TransmutationKnowledgeRegistryProxy.makePlayerForget(entityPlayer, itemStack);
+                    func_152373_a(commandSender, this, Messages.Commands.PLAYER_FORGET_ITEM_SUCCESS, new Object[]{commandSender.getCommandSenderName(), entityPlayer.getCommandSenderName(), itemStack.func_151000_E()});
+                }
             }
             else
             {
@@ -97,7 +113,9 @@ public class CommandPlayerForgetItem extends CommandBase
     {
         if (args.length == 2)
         {
-            return getListOfStringsMatchingLastWord(args, FMLCommonHandler.instance().getMinecraftServerInstance().getAllUsernames());
+            List<String> playerNames = new ArrayList<String>(Arrays.asList(FMLCommonHandler.instance().getMinecraftServerInstance().getAllUsernames()));
+            playerNames.add(EVERYONE);
+            return getListOfStringsFromIterableMatchingLastWord(args, playerNames);
         }
         else if (args.length == 3)
         {
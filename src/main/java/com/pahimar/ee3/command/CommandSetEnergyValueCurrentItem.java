@@ -4,8 +4,7 @@ import com.pahimar.ee3.api.exchange.EnergyValue;
 import com.pahimar.ee3.exchange.EnergyValueRegistry;
 import com.pahimar.ee3.exchange.WrappedStack;
 import com.pahimar.ee3.filesystem.FileSystem;
-import com.pahimar.ee3.network.PacketHandler;
-import com.pahimar.ee3.network.message.MessageSetEnergyValue;
+import com.pahimar.ee3.network.EnergyValueChangeBroadcaster;
 import com.pahimar.ee3.reference.Files;
 import com.pahimar.ee3.reference.Messages;
 import com.pahimar.ee3.reference.Names;
@@ -93,7 +92,7 @@ public class CommandSetEnergyValueCurrentItem extends CommandBase
                             postAssignedValues.put(wrappedStack, newEnergyValue);
                             SerializationHelper.writeEnergyValueStackMapToJsonFile(Files.POST_CALCULATION_ENERGY_VALUES, postAssignedValues);
 
-                            PacketHandler.INSTANCE.sendToAll(new MessageSetEnergyValue(wrappedStack, newEnergyValue));
+                            EnergyValueChangeBroadcaster.queueChange(wrappedStack, newEnergyValue);
                         } else if (args[1].equalsIgnoreCase("global-post"))
                         {
                             EnergyValueRegistry.getInstance().setEnergyValue(wrappedStack, newEnergyValue);
@@ -103,7 +102,7 @@ public class CommandSetEnergyValueCurrentItem extends CommandBase
                             postAssignedValues.put(wrappedStack, newEnergyValue);
                             SerializationHelper.writeEnergyValueStackMapToJsonFile(file, postAssignedValues);
 
-                            PacketHandler.INSTANCE.sendToAll(new MessageSetEnergyValue(wrappedStack, newEnergyValue));
+                            EnergyValueChangeBroadcaster.queueChange(wrappedStack, newEnergyValue);
                         } else
                         {
                             throw new WrongUsageException(Messages.Commands.SET_ENERGY_VALUE_CURRENT_ITEM_USAGE);
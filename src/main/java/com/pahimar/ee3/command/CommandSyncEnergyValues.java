@@ -1,8 +1,6 @@
 package com.pahimar.ee3.command;
 
-import com.pahimar.ee3.exchange.EnergyValueRegistry;
-import com.pahimar.ee3.network.PacketHandler;
-import com.pahimar.ee3.network.message.MessageSyncEnergyValues;
+import com.pahimar.ee3.network.EnergyValueSyncCache;
 import com.pahimar.ee3.reference.Messages;
 import com.pahimar.ee3.reference.Names;
 import com.pahimar.ee3.reference.Settings;
@@ -68,7 +66,7 @@ public class CommandSyncEnergyValues extends CommandBase
         if (shouldSync)
         {
             LogHelper.info(String.format("Syncing energy values with player '%s' at their request", commandSender.getCommandSenderName()));
-            PacketHandler.INSTANCE.sendTo(new MessageSyncEnergyValues(EnergyValueRegistry.getInstance()), (EntityPlayerMP) commandSender);
+            EnergyValueSyncCache.sendTo((EntityPlayerMP) commandSender, null);
             commandSender.addChatMessage(new ChatComponentTranslation(Messages.Commands.SYNC_ENERGY_VALUES_SUCCESS));
         }
         else
@@ -9,6 +9,7 @@ public final class ConfigEntries
 {
     private final static String CATEGORY_ITEMS = "general.Items";
     private final static String CATEGORY_DEBUG = "general.Debug";
+    private final static String CATEGORY_KNOWLEDGE = "general.Knowledge";
 
     public static final class General
     {
@@ -72,6 +73,25 @@ public final class ConfigEntries
                         defaultValue);
             }
         }
+
+        public static final class SaveInterval
+        {
+            public static final int minValue = 1;
+            public static final int maxValue = 3600;
+            public static final int defaultValue = 30;
+
+            public static final IntConfigEntry entry;
+
+            static
+            {
+                entry = new IntConfigEntry(
+                        Messages.Configuration.ABILITIES_SAVE_INTERVAL,
+                        Configuration.CATEGORY_GENERAL,
+                        StatCollector.translateToLocal(Messages.Configuration.ABILITIES_SAVE_INTERVAL_COMMENT),
+                        Messages.Configuration.ABILITIES_SAVE_INTERVAL_LABEL,
+                        defaultValue, minValue, maxValue);
+            }
+        }
     }
 
     public static final class Debug
@@ -92,6 +112,25 @@ public final class ConfigEntries
                         defaultValue);
             }
         }
+
+        public static final class NetworkStatisticsLogInterval
+        {
+            public static final int minValue = 0;
+            public static final int maxValue = 86400;
+            public static final int defaultValue = 300;
+
+            public static final IntConfigEntry entry;
+
+            static
+            {
+                entry = new IntConfigEntry(
+                        Messages.Configuration.NETWORK_STATISTICS_LOG_INTERVAL,
+                        CATEGORY_DEBUG,
+                        StatCollector.translateToLocal(Messages.Configuration.NETWORK_STATISTICS_LOG_INTERVAL_COMMENT),
+                        Messages.Configuration.NETWORK_STATISTICS_LOG_INTERVAL_LABEL,
+                        defaultValue, minValue, maxValue);
+            }
+        }
     }
 
     public static final class Sounds
@@ -116,6 +155,120 @@ public final class ConfigEntries
         }
     }
 
+    public static final class Knowledge
+    {
+        public static final class StorageBackend
+        {
+            public static final EnumConfigEntry<KnowledgeStorageOption> entry;
+
+            static
+            {
+                entry = ConfigEntry.Create(
+                        Messages.Configuration.KNOWLEDGE_STORAGE_BACKEND,
+                        CATEGORY_KNOWLEDGE,
+                        StatCollector.translateToLocal(Messages.Configuration.KNOWLEDGE_STORAGE_BACKEND_COMMENT),
+                        Messages.Configuration.KNOWLEDGE_STORAGE_BACKEND_LABEL,
+                        new ValueTransformer<KnowledgeStorageOption>(KnowledgeStorageOption.Json)
+                                .addTransform("json", KnowledgeStorageOption.Json)
+                                .addTransform("log", KnowledgeStorageOption.Log)
+                );
+            }
+        }
+
+        public static final class WriteBehindInterval
+        {
+            public static final int minValue = 0;
+            public static final int maxValue = 3600;
+            public static final int defaultValue = 0;
+
+            public static final IntConfigEntry entry;
+
+            static
+            {
+                entry = new IntConfigEntry(
+                        Messages.Configuration.KNOWLEDGE_WRITE_BEHIND_INTERVAL,
+                        CATEGORY_KNOWLEDGE,
+                        StatCollector.translateToLocal(Messages.Configuration.KNOWLEDGE_WRITE_BEHIND_INTERVAL_COMMENT),
+                        Messages.Configuration.KNOWLEDGE_WRITE_BEHIND_INTERVAL_LABEL,
+                        defaultValue, minValue, maxValue);
+            }
+        }
+
+        public static final class MaxDirtyPlayers
+        {
+            public static final int minValue = 1;
+            public static final int maxValue = Short.MAX_VALUE;
+            public static final int defaultValue = 64;
+
+            public static final IntConfigEntry entry;
+
+            static
+            {
+                entry = new IntConfigEntry(
+                        Messages.Configuration.KNOWLEDGE_MAX_DIRTY_PLAYERS,
+                        CATEGORY_KNOWLEDGE,
+                        StatCollector.translateToLocal(Messages.Configuration.KNOWLEDGE_MAX_DIRTY_PLAYERS_COMMENT),
+                        Messages.Configuration.KNOWLEDGE_MAX_DIRTY_PLAYERS_LABEL,
+                        defaultValue, minValue, maxValue);
+            }
+        }
+
+        public static final class MaxCachedPlayers
+        {
+            public static final int minValue = 1;
+            public static final int maxValue = Short.MAX_VALUE;
+            public static final int defaultValue = 256;
+
+            public static final IntConfigEntry entry;
+
+            static
+            {
+                entry = new IntConfigEntry(
+                        Messages.Configuration.KNOWLEDGE_MAX_CACHED_PLAYERS,
+                        CATEGORY_KNOWLEDGE,
+                        StatCollector.translateToLocal(Messages.Configuration.KNOWLEDGE_MAX_CACHED_PLAYERS_COMMENT),
+                        Messages.Configuration.KNOWLEDGE_MAX_CACHED_PLAYERS_LABEL,
+                        defaultValue, minValue, maxValue);
+            }
+        }
+
+        public static final class CachedPlayerExpiry
+        {
+            public static final int minValue = 0;
+            public static final int maxValue = 86400;
+            public static final int defaultValue = 900;
+
+            public static final IntConfigEntry entry;
+
+            static
+            {
+                entry = new IntConfigEntry(
+                        Messages.Configuration.KNOWLEDGE_CACHED_PLAYER_EXPIRY,
+                        CATEGORY_KNOWLEDGE,
+                        StatCollector.translateToLocal(Messages.Configuration.KNOWLEDGE_CACHED_PLAYER_EXPIRY_COMMENT),
+                        Messages.Configuration.KNOWLEDGE_CACHED_PLAYER_EXPIRY_LABEL,
+                        defaultValue, minValue, maxValue);
+            }
+        }
+
+        public static final class InheritTemplate
+        {
+            public static final boolean defaultValue = false;
+
+            public static final BooleanConfigEntry entry;
+
+            static
+            {
+                entry = new BooleanConfigEntry(
+                        Messages.Configuration.KNOWLEDGE_INHERIT_TEMPLATE,
+                        CATEGORY_KNOWLEDGE,
+                        StatCollector.translateToLocal(Messages.Configuration.KNOWLEDGE_INHERIT_TEMPLATE_COMMENT),
+                        Messages.Configuration.KNOWLEDGE_INHERIT_TEMPLATE_LABEL,
+                        defaultValue);
+            }
+        }
+    }
+
     public static final class DynamicEnergyValueGeneration
     {
         public static final class RegenerateEnergyValues
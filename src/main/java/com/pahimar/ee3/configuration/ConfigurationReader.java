@@ -23,6 +23,34 @@ public final class ConfigurationReader
                 ConfigEntries.Abilities.OnlyLoadFile
                         .entry.getValue(configuration);
 
+        Settings.Abilities.saveInterval =
+                ConfigEntries.Abilities.SaveInterval
+                        .entry.getValue(configuration);
+
+        Settings.Knowledge.storageBackend =
+                ConfigEntries.Knowledge.StorageBackend
+                        .entry.getValue(configuration);
+
+        Settings.Knowledge.writeBehindInterval =
+                ConfigEntries.Knowledge.WriteBehindInterval
+                        .entry.getValue(configuration);
+
+        Settings.Knowledge.maxDirtyPlayers =
+                ConfigEntries.Knowledge.MaxDirtyPlayers
+                        .entry.getValue(configuration);
+
+        Settings.Knowledge.maxCachedPlayers =
+                ConfigEntries.Knowledge.MaxCachedPlayers
+                        .entry.getValue(configuration);
+
+        Settings.Knowledge.cachedPlayerExpiry =
+                ConfigEntries.Knowledge.CachedPlayerExpiry
+                        .entry.getValue(configuration);
+
+        Settings.Knowledge.inheritTemplate =
+                ConfigEntries.Knowledge.InheritTemplate
+                        .entry.getValue(configuration);
+
         Settings.DynamicEnergyValueGeneration.regenerateEnergyValuesWhen =
                 ConfigEntries.DynamicEnergyValueGeneration.RegenerateEnergyValues
                         .entry.getValue(configuration);
@@ -30,5 +58,9 @@ public final class ConfigurationReader
         Settings.Debug.logTraceToInfo =
                 ConfigEntries.Debug.LogTraceToInfo
                         .entry.getValue(configuration);
+
+        Settings.Debug.networkStatisticsLogInterval =
+                ConfigEntries.Debug.NetworkStatisticsLogInterval
+                        .entry.getValue(configuration);
     }
 }
@@ -0,0 +1,6 @@
+package com.pahimar.ee3.configuration;
+
+public enum KnowledgeStorageOption {
+    Json,
+    Log
+}
@@ -0,0 +1,221 @@
+package com.pahimar.ee3.exchange;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.io.ByteStreams;
+import com.google.gson.stream.JsonWriter;
+import com.pahimar.ee3.api.exchange.EnergyValue;
+import com.pahimar.ee3.filesystem.IFileSystem;
+import com.pahimar.ee3.serialization.EnergyValueRegistrySerializer;
+import com.pahimar.ee3.util.AsyncIOHelper;
+import com.pahimar.ee3.util.LogHelper;
+import com.pahimar.ee3.util.SerializationHelper;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A content-addressed store of calculated energy values, shared by every world of the instance.
+ * <p/>
+ * Entries are keyed by a fingerprint of everything that feeds the calculation: the mod list, all pre-calculation values
+ * (including the world's own overrides, as they change what gets calculated) and all post-calculation values that are
+ * not world specific. World specific post-calculation values do not affect the calculation, so they are left out of the
+ * cached values and layered on top of them afterwards, letting worlds that only differ in those overrides share an entry.
+ */
+public class EnergyValueCache
+{
+    private static final String CACHE_FILE_EXTENSION = ".json.gz";
+
+    private final File cacheDirectory;
+
+    public EnergyValueCache(IFileSystem globalFileSystem)
+    {
+        this.cacheDirectory = globalFileSystem.getEnergyValuesCacheDirectory();
+    }
+
+    public String computeFingerprint(IRegistryContext context, IEnergyCalculationDataProvider dataProvider)
+    {
+        MessageDigest messageDigest = DigestUtils.getMd5Digest();
+
+        try
+        {
+            JsonWriter jsonWriter = new JsonWriter(new OutputStreamWriter(new DigestOutputStream(ByteStreams.nullOutputStream(), messageDigest), "UTF-8"));
+            jsonWriter.beginArray();
+            jsonWriter.value(SerializationHelper.getModListMD5());
+
+            for (Map<WrappedStack, EnergyValue> stackValueMap : getSharedInputs(context, dataProvider))
+            {
+                EnergyValueRegistrySerializer.toJson(new TreeMap<WrappedStack, EnergyValue>(stackValueMap), jsonWriter);
+            }
+
+            jsonWriter.endArray();
+            jsonWriter.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+
+        return Hex.encodeHexString(messageDigest.digest());
+    }
+
+    private static List<Map<WrappedStack, EnergyValue>> getSharedInputs(IRegistryContext context, IEnergyCalculationDataProvider dataProvider)
+    {
+        List<Map<WrappedStack, EnergyValue>> sharedInputs = new ArrayList<Map<WrappedStack, EnergyValue>>();
+
+        if (dataProvider.getPreCalculationMappings() != null)
+        {
+            sharedInputs.add(dataProvider.getPreCalculationMappings());
+        }
+
+        for (IEnergyValuesSource source : dataProvider.getPreCalculationSources())
+        {
+            sharedInputs.add(source.getValues(context));
+        }
+
+        if (dataProvider.getPostCalculationMappings() != null)
+        {
+            sharedInputs.add(dataProvider.getPostCalculationMappings());
+        }
+
+        for (IEnergyValuesSource source : dataProvider.getPostCalculationSources())
+        {
+            if (!source.isWorldSpecific())
+            {
+                sharedInputs.add(source.getValues(context));
+            }
+        }
+
+        return sharedInputs;
+    }
+
+    /**
+     * @return the cached values for the fingerprint, or null if there are none
+     */
+    public Map<WrappedStack, EnergyValue> load(String fingerprint)
+    {
+        if (fingerprint != null)
+        {
+            File cacheFile = getCacheFile(fingerprint);
+
+            if (cacheFile.isFile())
+            {
+                LogHelper.info("Attempting to load energy values from global cache: " + cacheFile.getAbsolutePath());
+                Map<WrappedStack, EnergyValue> stackValueMap = SerializationHelper.decompressEnergyValueStackMapFromFile(cacheFile);
+
+                if (!stackValueMap.isEmpty())
+                {
+                    return stackValueMap;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    public void save(String fingerprint, final Map<WrappedStack, EnergyValue> stackValueMap)
+    {
+        if (fingerprint != null && stackValueMap != null)
+        {
+            final File cacheFile = getCacheFile(fingerprint);
+
+            AsyncIOHelper.submit("save energy value cache", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    cacheDirectory.mkdirs();
+                    SerializationHelper.compressEnergyValueStackMapToFile(cacheFile, stackValueMap);
+                }
+            });
+        }
+    }
+
+    private File getCacheFile(String fingerprint)
+    {
+        return new File(cacheDirectory, fingerprint + CACHE_FILE_EXTENSION);
+    }
+
+    /**
+     * Applies the world specific post-calculation values on top of the (shared) calculated values
+     */
+    public static ImmutableSortedMap<WrappedStack, EnergyValue> applyWorldOverrides(Map<WrappedStack, EnergyValue> sharedValues, IRegistryContext context, IEnergyCalculationDataProvider dataProvider)
+    {
+        Map<WrappedStack, EnergyValue> stackValueMap = new TreeMap<WrappedStack, EnergyValue>(sharedValues);
+
+        for (IEnergyValuesSource source : dataProvider.getPostCalculationSources())
+        {
+            if (source.isWorldSpecific())
+            {
+                Map<WrappedStack, EnergyValue> sourceValueMap = source.getValues(context);
+                for (WrappedStack wrappedStack : sourceValueMap.keySet())
+                {
+                    if (sourceValueMap.get(wrappedStack) != null)
+                    {
+                        stackValueMap.put(wrappedStack, sourceValueMap.get(wrappedStack));
+                    }
+                }
+            }
+        }
+
+        ImmutableSortedMap.Builder<WrappedStack, EnergyValue> stackMappingsBuilder = ImmutableSortedMap.naturalOrder();
+        stackMappingsBuilder.putAll(stackValueMap);
+        return stackMappingsBuilder.build();
+    }
+
+    /**
+     * Wraps a data provider so that only the inputs shared by every world take part in the calculation
+     */
+    public static final class SharedCalculationDataProvider implements IEnergyCalculationDataProvider
+    {
+        private final IEnergyCalculationDataProvider dataProvider;
+
+        public SharedCalculationDataProvider(IEnergyCalculationDataProvider dataProvider)
+        {
+            this.dataProvider = dataProvider;
+        }
+
+        @Override
+        public Map<WrappedStack, EnergyValue> getPreCalculationMappings()
+        {
+            return dataProvider.getPreCalculationMappings();
+        }
+
+        @Override
+        public Map<WrappedStack, EnergyValue> getPostCalculationMappings()
+        {
+            return dataProvider.getPostCalculationMappings();
+        }
+
+        @Override
+        public IEnergyValuesSource[] getPreCalculationSources()
+        {
+            return dataProvider.getPreCalculationSources();
+        }
+
+        @Override
+        public IEnergyValuesSource[] getPostCalculationSources()
+        {
+            List<IEnergyValuesSource> sharedSources = new ArrayList<IEnergyValuesSource>();
+
+            for (IEnergyValuesSource source : dataProvider.getPostCalculationSources())
+            {
+                if (!source.isWorldSpecific())
+                {
+                    sharedSources.add(source);
+                }
+            }
+
+            return sharedSources.toArray(new IEnergyValuesSource[sharedSources.size()]);
+        }
+    }
+}
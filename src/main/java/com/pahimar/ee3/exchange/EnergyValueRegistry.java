@@ -7,9 +7,11 @@ import com.pahimar.ee3.api.exchange.IEnergyValueProvider;
 import com.pahimar.ee3.configuration.EnergyRegenOption;
 import com.pahimar.ee3.filesystem.FileSystem;
 import com.pahimar.ee3.filesystem.IFileSystem;
+import com.pahimar.ee3.knowledge.TransmutationKnowledgeIndex;
 import com.pahimar.ee3.reference.Files;
 import com.pahimar.ee3.reference.Settings;
 import com.pahimar.ee3.serialization.EnergyValueRegistrySerializer;
+import com.pahimar.ee3.util.AsyncIOHelper;
 import com.pahimar.ee3.util.EnergyValueHelper;
 import com.pahimar.ee3.util.LoaderHelper;
 import com.pahimar.ee3.util.LogHelper;
@@ -25,13 +27,17 @@ import net.minecraftforge.oredict.OreDictionary;
 import javax.naming.OperationNotSupportedException;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EnergyValueRegistry
 {
     private static EnergyValueRegistry currentInstance;
     private static final Object singletonSyncRoot = new Object();
+    private static final AtomicInteger versionCounter = new AtomicInteger();
 
     private boolean shouldRegenNextRestart = false;
+    private volatile int version;
     private ImmutableSortedMap<WrappedStack, EnergyValue> stackMappings;
     private ImmutableSortedMap<EnergyValue, List<WrappedStack>> valueMappings;
     private SortedSet<WrappedStack> uncomputedStacks;
@@ -143,10 +149,31 @@ public class EnergyValueRegistry
     {
         IRegistryContext context = new Context(this);
         IEnergyCalculationDataProvider dataProvider = new CalculationDataProvider();
-        EnergyCalculationSession session = new EnergyCalculationSession(context, dataProvider);
 
-        EnergyCalculationSession.Result result = session.runDynamicEnergyValueResolution();
-        this.stackMappings = result.getStackValueMap();
+        /**
+         *  Reuse values another world of this instance already calculated from the same inputs, if there are any
+         */
+        EnergyValueCache cache = new EnergyValueCache(context.getGlobal());
+        String fingerprint = cache.computeFingerprint(context, dataProvider);
+        Map<WrappedStack, EnergyValue> sharedValues = null;
+
+        if (Settings.DynamicEnergyValueGeneration.regenerateEnergyValuesWhen != EnergyRegenOption.Always)
+        {
+            sharedValues = cache.load(fingerprint);
+        }
+
+        if (sharedValues == null)
+        {
+            EnergyCalculationSession session = new EnergyCalculationSession(context, new EnergyValueCache.SharedCalculationDataProvider(dataProvider));
+            sharedValues = session.runDynamicEnergyValueResolution().getStackValueMap();
+            cache.save(fingerprint, sharedValues);
+        }
+        else
+        {
+            LogHelper.info("Loaded energy values from global cache, skipping dynamic value calculation");
+        }
+
+        this.stackMappings = EnergyValueCache.applyWorldOverrides(sharedValues, context, dataProvider);
 
         /**
          *  Value map resolution
@@ -173,14 +200,22 @@ public class EnergyValueRegistry
     }
 
     private void generateValueStackMappings()
+    {
+        valueMappings = createValueStackMappings(stackMappings);
+
+        TransmutationKnowledgeIndex.indexStacks(stackMappings.keySet());
+        version = versionCounter.incrementAndGet();
+    }
+
+    private static ImmutableSortedMap<EnergyValue, List<WrappedStack>> createValueStackMappings(Map<WrappedStack, EnergyValue> stackValueMappings)
     {
         SortedMap<EnergyValue, List<WrappedStack>> tempValueMappings = new TreeMap<EnergyValue, List<WrappedStack>>();
 
-        for (WrappedStack stack : stackMappings.keySet())
+        for (WrappedStack stack : stackValueMappings.keySet())
         {
             if (stack != null)
             {
-                EnergyValue value = stackMappings.get(stack);
+                EnergyValue value = stackValueMappings.get(stack);
 
                 if (value != null)
                 {
@@ -198,7 +233,15 @@ public class EnergyValueRegistry
                 }
             }
         }
-        valueMappings = ImmutableSortedMap.copyOf(tempValueMappings);
+        return ImmutableSortedMap.copyOf(tempValueMappings);
+    }
+
+    /**
+     * @return a number that changes whenever the energy values change, and that is unique across registry instances
+     */
+    public int getVersion()
+    {
+        return version;
     }
 
     public List getStacksInRange(int start, int finish)
@@ -278,13 +321,54 @@ public class EnergyValueRegistry
         }
     }
 
+    /**
+     * Does all the work of loading the supplied energy values that can be done on any thread, so that the (cheap)
+     * {@link #loadPreparedValues} can be called on the thread that reads the registry
+     */
+    public static PreparedValues prepareValues(Map<WrappedStack, EnergyValue> stackValueMap)
+    {
+        ImmutableSortedMap.Builder<WrappedStack, EnergyValue> stackMappingsBuilder = ImmutableSortedMap.naturalOrder();
+        stackMappingsBuilder.putAll(stackValueMap);
+        ImmutableSortedMap<WrappedStack, EnergyValue> stackMappings = stackMappingsBuilder.build();
+
+        TransmutationKnowledgeIndex.indexStacks(stackMappings.keySet());
+        return new PreparedValues(stackMappings, createValueStackMappings(stackMappings));
+    }
+
+    /**
+     * Replaces the energy values with the prepared ones, without rebuilding anything
+     */
+    public void loadPreparedValues(PreparedValues preparedValues)
+    {
+        stackMappings = preparedValues.stackMappings;
+        valueMappings = preparedValues.valueMappings;
+        version = versionCounter.incrementAndGet();
+    }
+
     public void setEnergyValue(WrappedStack wrappedStack, EnergyValue energyValue)
     {
-        if (wrappedStack != null && energyValue != null && Float.compare(energyValue.getValue(), 0f) > 0)
+        setEnergyValues(Collections.singletonMap(wrappedStack, energyValue));
+    }
+
+    /**
+     * Sets all the supplied energy values in one go, rebuilding the registry's mappings only once
+     */
+    public void setEnergyValues(Map<WrappedStack, EnergyValue> changedStackValueMap)
+    {
+        TreeMap<WrappedStack, EnergyValue> stackValueMap = new TreeMap<WrappedStack, EnergyValue>(stackMappings);
+        boolean hasChanged = false;
+
+        for (Map.Entry<WrappedStack, EnergyValue> entry : changedStackValueMap.entrySet())
         {
-            TreeMap<WrappedStack, EnergyValue> stackValueMap = new TreeMap<WrappedStack, EnergyValue>(stackMappings);
-            stackValueMap.put(wrappedStack, energyValue);
+            if (entry.getKey() != null && entry.getValue() != null && Float.compare(entry.getValue().getValue(), 0f) > 0)
+            {
+                stackValueMap.put(entry.getKey(), entry.getValue());
+                hasChanged = true;
+            }
+        }
 
+        if (hasChanged)
+        {
             ImmutableSortedMap.Builder<WrappedStack, EnergyValue> stackMappingsBuilder = ImmutableSortedMap.naturalOrder();
             stackMappingsBuilder.putAll(stackValueMap);
             stackMappings = stackMappingsBuilder.build();
@@ -313,33 +397,56 @@ public class EnergyValueRegistry
         return valueMappings;
     }
 
-    public void save()
+    /**
+     * Writes the current energy values to disk on the background I/O thread. The returned future completes once both
+     * the static and the mod list specific files have been written (or removed, if values are to be regenerated)
+     */
+    public Future<?> save()
     {
         World world = FMLCommonHandler.instance().getMinecraftServerInstance().getEntityWorld();
-        File energyValuesDataDirectory = FileSystem.getWorld(world).getEnergyValuesDirectory();
-        energyValuesDataDirectory.mkdirs();
+        final File energyValuesDataDirectory = FileSystem.getWorld(world).getEnergyValuesDirectory();
+        final String modListMD5 = SerializationHelper.getModListMD5();
 
         if (shouldRegenNextRestart)
         {
-            File staticEnergyValuesJsonFile = new File(energyValuesDataDirectory, Files.STATIC_ENERGY_VALUES_JSON);
-            File md5EnergyValuesJsonFile = new File(energyValuesDataDirectory, SerializationHelper.getModListMD5() + ".json");
+            shouldRegenNextRestart = false;
 
-            // JSON
-            if (staticEnergyValuesJsonFile.exists())
+            return AsyncIOHelper.submit("delete energy values", new Runnable()
             {
-                staticEnergyValuesJsonFile.delete();
-            }
-            if (md5EnergyValuesJsonFile.exists())
-            {
-                md5EnergyValuesJsonFile.delete();
-            }
+                @Override
+                public void run()
+                {
+                    File staticEnergyValuesJsonFile = new File(energyValuesDataDirectory, Files.STATIC_ENERGY_VALUES_JSON);
+                    File md5EnergyValuesJsonFile = new File(energyValuesDataDirectory, modListMD5 + ".json.gz");
 
-            shouldRegenNextRestart = false;
+                    if (staticEnergyValuesJsonFile.exists())
+                    {
+                        staticEnergyValuesJsonFile.delete();
+                    }
+                    if (md5EnergyValuesJsonFile.exists())
+                    {
+                        md5EnergyValuesJsonFile.delete();
+                    }
+                }
+            });
         }
         else
         {
-            SerializationHelper.compressEnergyValueStackMapToFile(new File(energyValuesDataDirectory, Files.STATIC_ENERGY_VALUES_JSON), currentInstance.stackMappings);
-            SerializationHelper.compressEnergyValueStackMapToFile(new File(energyValuesDataDirectory, SerializationHelper.getModListMD5() + ".json.gz"), currentInstance.stackMappings);
+            // The stack mappings are immutable, so holding on to the current reference is a consistent snapshot
+            final Map<WrappedStack, EnergyValue> stackValueMap = stackMappings;
+
+            return AsyncIOHelper.submit("save energy values", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (stackValueMap != null)
+                    {
+                        energyValuesDataDirectory.mkdirs();
+                        SerializationHelper.compressEnergyValueStackMapToFile(new File(energyValuesDataDirectory, modListMD5 + ".json.gz"), stackValueMap, new File(energyValuesDataDirectory, Files.STATIC_ENERGY_VALUES_JSON));
+                    }
+                }
+            });
         }
     }
 
@@ -424,6 +531,18 @@ public class EnergyValueRegistry
         }
     }
 
+    public static final class PreparedValues
+    {
+        private final ImmutableSortedMap<WrappedStack, EnergyValue> stackMappings;
+        private final ImmutableSortedMap<EnergyValue, List<WrappedStack>> valueMappings;
+
+        private PreparedValues(ImmutableSortedMap<WrappedStack, EnergyValue> stackMappings, ImmutableSortedMap<EnergyValue, List<WrappedStack>> valueMappings)
+        {
+            this.stackMappings = stackMappings;
+            this.valueMappings = valueMappings;
+        }
+    }
+
     private final class Context implements IRegistryContext
     {
         private final EnergyValueRegistry registry;
@@ -30,6 +30,12 @@ public class FileSystemEnergyValuesSource implements IEnergyValuesSource
         return SerializationHelper.readEnergyValueStackMapFromJsonFile(file);
     }
 
+    @Override
+    public boolean isWorldSpecific()
+    {
+        return this.isWorld;
+    }
+
     private IFileSystem getFileSystem(IRegistryContext context)
     {
         return this.isWorld
@@ -8,4 +8,9 @@ import java.util.Map;
 public interface IEnergyValuesSource
 {
     Map<WrappedStack, EnergyValue> getValues(IRegistryContext context);
+
+    /**
+     * Whether the values come from the current world rather than from something shared by every world of the instance
+     */
+    boolean isWorldSpecific();
 }
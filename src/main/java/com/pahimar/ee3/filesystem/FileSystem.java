@@ -88,6 +88,18 @@ public abstract class FileSystem implements IFileSystem
         return combine(getEEDataDirectory(), Files.ENERGY_VALUES_DIRECTORY);
     }
 
+    @Override
+    public File getEnergyValuesCacheDirectory()
+    {
+        return combine(getEnergyValuesDirectory(), Files.ENERGY_VALUES_CACHE_DIRECTORY);
+    }
+
+    @Override
+    public File getServerEnergyValuesDirectory()
+    {
+        return combine(getEnergyValuesDirectory(), Files.SERVER_ENERGY_VALUES_DIRECTORY);
+    }
+
     @Override
     public File getAbilitiesDirectory()
     {
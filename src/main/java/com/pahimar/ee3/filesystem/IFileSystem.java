@@ -10,6 +10,8 @@ public interface IFileSystem
     File getEEDataDirectory();
 
     File getEnergyValuesDirectory();
+    File getEnergyValuesCacheDirectory();
+    File getServerEnergyValuesDirectory();
     File getAbilitiesDirectory();
     File getKnowledgeDirectory();
     File getTransmutationDirectory();
@@ -1,6 +1,7 @@
 package com.pahimar.ee3.handler;
 
 import com.pahimar.ee3.knowledge.AbilityRegistry;
+import com.pahimar.ee3.reference.Settings;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.TickEvent;
@@ -12,7 +13,7 @@ public class AbilityRegistrySerializationHandler
     {
         if (event.phase == TickEvent.Phase.END)
         {
-            if (FMLCommonHandler.instance().getMinecraftServerInstance().getEntityWorld().getWorldTime() % 600 == 0)
+            if (FMLCommonHandler.instance().getMinecraftServerInstance().getEntityWorld().getTotalWorldTime() % (Settings.Abilities.saveInterval * 20) == 0)
             {
                 AbilityRegistry.getInstance().save();
             }
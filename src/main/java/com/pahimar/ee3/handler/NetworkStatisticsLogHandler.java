@@ -0,0 +1,68 @@
+package com.pahimar.ee3.handler;
+
+import com.pahimar.ee3.network.NetworkStatistics;
+import com.pahimar.ee3.reference.Settings;
+import com.pahimar.ee3.util.LogHelper;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NetworkStatisticsLogHandler
+{
+    private static final int MAX_LOGGED_MESSAGE_TYPES = 5;
+
+    private long lastLogTime = System.currentTimeMillis();
+    private long lastStartTime;
+    private Map<String, NetworkStatistics.MessageStatistics> lastStatistics = new HashMap<String, NetworkStatistics.MessageStatistics>();
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.END && Settings.Debug.networkStatisticsLogInterval > 0 && System.currentTimeMillis() - lastLogTime >= Settings.Debug.networkStatisticsLogInterval * 1000L)
+        {
+            long seconds = (System.currentTimeMillis() - lastLogTime) / 1000;
+            lastLogTime = System.currentTimeMillis();
+
+            // Statistics reset since the last log line count from zero again
+            if (lastStartTime != NetworkStatistics.getStartTime())
+            {
+                lastStartTime = NetworkStatistics.getStartTime();
+                lastStatistics.clear();
+            }
+
+            List<NetworkStatistics.MessageStatistics> intervalStatistics = new ArrayList<NetworkStatistics.MessageStatistics>();
+            long totalBytes = 0;
+
+            for (NetworkStatistics.MessageStatistics messageStatistics : NetworkStatistics.getStatistics())
+            {
+                NetworkStatistics.MessageStatistics intervalMessageStatistics = messageStatistics.copy();
+                NetworkStatistics.MessageStatistics lastMessageStatistics = lastStatistics.put(messageStatistics.getKey(), messageStatistics);
+
+                if (lastMessageStatistics != null)
+                {
+                    intervalMessageStatistics.count -= lastMessageStatistics.count;
+                    intervalMessageStatistics.bytes -= lastMessageStatistics.bytes;
+                    intervalMessageStatistics.nanos -= lastMessageStatistics.nanos;
+                }
+
+                if (intervalMessageStatistics.count > 0)
+                {
+                    intervalStatistics.add(intervalMessageStatistics);
+                    totalBytes += intervalMessageStatistics.bytes;
+                }
+            }
+
+            if (!intervalStatistics.isEmpty())
+            {
+                Collections.sort(intervalStatistics, NetworkStatistics.MessageStatistics.BYTES_DESCENDING);
+                List<NetworkStatistics.MessageStatistics> loggedStatistics = intervalStatistics.subList(0, Math.min(MAX_LOGGED_MESSAGE_TYPES, intervalStatistics.size()));
+                LogHelper.info(String.format("Network traffic over the last %s seconds: %s bytes in total, top message types %s", seconds, totalBytes, loggedStatistics));
+            }
+        }
+    }
+}
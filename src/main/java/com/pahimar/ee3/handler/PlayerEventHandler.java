@@ -1,10 +1,10 @@
 package com.pahimar.ee3.handler;
 
-import com.pahimar.ee3.exchange.EnergyValueRegistry;
 import com.pahimar.ee3.knowledge.TransmutationKnowledgeRegistry;
+import com.pahimar.ee3.network.EnergyValueSyncCache;
 import com.pahimar.ee3.network.PacketHandler;
 import com.pahimar.ee3.network.message.MessageChalkSettings;
-import com.pahimar.ee3.network.message.MessageSyncEnergyValues;
+import com.pahimar.ee3.network.message.MessageEnergyValuesVersion;
 import com.pahimar.ee3.settings.ChalkSettings;
 import com.pahimar.ee3.util.EntityHelper;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
@@ -19,7 +19,8 @@ public class PlayerEventHandler
     {
         if (!event.entityPlayer.worldObj.isRemote)
         {
-            TransmutationKnowledgeRegistry.getInstance().loadPlayerFromDiskIfNeeded(event.entityPlayer);
+            // Fires before the FML handshake, which leaves the I/O thread time to load the knowledge before login completes
+            TransmutationKnowledgeRegistry.getInstance().prefetchPlayer(event.entityPlayer.getUniqueID());
         }
     }
 
@@ -47,7 +48,7 @@ public class PlayerEventHandler
             PacketHandler.INSTANCE.sendTo(new MessageChalkSettings(chalkSettings), (EntityPlayerMP) event.player);
 
             TransmutationKnowledgeRegistry.getInstance().loadPlayerFromDiskIfNeeded(event.player);
-            PacketHandler.INSTANCE.sendTo(new MessageSyncEnergyValues(EnergyValueRegistry.getInstance()), (EntityPlayerMP) event.player);
+            PacketHandler.INSTANCE.sendTo(new MessageEnergyValuesVersion(EnergyValueSyncCache.getCurrentHash()), (EntityPlayerMP) event.player);
         }
 
     }
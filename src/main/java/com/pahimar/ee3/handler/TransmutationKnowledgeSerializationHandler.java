@@ -0,0 +1,31 @@
+package com.pahimar.ee3.handler;
+
+import com.pahimar.ee3.knowledge.TransmutationKnowledgeRegistry;
+import com.pahimar.ee3.reference.Settings;
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+
+public class TransmutationKnowledgeSerializationHandler
+{
+    private static final int EVICTION_INTERVAL = 1200;
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.END)
+        {
+            long totalWorldTime = FMLCommonHandler.instance().getMinecraftServerInstance().getEntityWorld().getTotalWorldTime();
+
+            if (Settings.Knowledge.writeBehindInterval > 0 && totalWorldTime % (Settings.Knowledge.writeBehindInterval * 20) == 0)
+            {
+                TransmutationKnowledgeRegistry.getInstance().flushDirtyPlayers();
+            }
+
+            if (totalWorldTime % EVICTION_INTERVAL == 0)
+            {
+                TransmutationKnowledgeRegistry.getInstance().evictIdlePlayers();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.pahimar.ee3.handler;
+
+import com.pahimar.ee3.network.TransmutationKnowledgeChangeBroadcaster;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+
+public class TransmutationKnowledgeSyncHandler
+{
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.END)
+        {
+            TransmutationKnowledgeChangeBroadcaster.sendRequestedResyncs();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.pahimar.ee3.inventory;
 
-import com.pahimar.ee3.api.exchange.EnergyValueRegistryProxy;
 import com.pahimar.ee3.exchange.EnergyValueRegistry;
 import com.pahimar.ee3.inventory.element.IElementButtonHandler;
 import com.pahimar.ee3.inventory.element.IElementSliderHandler;
@@ -12,16 +11,17 @@ import com.pahimar.ee3.knowledge.AbilityRegistry;
 import com.pahimar.ee3.knowledge.TransmutationKnowledge;
 import com.pahimar.ee3.knowledge.TransmutationKnowledgeRegistry;
 import com.pahimar.ee3.network.PacketHandler;
+import com.pahimar.ee3.network.message.MessageTransmutationKnowledgeChange;
 import com.pahimar.ee3.network.message.MessageTransmutationKnowledgeUpdate;
 import com.pahimar.ee3.reference.Comparators;
 import com.pahimar.ee3.tileentity.TileEntityTransmutationTablet;
-import com.pahimar.ee3.util.FilterUtils;
 import com.pahimar.ee3.util.ItemHelper;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.network.NetworkRegistry;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.entity.player.InventoryPlayer;
 import net.minecraft.inventory.ICrafting;
 import net.minecraft.inventory.IInventory;
@@ -32,25 +32,37 @@ import java.util.*;
 
 public class ContainerTransmutationTablet extends ContainerEE implements IElementTextFieldHandler, IElementSliderHandler, IElementButtonHandler
 {
+    private static final int UNKNOWN_KNOWLEDGE_VERSION = -1;
+
     private InventoryTransmutationTablet inventoryTransmutationTablet;
+    private int knowledgeVersion;
     public final TileEntityTransmutationTablet tileEntityTransmutationTablet;
     private float energyValue;
     private String searchTerm;
     private int sortOption;
     private int sortOrder;
     private int scrollBarPosition;
+    private boolean inventoryUpdatePending;
 
     public ContainerTransmutationTablet(InventoryPlayer inventoryPlayer, TileEntityTransmutationTablet tileEntityTransmutationTablet)
     {
         this.tileEntityTransmutationTablet = tileEntityTransmutationTablet;
 
-        TreeSet<ItemStack> knownTransmutations = new TreeSet<ItemStack>(Comparators.displayNameComparator);
+        Set<ItemStack> knownTransmutations = null;
+        this.knowledgeVersion = UNKNOWN_KNOWLEDGE_VERSION;
         if (tileEntityTransmutationTablet.getStackInSlot(TileEntityTransmutationTablet.ALCHEMICAL_TOME_INDEX) != null)
         {
             ItemStack itemStack = tileEntityTransmutationTablet.getStackInSlot(TileEntityTransmutationTablet.ALCHEMICAL_TOME_INDEX);
             if (itemStack.getItem() instanceof ItemAlchemicalTome && ItemHelper.hasOwnerUUID(itemStack))
             {
-                knownTransmutations.addAll(TransmutationKnowledgeRegistry.getInstance().getPlayersKnownTransmutations(ItemHelper.getOwnerUUID(itemStack)));
+                // Already a fresh set in id order, which the inventory adopts without comparing any stacks
+                knownTransmutations = TransmutationKnowledgeRegistry.getInstance().getPlayersKnownTransmutations(ItemHelper.getOwnerUUID(itemStack));
+
+                // The client learns the version from the update addCraftingToCrafters sends it when the tablet opens
+                if (!tileEntityTransmutationTablet.getWorldObj().isRemote)
+                {
+                    this.knowledgeVersion = TransmutationKnowledgeRegistry.getInstance().getPlayersKnowledgeVersion(ItemHelper.getOwnerUUID(itemStack));
+                }
             }
         }
         inventoryTransmutationTablet = new InventoryTransmutationTablet(knownTransmutations);
@@ -115,9 +127,21 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
         return this.tileEntityTransmutationTablet != null && this.tileEntityTransmutationTablet.isStructureValid();
     }
 
+    @Override
+    public void addCraftingToCrafters(ICrafting iCrafting)
+    {
+        super.addCraftingToCrafters(iCrafting);
+
+        if (iCrafting instanceof EntityPlayerMP && this.knowledgeVersion != UNKNOWN_KNOWLEDGE_VERSION)
+        {
+            PacketHandler.INSTANCE.sendTo(createTransmutationKnowledgeUpdate(), (EntityPlayerMP) iCrafting);
+        }
+    }
+
     @Override
     public void detectAndSendChanges()
     {
+        applyPendingInventoryUpdate();
         super.detectAndSendChanges();
 
         for (Object crafter : this.crafters)
@@ -175,7 +199,7 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
         if (elementName.equalsIgnoreCase("searchField"))
         {
             this.searchTerm = updatedText;
-            updateInventory();
+            requestInventoryUpdate();
         }
     }
 
@@ -185,75 +209,146 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
         if (elementName.equals("scrollBar"))
         {
             this.scrollBarPosition = elementValue;
-            updateInventory();
+            requestInventoryUpdate();
         }
     }
 
-    public void handleTransmutationKnowledgeUpdate(TransmutationKnowledge transmutationKnowledge)
+    /**
+     * The client updates straight away. The server waits until it next sends changes, so that several search or scroll
+     * updates that arrive within a tick cost only one filter and sort of the known transmutations.
+     */
+    private void requestInventoryUpdate()
     {
-        if (transmutationKnowledge != null)
+        if (this.tileEntityTransmutationTablet.getWorldObj().isRemote)
         {
-            this.inventoryTransmutationTablet = new InventoryTransmutationTablet(transmutationKnowledge.getKnownTransmutations());
             this.updateInventory();
         }
+        else
+        {
+            this.inventoryUpdatePending = true;
+        }
     }
 
-    private void updateInventory()
+    /**
+     * Brings the server's page up to date with the search and scroll updates received since it was last built, so clicks
+     * land on the page the player sees
+     */
+    private void applyPendingInventoryUpdate()
     {
-        ItemStack[] newInventory = new ItemStack[30];
+        if (inventoryUpdatePending)
+        {
+            inventoryUpdatePending = false;
+            this.updateInventory();
+        }
+    }
 
-        Set<ItemStack> filteredSet = FilterUtils.filterByNameContains(this.inventoryTransmutationTablet.getKnownTransmutations(), searchTerm);
-        List<ItemStack> filteredList = new ArrayList(FilterUtils.filterByEnergyValue(filteredSet, energyValue));
+    public void handleTransmutationKnowledgeUpdate(TransmutationKnowledge transmutationKnowledge, int knowledgeVersion)
+    {
+        if (transmutationKnowledge != null)
+        {
+            this.inventoryTransmutationTablet = new InventoryTransmutationTablet(transmutationKnowledge.getKnownTransmutations());
+            this.knowledgeVersion = knowledgeVersion;
+            this.updateInventory();
+        }
+    }
 
-        int adjustedStartIndex = (int) ((scrollBarPosition / 187f) * filteredList.size());
+    /**
+     * Applies a single learned or forgotten transmutation in place
+     *
+     * @return false if the tablet is not at the version the change was made against, in which case it has to be resynced
+     */
+    public boolean handleTransmutationKnowledgeChange(ItemStack itemStack, boolean learned, int baseKnowledgeVersion, int knowledgeVersion)
+    {
+        if (this.knowledgeVersion == UNKNOWN_KNOWLEDGE_VERSION || this.knowledgeVersion != baseKnowledgeVersion)
+        {
+            return false;
+        }
 
-        if (sortOption == 0)
+        if (learned)
         {
-            if (sortOrder == 0)
-            {
-                Collections.sort(filteredList, Comparators.displayNameComparator);
-            }
-            else
-            {
-                Collections.sort(filteredList, Comparators.reverseDisplayNameComparator);
-            }
+            this.inventoryTransmutationTablet.learnTransmutation(itemStack);
         }
-        else if (sortOption == 1)
+        else
         {
-            if (sortOrder == 0)
-            {
-                Collections.sort(filteredList, Comparators.energyValueItemStackComparator);
-            }
-            else
-            {
-                Collections.sort(filteredList, Comparators.reverseEnergyValueComparator);
-            }
+            this.inventoryTransmutationTablet.forgetTransmutation(itemStack);
         }
-        else if (sortOption == 2)
+
+        this.knowledgeVersion = knowledgeVersion;
+        this.updateInventory();
+        return true;
+    }
+
+    /**
+     * @return true if the tablet has the tome of the player in it
+     */
+    public boolean isShowingKnowledgeOf(UUID playerUUID)
+    {
+        ItemStack itemStack = this.tileEntityTransmutationTablet.getStackInSlot(TileEntityTransmutationTablet.ALCHEMICAL_TOME_INDEX);
+        return itemStack != null && itemStack.getItem() instanceof ItemAlchemicalTome && ItemHelper.hasOwnerUUID(itemStack) && ItemHelper.getOwnerUUID(itemStack).equals(playerUUID);
+    }
+
+    /**
+     * Applies a change of the tome owner's knowledge to the server side of the tablet, and sends it on to the player's client
+     */
+    public void sendTransmutationKnowledgeChange(EntityPlayerMP entityPlayer, ItemStack itemStack, boolean learned, int knowledgeVersion)
+    {
+        int baseKnowledgeVersion = this.knowledgeVersion;
+
+        if (learned)
         {
-            if (sortOrder == 0)
-            {
-                Collections.sort(filteredList, Comparators.idComparator);
-            }
-            else
-            {
-                Collections.sort(filteredList, Comparators.reverseIdComparator);
-            }
+            this.inventoryTransmutationTablet.learnTransmutation(itemStack);
         }
+        else
+        {
+            this.inventoryTransmutationTablet.forgetTransmutation(itemStack);
+        }
+
+        this.knowledgeVersion = knowledgeVersion;
+        this.updateInventory();
+        PacketHandler.INSTANCE.sendTo(new MessageTransmutationKnowledgeChange(this.tileEntityTransmutationTablet, itemStack, learned, baseKnowledgeVersion, knowledgeVersion), entityPlayer);
+    }
+
+    /**
+     * Empties the server side of the tablet after the tome owner forgot everything, and sends the player's client the
+     * (empty) knowledge
+     */
+    public void sendTransmutationKnowledgeReset(EntityPlayerMP entityPlayer, int knowledgeVersion)
+    {
+        this.inventoryTransmutationTablet = new InventoryTransmutationTablet();
+        this.knowledgeVersion = knowledgeVersion;
+        this.updateInventory();
+        PacketHandler.INSTANCE.sendTo(createTransmutationKnowledgeUpdate(), entityPlayer);
+    }
 
-        if (filteredList.size() <= 30)
+    /**
+     * @return a full update of the knowledge the server side of the tablet shows, for a client that fell out of step
+     */
+    public MessageTransmutationKnowledgeUpdate createTransmutationKnowledgeUpdate()
+    {
+        return new MessageTransmutationKnowledgeUpdate(this.tileEntityTransmutationTablet, this.inventoryTransmutationTablet.getKnownTransmutations(), this.knowledgeVersion);
+    }
+
+    private void updateInventory()
+    {
+        ItemStack[] newInventory = new ItemStack[30];
+
+        Comparator<ItemStack> comparator;
+        if (sortOption == 0)
         {
-            newInventory = filteredList.toArray(newInventory);
+            comparator = Comparators.displayNameComparator;
         }
-        else if (adjustedStartIndex + 30 <= filteredList.size())
+        else if (sortOption == 1)
         {
-            newInventory = filteredList.subList(adjustedStartIndex, adjustedStartIndex + 30).toArray(newInventory);
+            comparator = Comparators.energyValueItemStackComparator;
         }
         else
         {
-            newInventory = filteredList.subList(filteredList.size() - 30, filteredList.size()).toArray(newInventory);
+            comparator = Comparators.idComparator;
         }
 
+        List<ItemStack> page = this.inventoryTransmutationTablet.getPage(searchTerm, energyValue, comparator, sortOrder != 0, scrollBarPosition / 187f, newInventory.length);
+        newInventory = page.toArray(newInventory);
+
         for (int i = 0; i < 30; i++)
         {
             this.getSlot(i + 10).putStack(newInventory[i]);
@@ -263,6 +358,8 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
     @Override
     public ItemStack transferStackInSlot(EntityPlayer entityPlayer, int slotIndex)
     {
+        applyPendingInventoryUpdate();
+
         ItemStack itemStack = null;
         Slot slot = (Slot) inventorySlots.get(slotIndex);
 
@@ -285,10 +382,9 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
             }
             else if (slotIndex >= TileEntityTransmutationTablet.INVENTORY_SIZE && slotIndex < 40)
             {
-                if (!this.mergeTransmutatedItemStack(entityPlayer, slot, slotItemStack, 40, inventorySlots.size(), false))
-                {
-                    return null;
-                }
+                // Transmuted in one go, so there is nothing left for the caller to retry
+                this.transmuteIntoPlayerInventory(slotItemStack, slotItemStack.getMaxStackSize());
+                return null;
             }
             else
             {
@@ -328,88 +424,49 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
         return itemStack;
     }
 
-    protected boolean attemptMergeTransmutatedItemStack(EntityPlayer entityPlayer, Slot transmutationOutputSlot, ItemStack itemStack, int slotMin, int slotMax, boolean ascending)
+    /**
+     * Transmutes as many of the output item stack as fit in the player's inventory and can be paid for, up to maxCount, as
+     * a single transaction with the tablet
+     *
+     * @return the number of items transmuted
+     */
+    public int transmuteIntoPlayerInventory(ItemStack outputItemStack, int maxCount)
     {
-        if (this.tileEntityTransmutationTablet.getAvailableEnergyValue().compareTo(EnergyValueRegistryProxy.getEnergyValue(itemStack)) < 0)
-        {
-            return false;
-        }
+        int count = this.tileEntityTransmutationTablet.getTransmutableCount(outputItemStack, Math.min(maxCount, getPlayerInventorySpace(outputItemStack)));
 
-        boolean slotFound = false;
-        int currentSlotIndex = ascending ? slotMax - 1 : slotMin;
-
-        Slot slot;
-        ItemStack stackInSlot;
-
-        if (itemStack.isStackable())
+        if (count > 0 && this.tileEntityTransmutationTablet.transmute(outputItemStack, count))
         {
-            while (itemStack.stackSize > 0 && (!ascending && currentSlotIndex < slotMax || ascending && currentSlotIndex >= slotMin))
+            // Merged a stack at a time, as mergeItemStack puts whatever is left into a single empty slot
+            for (int remainingCount = count; remainingCount > 0; remainingCount -= outputItemStack.getMaxStackSize())
             {
-                slot = (Slot) this.inventorySlots.get(currentSlotIndex);
-                stackInSlot = slot.getStack();
+                this.mergeItemStack(ItemHelper.cloneItemStack(outputItemStack, Math.min(remainingCount, outputItemStack.getMaxStackSize())), 40, inventorySlots.size(), false);
+            }
 
-                if (slot.isItemValid(itemStack) && ItemHelper.equalsIgnoreStackSize(itemStack, stackInSlot))
-                {
-                    int combinedStackSize = stackInSlot.stackSize + itemStack.stackSize;
-                    int slotStackSizeLimit = Math.min(stackInSlot.getMaxStackSize(), slot.getSlotStackLimit());
+            return count;
+        }
 
-                    if (combinedStackSize <= slotStackSizeLimit)
-                    {
-                        itemStack.stackSize = 0;
-                        stackInSlot.stackSize = combinedStackSize;
-                        slot.onSlotChanged();
-                        slotFound = true;
-                    }
-                    else if (stackInSlot.stackSize < slotStackSizeLimit)
-                    {
-                        itemStack.stackSize -= slotStackSizeLimit - stackInSlot.stackSize;
-                        stackInSlot.stackSize = slotStackSizeLimit;
-                        slot.onSlotChanged();
-                        slotFound = true;
-                    }
-                }
+        return 0;
+    }
 
-                currentSlotIndex += ascending ? -1 : 1;
-            }
-        }
+    private int getPlayerInventorySpace(ItemStack itemStack)
+    {
+        int space = 0;
 
-        if (itemStack.stackSize > 0)
+        for (int i = 40; i < inventorySlots.size(); i++)
         {
-            currentSlotIndex = ascending ? slotMax - 1 : slotMin;
+            ItemStack stackInSlot = ((Slot) inventorySlots.get(i)).getStack();
 
-            while (!ascending && currentSlotIndex < slotMax || ascending && currentSlotIndex >= slotMin)
+            if (stackInSlot == null)
             {
-                slot = (Slot) this.inventorySlots.get(currentSlotIndex);
-                stackInSlot = slot.getStack();
-
-                if (slot.isItemValid(itemStack) && stackInSlot == null)
-                {
-                    slot.putStack(ItemHelper.cloneItemStack(itemStack, Math.min(itemStack.stackSize, slot.getSlotStackLimit())));
-                    slot.onSlotChanged();
-
-                    if (slot.getStack() != null)
-                    {
-                        itemStack.stackSize = 0;
-                        slotFound = true;
-                    }
-
-                    break;
-                }
-
-                currentSlotIndex += ascending ? -1 : 1;
+                space += itemStack.getMaxStackSize();
+            }
+            else if (itemStack.isStackable() && ItemHelper.equalsIgnoreStackSize(itemStack, stackInSlot))
+            {
+                space += Math.max(itemStack.getMaxStackSize() - stackInSlot.stackSize, 0);
             }
         }
-        itemStack.stackSize = 1;
-        return slotFound;
-    }
-
-    protected boolean mergeTransmutatedItemStack(EntityPlayer entityPlayer, Slot transmutationOutputSlot, ItemStack itemStack, int slotMin, int slotMax, boolean ascending)
-    {
-        boolean result = this.attemptMergeTransmutatedItemStack(entityPlayer, transmutationOutputSlot, itemStack, slotMin, slotMax, ascending);
-        if(result)
-            transmutationOutputSlot.onPickupFromSlot(entityPlayer, itemStack);
 
-        return result;
+        return space;
     }
 
     @Override
@@ -471,10 +528,21 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
     @Override
     public ItemStack slotClick(int slot, int button, int flag, EntityPlayer player)
     {
+    	applyPendingInventoryUpdate();
     	if(button==0 && flag==6)
     	{
     		return null;
     	}
+    	// Shift-click transmutes a full stack (see transferStackInSlot), shift-right-click as many as possible
+    	if(button==1 && flag==1 && slot >= TileEntityTransmutationTablet.INVENTORY_SIZE && slot < 40)
+    	{
+    		Slot outputSlot = (Slot) inventorySlots.get(slot);
+    		if(outputSlot.getHasStack())
+    		{
+    			this.transmuteIntoPlayerInventory(outputSlot.getStack(), Integer.MAX_VALUE);
+    		}
+    		return null;
+    	}
     	return super.slotClick(slot, button, flag, player);
     }
     
@@ -508,11 +576,12 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
             super.onPickupFromSlot(entityPlayer, itemStack);
 
             this.containerTransmutationTablet.inventoryTransmutationTablet = new InventoryTransmutationTablet();
+            this.containerTransmutationTablet.knowledgeVersion = UNKNOWN_KNOWLEDGE_VERSION;
             this.containerTransmutationTablet.updateInventory();
 
             if (!this.tileEntityTransmutationTablet.getWorldObj().isRemote && itemStack != null && itemStack.getItem() instanceof ItemAlchemicalTome && ItemHelper.hasOwnerUUID(itemStack))
             {
-                PacketHandler.INSTANCE.sendToAllAround(new MessageTransmutationKnowledgeUpdate(this.containerTransmutationTablet.tileEntityTransmutationTablet, null), new NetworkRegistry.TargetPoint(this.tileEntityTransmutationTablet.getWorldObj().provider.dimensionId, (double) this.tileEntityTransmutationTablet.xCoord, (double) this.tileEntityTransmutationTablet.yCoord, (double) this.tileEntityTransmutationTablet.zCoord, 5d));
+                PacketHandler.INSTANCE.sendToAllAround(new MessageTransmutationKnowledgeUpdate(this.containerTransmutationTablet.tileEntityTransmutationTablet, null, UNKNOWN_KNOWLEDGE_VERSION), new NetworkRegistry.TargetPoint(this.tileEntityTransmutationTablet.getWorldObj().provider.dimensionId, (double) this.tileEntityTransmutationTablet.xCoord, (double) this.tileEntityTransmutationTablet.yCoord, (double) this.tileEntityTransmutationTablet.zCoord, 5d));
             }
         }
 
@@ -525,8 +594,9 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
             {
                 Set<ItemStack> knownTransmutations = TransmutationKnowledgeRegistry.getInstance().getPlayersKnownTransmutations(ItemHelper.getOwnerUUID(itemStack));
                 this.containerTransmutationTablet.inventoryTransmutationTablet = new InventoryTransmutationTablet(knownTransmutations);
+                this.containerTransmutationTablet.knowledgeVersion = TransmutationKnowledgeRegistry.getInstance().getPlayersKnowledgeVersion(ItemHelper.getOwnerUUID(itemStack));
                 this.containerTransmutationTablet.updateInventory();
-                PacketHandler.INSTANCE.sendToAllAround(new MessageTransmutationKnowledgeUpdate(this.containerTransmutationTablet.tileEntityTransmutationTablet, knownTransmutations), new NetworkRegistry.TargetPoint(this.tileEntityTransmutationTablet.getWorldObj().provider.dimensionId, (double) this.tileEntityTransmutationTablet.xCoord, (double) this.tileEntityTransmutationTablet.yCoord, (double) this.tileEntityTransmutationTablet.zCoord, 5d));
+                PacketHandler.INSTANCE.sendToAllAround(new MessageTransmutationKnowledgeUpdate(this.containerTransmutationTablet.tileEntityTransmutationTablet, knownTransmutations, this.containerTransmutationTablet.knowledgeVersion), new NetworkRegistry.TargetPoint(this.tileEntityTransmutationTablet.getWorldObj().provider.dimensionId, (double) this.tileEntityTransmutationTablet.xCoord, (double) this.tileEntityTransmutationTablet.yCoord, (double) this.tileEntityTransmutationTablet.zCoord, 5d));
             }
         }
     }
@@ -603,7 +673,6 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
         public void onPickupFromSlot(EntityPlayer entityPlayer, ItemStack itemStack)
         {
             super.onPickupFromSlot(entityPlayer, itemStack);
-            this.containerTransmutationTablet.tileEntityTransmutationTablet.updateEnergyValueFromInventory();
             this.containerTransmutationTablet.updateInventory();
         }
 
@@ -611,7 +680,6 @@ public class ContainerTransmutationTablet extends ContainerEE implements IElemen
         public void putStack(ItemStack itemStack)
         {
             super.putStack(itemStack);
-            this.containerTransmutationTablet.tileEntityTransmutationTablet.updateEnergyValueFromInventory();
             this.containerTransmutationTablet.updateInventory();
         }
     }
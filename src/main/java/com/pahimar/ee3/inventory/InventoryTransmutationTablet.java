@@ -1,5 +1,6 @@
 package com.pahimar.ee3.inventory;
 
+import com.pahimar.ee3.knowledge.TransmutationSearchIndex;
 import com.pahimar.ee3.reference.Comparators;
 import com.pahimar.ee3.reference.Names;
 import net.minecraft.entity.player.EntityPlayer;
@@ -12,6 +13,7 @@ public class InventoryTransmutationTablet implements IInventory
 {
     private ItemStack[] inventory;
     private Set<ItemStack> knownTransmutations;
+    private TransmutationSearchIndex searchIndex;
 
     public InventoryTransmutationTablet()
     {
@@ -28,6 +30,12 @@ public class InventoryTransmutationTablet implements IInventory
             this.knownTransmutations.addAll(knownTransmutations);
         }
 
+        searchIndex = new TransmutationSearchIndex(Comparators.idComparator);
+        for (ItemStack itemStack : this.knownTransmutations)
+        {
+            searchIndex.add(itemStack);
+        }
+
         List<ItemStack> knownTransmutationsList = new ArrayList<ItemStack>(this.knownTransmutations);
         if (knownTransmutationsList.size() <= 30)
         {
@@ -179,4 +187,35 @@ public class InventoryTransmutationTablet implements IInventory
     {
         return knownTransmutations;
     }
+
+    public void learnTransmutation(ItemStack itemStack)
+    {
+        if (itemStack != null)
+        {
+            ItemStack copiedItemStack = itemStack.copy();
+            copiedItemStack.stackSize = 1;
+
+            if (knownTransmutations.add(copiedItemStack))
+            {
+                searchIndex.add(copiedItemStack);
+            }
+        }
+    }
+
+    public void forgetTransmutation(ItemStack itemStack)
+    {
+        if (itemStack != null && knownTransmutations.remove(itemStack))
+        {
+            searchIndex.remove(itemStack);
+        }
+    }
+
+    /**
+     * @return one page of the known transmutations that match the search term and are affordable with the given energy
+     * value, in the order of the comparator (or the reverse of it)
+     */
+    public List<ItemStack> getPage(String searchTerm, float availableEnergyValue, Comparator<ItemStack> comparator, boolean descending, float startFraction, int pageSize)
+    {
+        return searchIndex.getPage(searchTerm, availableEnergyValue, comparator, descending, startFraction, pageSize);
+    }
 }
@@ -10,21 +10,22 @@ import com.pahimar.ee3.exchange.WrappedStack;
 import com.pahimar.ee3.filesystem.*;
 import com.pahimar.ee3.reference.Files;
 import com.pahimar.ee3.serialization.AbilityRegistrySerializer;
-import com.pahimar.ee3.util.LoaderHelper;
-import com.pahimar.ee3.util.LogHelper;
-import com.pahimar.ee3.util.SerializationHelper;
+import com.pahimar.ee3.util.*;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.Loader;
 import net.minecraft.item.ItemStack;
 import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.oredict.OreDictionary;
 
 import javax.naming.OperationNotSupportedException;
 import java.io.*;
 import java.lang.reflect.Type;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 public class AbilityRegistry
 {
@@ -32,7 +33,10 @@ public class AbilityRegistry
     private static final Object singletonSyncRoot = new Object();
 
     private static File abilityDirectory;
-    private boolean hasBeenModified;
+    private volatile boolean hasBeenModified;
+    private volatile long lastSaveLatency;
+    private volatile int abilitiesVersion;
+    private volatile AbilitySnapshot abilitySnapshot;
     private Set<WrappedStack> notLearnableSet;
     private Set<WrappedStack> notRecoverableSet;
 
@@ -79,6 +83,22 @@ public class AbilityRegistry
     }
 
     public boolean isLearnable(Object object)
+    {
+        if (object instanceof ItemStack)
+        {
+            AbilitySnapshot snapshot = getAbilitySnapshot();
+            int index = snapshot.indexOf((ItemStack) object);
+
+            if (index >= 0)
+            {
+                return snapshot.learnableStacks.get(index);
+            }
+        }
+
+        return computeLearnable(object);
+    }
+
+    private boolean computeLearnable(Object object)
     {
         if (WrappedStack.canBeWrapped(object))
         {
@@ -108,6 +128,7 @@ public class AbilityRegistry
                 if (notLearnableSet.remove(wrappedStack))
                 {
                     hasBeenModified = true;
+                    abilitiesVersion++;
                     LogHelper.trace(String.format("AbilityRegistry[%s]: Mod with ID '%s' set object %s as LEARNABLE", LoaderHelper.getLoaderState(), Loader.instance().activeModContainer().getModId(), wrappedStack));
                 }
             }
@@ -125,6 +146,7 @@ public class AbilityRegistry
                 if (notLearnableSet.add(wrappedStack))
                 {
                     hasBeenModified = true;
+                    abilitiesVersion++;
                     LogHelper.trace(String.format("AbilityRegistry[%s]: Mod with ID '%s' set object %s as NOT LEARNABLE", LoaderHelper.getLoaderState(), Loader.instance().activeModContainer().getModId(), wrappedStack));
                 }
             }
@@ -137,6 +159,22 @@ public class AbilityRegistry
     }
 
     public boolean isRecoverable(Object object)
+    {
+        if (object instanceof ItemStack)
+        {
+            AbilitySnapshot snapshot = getAbilitySnapshot();
+            int index = snapshot.indexOf((ItemStack) object);
+
+            if (index >= 0)
+            {
+                return snapshot.recoverableStacks.get(index);
+            }
+        }
+
+        return computeRecoverable(object);
+    }
+
+    private boolean computeRecoverable(Object object)
     {
         if (WrappedStack.canBeWrapped(object))
         {
@@ -158,6 +196,7 @@ public class AbilityRegistry
                 if (notRecoverableSet.remove(wrappedStack))
                 {
                     hasBeenModified = true;
+                    abilitiesVersion++;
                     LogHelper.trace(String.format("AbilityRegistry[%s]: Mod with ID '%s' set object %s as RECOVERABLE", LoaderHelper.getLoaderState(), Loader.instance().activeModContainer().getModId(), wrappedStack));
                 }
             }
@@ -175,12 +214,39 @@ public class AbilityRegistry
                 if (notRecoverableSet.add(wrappedStack))
                 {
                     hasBeenModified = true;
+                    abilitiesVersion++;
                     LogHelper.trace(String.format("AbilityRegistry[%s]: Mod with ID '%s' set object %s as NOT RECOVERABLE", LoaderHelper.getLoaderState(), Loader.instance().activeModContainer().getModId(), wrappedStack));
                 }
             }
         }
     }
 
+    /**
+     * @return the learnable and recoverable status of every indexed item stack, rebuilt if the abilities or the energy
+     * values changed since it was last built
+     */
+    private AbilitySnapshot getAbilitySnapshot()
+    {
+        int energyValuesVersion = EnergyValueRegistry.getInstance().getVersion();
+        AbilitySnapshot snapshot = abilitySnapshot;
+
+        if (snapshot == null || snapshot.energyValuesVersion != energyValuesVersion || snapshot.abilitiesVersion != abilitiesVersion)
+        {
+            synchronized (this)
+            {
+                snapshot = abilitySnapshot;
+
+                if (snapshot == null || snapshot.energyValuesVersion != energyValuesVersion || snapshot.abilitiesVersion != abilitiesVersion)
+                {
+                    snapshot = new AbilitySnapshot(energyValuesVersion, abilitiesVersion);
+                    abilitySnapshot = snapshot;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
     @Override
     public String toString()
     {
@@ -200,33 +266,71 @@ public class AbilityRegistry
         return stringBuilder.toString();
     }
 
-    public void save()
+    /**
+     * Writes the registry to disk on the background I/O thread if it changed since it was last saved. Only copying the
+     * sets happens on the calling thread.
+     *
+     * @return the pending save, or null if there was nothing to save
+     */
+    public Future<?> save()
     {
-        if (abilityDirectory != null)
+        if (abilityDirectory != null && hasBeenModified)
         {
-            abilityDirectory.mkdirs();
-            writeToFile(new File(abilityDirectory, Files.ABILITIES_JSON_FILE));
+            final File file = new File(abilityDirectory, Files.ABILITIES_JSON_FILE);
+            final AbilityRegistry snapshot = new AbilityRegistry(new TreeSet<WrappedStack>(notLearnableSet), new TreeSet<WrappedStack>(notRecoverableSet));
+            final long startTime = System.nanoTime();
+            hasBeenModified = false;
+
+            return AsyncIOHelper.submit("save abilities", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (writeToFile(file, snapshot))
+                    {
+                        lastSaveLatency = (System.nanoTime() - startTime) / 1000000;
+                        LogHelper.trace(String.format("AbilityRegistry: Saved to %s in %s ms", file.getAbsolutePath(), lastSaveLatency));
+                    }
+                    else
+                    {
+                        // Try again with the next save
+                        hasBeenModified = true;
+                    }
+                }
+            });
         }
+
+        return null;
+    }
+
+    /**
+     * @return the time in milliseconds between the most recent successful save being requested and it being on disk
+     */
+    public long getLastSaveLatency()
+    {
+        return lastSaveLatency;
     }
 
-    private void writeToFile(File file)
+    private static boolean writeToFile(File file, AbilityRegistry abilityRegistry)
     {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
         JsonWriter jsonWriter;
 
-        if (hasBeenModified)
+        try
         {
-            try
-            {
-                jsonWriter = new JsonWriter(new FileWriter(file));
-                jsonWriter.setIndent("    ");
-                AbilityRegistrySerializer.toJson(this, jsonWriter);
-                jsonWriter.close();
-                hasBeenModified = false;
-            }
-            catch (IOException e)
-            {
-                e.printStackTrace();
-            }
+            file.getParentFile().mkdirs();
+            jsonWriter = CompressionHelper.createJsonWriter(new SyncedFileOutputStream(tempFile));
+            jsonWriter.setIndent("    ");
+            AbilityRegistrySerializer.toJson(abilityRegistry, jsonWriter);
+            jsonWriter.close();
+            SerializationHelper.replaceFile(tempFile, file);
+            return true;
+        }
+        catch (IOException e)
+        {
+            tempFile.delete();
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -255,7 +359,7 @@ public class AbilityRegistry
 
         try
         {
-            jsonReader = new JsonReader(new FileReader(file));
+            jsonReader = CompressionHelper.createJsonReader(file);
             AbilityRegistry abilityRegistry1 = AbilityRegistrySerializer.createFromJson(jsonReader);
             jsonReader.close();
 
@@ -284,6 +388,7 @@ public class AbilityRegistry
             }
 
             hasBeenModified = true;
+            abilitiesVersion++;
         }
         catch (FileNotFoundException ignored)
         {
@@ -293,6 +398,10 @@ public class AbilityRegistry
         {
             e.printStackTrace();
         }
+        catch (JsonParseException e)
+        {
+            e.printStackTrace();
+        }
     }
 
     public void dumpAbilityRegistryToLog()
@@ -345,4 +454,59 @@ public class AbilityRegistry
         }
         LogHelper.info(String.format("END DUMPING %s ABILITY OBJECTS", abilityType));
     }
+
+    /**
+     * The learnable and recoverable status of the item stacks in {@link TransmutationKnowledgeIndex}, by index. Stacks
+     * that are not covered (indexed after the snapshot was built, or involving wildcard damage values) fall back to the
+     * full check.
+     */
+    private final class AbilitySnapshot
+    {
+        private final int energyValuesVersion;
+        private final int abilitiesVersion;
+        private final int size;
+        private final BitSet learnableStacks;
+        private final BitSet recoverableStacks;
+        private final BitSet wildcardStacks;
+
+        private AbilitySnapshot(int energyValuesVersion, int abilitiesVersion)
+        {
+            this.energyValuesVersion = energyValuesVersion;
+            this.abilitiesVersion = abilitiesVersion;
+            this.size = TransmutationKnowledgeIndex.size();
+            this.learnableStacks = new BitSet(size);
+            this.recoverableStacks = new BitSet(size);
+            this.wildcardStacks = new BitSet(size);
+
+            for (int index = 0; index < size; index++)
+            {
+                ItemStack itemStack = TransmutationKnowledgeIndex.getItemStack(index);
+
+                if (itemStack.getItemDamage() == OreDictionary.WILDCARD_VALUE)
+                {
+                    wildcardStacks.set(index);
+                }
+                else
+                {
+                    learnableStacks.set(index, computeLearnable(itemStack));
+                    recoverableStacks.set(index, computeRecoverable(itemStack));
+                }
+            }
+        }
+
+        private int indexOf(ItemStack itemStack)
+        {
+            if (itemStack.getItemDamage() != OreDictionary.WILDCARD_VALUE)
+            {
+                int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+
+                if (index >= 0 && index < size && !wildcardStacks.get(index))
+                {
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+    }
 }
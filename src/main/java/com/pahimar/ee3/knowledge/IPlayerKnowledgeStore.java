@@ -0,0 +1,62 @@
+package com.pahimar.ee3.knowledge;
+
+import net.minecraft.item.ItemStack;
+
+import java.util.UUID;
+
+/**
+ * Persistent storage for the transmutation knowledge of individual players
+ */
+public interface IPlayerKnowledgeStore
+{
+    /**
+     * Knowledge based on the template is returned as stored, i.e. as its differences to the template, and without the
+     * template attached; callers attach it before resolving what the player knows.
+     *
+     * @return the stored knowledge of the player, or null if nothing has been stored for them yet
+     */
+    TransmutationKnowledge load(UUID playerUUID);
+
+    /**
+     * Persists the complete knowledge of the player. Implementations may skip knowledge that has not been modified since
+     * it was last persisted.
+     */
+    void save(UUID playerUUID, TransmutationKnowledge transmutationKnowledge);
+
+    /**
+     * Persists the changes made to the knowledge of the player since it was last persisted. Implementations that record
+     * individual changes write only the changed transmutations; others may persist the complete knowledge.
+     */
+    void saveChanges(UUID playerUUID, TransmutationKnowledge transmutationKnowledge, PlayerKnowledgeChanges changes);
+
+    /**
+     * Persists that the player learnt the given transmutation. The supplied knowledge already reflects the change.
+     */
+    void recordLearn(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge);
+
+    /**
+     * Persists that the player forgot the given transmutation. The supplied knowledge already reflects the change.
+     */
+    void recordForget(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge);
+
+    /**
+     * Persists that the player forgot every transmutation. The supplied knowledge already reflects the change.
+     */
+    void recordForgetAll(UUID playerUUID, TransmutationKnowledge transmutationKnowledge);
+
+    /**
+     * Calls the visitor for every stored player, reading the backing storage as sequentially as possible. As with
+     * {@link #load}, the template is not attached to the knowledge passed to the visitor.
+     */
+    void visitAll(Visitor visitor);
+
+    /**
+     * Brings the backing storage into its most compact form and releases any open resources
+     */
+    void close();
+
+    interface Visitor
+    {
+        void visit(UUID playerUUID, TransmutationKnowledge transmutationKnowledge);
+    }
+}
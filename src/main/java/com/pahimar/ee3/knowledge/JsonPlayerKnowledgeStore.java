@@ -0,0 +1,102 @@
+package com.pahimar.ee3.knowledge;
+
+import com.pahimar.ee3.util.SerializationHelper;
+import net.minecraft.item.ItemStack;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * Stores the knowledge of every player in its own JSON file, named after the player's UUID
+ */
+public class JsonPlayerKnowledgeStore implements IPlayerKnowledgeStore
+{
+    private static final String FILE_EXTENSION = ".json";
+
+    private final File directory;
+
+    public JsonPlayerKnowledgeStore(File directory)
+    {
+        this.directory = directory;
+    }
+
+    @Override
+    public TransmutationKnowledge load(UUID playerUUID)
+    {
+        File playerKnowledgeFile = new File(directory, playerUUID.toString() + FILE_EXTENSION);
+
+        if (playerKnowledgeFile.exists() && playerKnowledgeFile.isFile())
+        {
+            return SerializationHelper.readTransmutationKnowledgeFromFile(directory, playerUUID.toString() + FILE_EXTENSION);
+        }
+
+        return null;
+    }
+
+    @Override
+    public void save(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        SerializationHelper.writeTransmutationKnowledgeToFile(directory, playerUUID.toString() + FILE_EXTENSION, transmutationKnowledge);
+    }
+
+    @Override
+    public void saveChanges(UUID playerUUID, TransmutationKnowledge transmutationKnowledge, PlayerKnowledgeChanges changes)
+    {
+        save(playerUUID, transmutationKnowledge);
+    }
+
+    @Override
+    public void recordLearn(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        save(playerUUID, transmutationKnowledge);
+    }
+
+    @Override
+    public void recordForget(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        save(playerUUID, transmutationKnowledge);
+    }
+
+    @Override
+    public void recordForgetAll(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        save(playerUUID, transmutationKnowledge);
+    }
+
+    @Override
+    public void visitAll(Visitor visitor)
+    {
+        File[] playerKnowledgeFiles = directory.listFiles();
+
+        if (playerKnowledgeFiles != null)
+        {
+            for (File playerKnowledgeFile : playerKnowledgeFiles)
+            {
+                String fileName = playerKnowledgeFile.getName();
+
+                if (playerKnowledgeFile.isFile() && fileName.endsWith(FILE_EXTENSION))
+                {
+                    try
+                    {
+                        UUID playerUUID = UUID.fromString(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()));
+                        TransmutationKnowledge transmutationKnowledge = load(playerUUID);
+
+                        if (transmutationKnowledge != null)
+                        {
+                            visitor.visit(playerUUID, transmutationKnowledge);
+                        }
+                    }
+                    catch (IllegalArgumentException ignored)
+                    {
+                        // Not a player knowledge file
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,1287 @@
+package com.pahimar.ee3.knowledge;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import com.pahimar.ee3.reference.Files;
+import com.pahimar.ee3.util.AsyncIOHelper;
+import com.pahimar.ee3.util.LogHelper;
+import com.pahimar.ee3.util.SerializationHelper;
+import com.pahimar.ee3.util.SyncedFileOutputStream;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the knowledge of all players in two files instead of one file per player:
+ * <ul>
+ * <li>an append-only log of learn/forget events, replayed into memory (grouped by player) on start up</li>
+ * <li>a segment file holding the compacted knowledge of every player in one block each, followed by an index of the
+ * block offsets, so loading a player takes a single seek and scanning all players is one sequential read</li>
+ * </ul>
+ * Every event is logged as a record with its length and checksum, and the records of one save are written to the log in a
+ * single call. If that write fails the log is cut back to where it was and the players involved are logged as a whole
+ * with the next save; records that fail their checksum on start up are skipped, and whatever cannot be read past is moved
+ * to a separate file rather than dropped.
+ * <p/>
+ * Once enough events have been logged they are compacted into a new segment file on the background I/O thread and the
+ * log is truncated. Replaying the log onto a segment that already contains its events yields the same knowledge, so a
+ * crash between writing the new segment and truncating the log is harmless.
+ * <p/>
+ * Knowledge based on the template is stored as its differences to the template, like {@link JsonPlayerKnowledgeStore}
+ * does, so transmutations the template learns later reach such players. Every learn/forget event therefore records how
+ * one transmutation now differs from the template (known on top of it, forgotten from it, or no difference), and a
+ * player's events start over with an empty (template based) knowledge whenever everything is forgotten.
+ * <p/>
+ * Players that still have a per player JSON file from {@link JsonPlayerKnowledgeStore} are imported on first load.
+ */
+public class LogStructuredPlayerKnowledgeStore implements IPlayerKnowledgeStore
+{
+    private static final int SEGMENT_MAGIC = 0x45453353;
+    private static final int LOG_MAGIC = 0x4545334C;
+    private static final int LOG_HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int SEGMENT_TRAILER_SIZE = 12;
+    private static final int COMPACTION_THRESHOLD = 16384;
+
+    private static final byte EVENT_LEARN = 0;
+    private static final byte EVENT_FORGET = 1;
+    private static final byte EVENT_FORGET_ALL = 2;
+    private static final byte EVENT_FORGET_FROM_TEMPLATE = 3;
+    private static final byte EVENT_BASE_ON_TEMPLATE = 4;
+
+    private static final int BLOCK_TEMPLATE_DIFFERENCES = -1;
+
+    private static final String LEGACY_FILE_EXTENSION = ".json";
+    private static final String CORRUPT_LOG_EXTENSION = ".corrupt";
+
+    private final File directory;
+    private final File logFile;
+    private final File segmentFile;
+
+    private final Map<UUID, SegmentEntry> segmentIndex;
+    private final Map<UUID, List<KnowledgeEvent>> pendingEvents;
+    private int pendingEventCount;
+
+    private final ByteArrayOutputStream logBuffer;
+    private final Set<UUID> bufferedPlayers;
+    private final Set<UUID> unloggedPlayers;
+    private final CRC32 recordChecksum;
+    private long logLength;
+
+    private FileOutputStream logOutputStream;
+    private RandomAccessFile segmentReader;
+    private boolean compactionScheduled;
+    private boolean compacting;
+    private boolean closed;
+
+    public LogStructuredPlayerKnowledgeStore(File directory)
+    {
+        this.directory = directory;
+        this.logFile = new File(directory, Files.KNOWLEDGE_LOG_FILE);
+        this.segmentFile = new File(directory, Files.KNOWLEDGE_SEGMENT_FILE);
+
+        this.segmentIndex = new LinkedHashMap<UUID, SegmentEntry>();
+        this.pendingEvents = new HashMap<UUID, List<KnowledgeEvent>>();
+        this.logBuffer = new ByteArrayOutputStream();
+        this.bufferedPlayers = new HashSet<UUID>();
+        this.unloggedPlayers = new HashSet<UUID>();
+        this.recordChecksum = new CRC32();
+
+        openSegment();
+        replayLog();
+    }
+
+    @Override
+    public synchronized TransmutationKnowledge load(UUID playerUUID)
+    {
+        TransmutationKnowledge transmutationKnowledge = readStoredKnowledge(playerUUID);
+
+        if (transmutationKnowledge == null)
+        {
+            return importLegacyKnowledge(playerUUID);
+        }
+
+        transmutationKnowledge.markAsSaved();
+        return transmutationKnowledge;
+    }
+
+    /**
+     * @return the knowledge of the player in the segment with the logged events applied, or null if neither has anything
+     * for the player
+     */
+    private TransmutationKnowledge readStoredKnowledge(UUID playerUUID)
+    {
+        TransmutationKnowledge transmutationKnowledge = null;
+        SegmentEntry segmentEntry = segmentIndex.get(playerUUID);
+
+        if (segmentEntry != null)
+        {
+            try
+            {
+                transmutationKnowledge = readKnowledge(readBlock(segmentEntry));
+            }
+            catch (IOException e)
+            {
+                LogHelper.error(String.format("Failed to read transmutation knowledge of player %s from %s", playerUUID, segmentFile.getAbsolutePath()));
+                e.printStackTrace();
+            }
+        }
+
+        List<KnowledgeEvent> events = pendingEvents.get(playerUUID);
+
+        if (transmutationKnowledge == null && events == null)
+        {
+            return null;
+        }
+
+        if (transmutationKnowledge == null)
+        {
+            transmutationKnowledge = new TransmutationKnowledge();
+        }
+
+        return replay(transmutationKnowledge, events);
+    }
+
+    @Override
+    public synchronized void save(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        if (transmutationKnowledge != null && transmutationKnowledge.hasBeenModified())
+        {
+            appendSnapshot(playerUUID, transmutationKnowledge);
+            finishAppend();
+        }
+    }
+
+    /**
+     * Logs only the changed transmutations, as learn/forget events, and a snapshot only if everything changed
+     */
+    @Override
+    public synchronized void saveChanges(UUID playerUUID, TransmutationKnowledge transmutationKnowledge, PlayerKnowledgeChanges changes)
+    {
+        if (transmutationKnowledge != null && transmutationKnowledge.hasBeenModified())
+        {
+            if (changes.areAllChanged())
+            {
+                appendSnapshot(playerUUID, transmutationKnowledge);
+            }
+            else
+            {
+                for (ItemStack itemStack : changes.getChangedTransmutations())
+                {
+                    appendChange(playerUUID, itemStack, transmutationKnowledge);
+                }
+            }
+
+            transmutationKnowledge.markAsSaved();
+            finishAppend();
+        }
+    }
+
+    @Override
+    public synchronized void recordLearn(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        appendChange(playerUUID, itemStack, transmutationKnowledge);
+        finishAppend();
+    }
+
+    @Override
+    public synchronized void recordForget(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        appendChange(playerUUID, itemStack, transmutationKnowledge);
+        finishAppend();
+    }
+
+    @Override
+    public synchronized void recordForgetAll(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        // Knowledge based on the template has forgotten each of the template's transmutations
+        appendSnapshot(playerUUID, transmutationKnowledge);
+        finishAppend();
+    }
+
+    @Override
+    public synchronized void visitAll(Visitor visitor)
+    {
+        Set<UUID> visitedPlayers = new HashSet<UUID>();
+
+        for (Map.Entry<UUID, SegmentEntry> entry : segmentIndex.entrySet())
+        {
+            try
+            {
+                TransmutationKnowledge transmutationKnowledge = replay(readKnowledge(readBlock(entry.getValue())), pendingEvents.get(entry.getKey()));
+                visitor.visit(entry.getKey(), transmutationKnowledge);
+                visitedPlayers.add(entry.getKey());
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        for (Map.Entry<UUID, List<KnowledgeEvent>> entry : pendingEvents.entrySet())
+        {
+            if (visitedPlayers.add(entry.getKey()))
+            {
+                visitor.visit(entry.getKey(), replay(new TransmutationKnowledge(), entry.getValue()));
+            }
+        }
+
+        File[] legacyFiles = directory.listFiles();
+
+        if (legacyFiles != null)
+        {
+            for (File legacyFile : legacyFiles)
+            {
+                String fileName = legacyFile.getName();
+
+                if (legacyFile.isFile() && fileName.endsWith(LEGACY_FILE_EXTENSION))
+                {
+                    try
+                    {
+                        UUID playerUUID = UUID.fromString(fileName.substring(0, fileName.length() - LEGACY_FILE_EXTENSION.length()));
+
+                        if (!visitedPlayers.contains(playerUUID))
+                        {
+                            TransmutationKnowledge transmutationKnowledge = SerializationHelper.readTransmutationKnowledgeFromFile(directory, fileName);
+
+                            if (transmutationKnowledge != null)
+                            {
+                                visitor.visit(playerUUID, transmutationKnowledge);
+                            }
+                        }
+                    }
+                    catch (IllegalArgumentException ignored)
+                    {
+                        // Not a player knowledge file
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        while (compacting)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        compact();
+        closeLogOutputStream();
+        closeSegmentReader();
+        closed = true;
+    }
+
+    /**
+     * Merges all logged events into a new segment file and truncates the log. The new segment is written without holding
+     * the lock of the store, so the server thread can keep loading and logging knowledge meanwhile; whatever is logged in
+     * the meantime is carried over into the truncated log.
+     */
+    public void compact()
+    {
+        Map<UUID, SegmentEntry> compactedSegmentIndex;
+        Map<UUID, List<KnowledgeEvent>> compactedEvents;
+        long compactedLogLength;
+
+        synchronized (this)
+        {
+            compactionScheduled = false;
+
+            if (closed || compacting || pendingEvents.isEmpty())
+            {
+                return;
+            }
+
+            compactedSegmentIndex = new LinkedHashMap<UUID, SegmentEntry>(segmentIndex);
+            compactedEvents = new HashMap<UUID, List<KnowledgeEvent>>();
+            for (Map.Entry<UUID, List<KnowledgeEvent>> entry : pendingEvents.entrySet())
+            {
+                compactedEvents.put(entry.getKey(), new ArrayList<KnowledgeEvent>(entry.getValue()));
+            }
+
+            compactedLogLength = logLength;
+            compacting = true;
+        }
+
+        long startTime = System.currentTimeMillis();
+        File tempFile = new File(directory, Files.KNOWLEDGE_SEGMENT_FILE + ".tmp");
+        int compactedPlayerCount = -1;
+
+        try
+        {
+            compactedPlayerCount = writeSegment(tempFile, compactedSegmentIndex, compactedEvents);
+        }
+        catch (IOException e)
+        {
+            tempFile.delete();
+            LogHelper.error(String.format("Failed to compact transmutation knowledge log %s", logFile.getAbsolutePath()));
+            e.printStackTrace();
+        }
+
+        synchronized (this)
+        {
+            try
+            {
+                if (compactedPlayerCount >= 0 && swapSegment(tempFile, compactedLogLength))
+                {
+                    LogHelper.info(String.format("Compacted transmutation knowledge of %s players in %s ms", compactedPlayerCount, System.currentTimeMillis() - startTime));
+                }
+            }
+            finally
+            {
+                compacting = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes the segment blocks of the compacted index with the compacted events applied, followed by the index of the
+     * new segment. Reads the current segment through its own file handle, as the store's reader is only used under lock.
+     *
+     * @return the number of players in the new segment
+     */
+    private int writeSegment(File tempFile, Map<UUID, SegmentEntry> compactedSegmentIndex, Map<UUID, List<KnowledgeEvent>> compactedEvents) throws IOException
+    {
+        Map<UUID, SegmentEntry> newSegmentIndex = new LinkedHashMap<UUID, SegmentEntry>();
+        RandomAccessFile compactionReader = compactedSegmentIndex.isEmpty() ? null : new RandomAccessFile(segmentFile, "r");
+        CountingOutputStream countingOutputStream = new CountingOutputStream(new BufferedOutputStream(new SyncedFileOutputStream(tempFile)));
+        DataOutputStream dataOutputStream = new DataOutputStream(countingOutputStream);
+
+        try
+        {
+            // Segment entries are kept in file order, so the old segment is read sequentially
+            for (Map.Entry<UUID, SegmentEntry> entry : compactedSegmentIndex.entrySet())
+            {
+                byte[] block = readBlock(compactionReader, entry.getValue());
+                List<KnowledgeEvent> events = compactedEvents.get(entry.getKey());
+                long offset = countingOutputStream.getCount();
+
+                if (events == null)
+                {
+                    dataOutputStream.write(block);
+                }
+                else
+                {
+                    writeKnowledge(dataOutputStream, replay(readKnowledge(block), events));
+                }
+
+                newSegmentIndex.put(entry.getKey(), new SegmentEntry(offset, (int) (countingOutputStream.getCount() - offset)));
+            }
+
+            for (Map.Entry<UUID, List<KnowledgeEvent>> entry : compactedEvents.entrySet())
+            {
+                if (!compactedSegmentIndex.containsKey(entry.getKey()))
+                {
+                    long offset = countingOutputStream.getCount();
+                    writeKnowledge(dataOutputStream, replay(new TransmutationKnowledge(), entry.getValue()));
+                    newSegmentIndex.put(entry.getKey(), new SegmentEntry(offset, (int) (countingOutputStream.getCount() - offset)));
+                }
+            }
+
+            long indexOffset = countingOutputStream.getCount();
+            dataOutputStream.writeInt(newSegmentIndex.size());
+            for (Map.Entry<UUID, SegmentEntry> entry : newSegmentIndex.entrySet())
+            {
+                dataOutputStream.writeLong(entry.getKey().getMostSignificantBits());
+                dataOutputStream.writeLong(entry.getKey().getLeastSignificantBits());
+                dataOutputStream.writeLong(entry.getValue().offset);
+                dataOutputStream.writeInt(entry.getValue().length);
+            }
+            dataOutputStream.writeLong(indexOffset);
+            dataOutputStream.writeInt(SEGMENT_MAGIC);
+        }
+        finally
+        {
+            dataOutputStream.close();
+
+            if (compactionReader != null)
+            {
+                compactionReader.close();
+            }
+        }
+
+        return newSegmentIndex.size();
+    }
+
+    /**
+     * Replaces the segment with the compacted one and drops the first part of the log, which the compacted segment
+     * already contains. Must be called with the lock of the store held.
+     *
+     * @return whether the log was truncated
+     */
+    private boolean swapSegment(File tempFile, long compactedLogLength)
+    {
+        closeLogOutputStream();
+        closeSegmentReader();
+
+        try
+        {
+            SerializationHelper.replaceFile(tempFile, segmentFile);
+        }
+        catch (IOException e)
+        {
+            tempFile.delete();
+            LogHelper.error(String.format("Failed to replace transmutation knowledge segment %s", segmentFile.getAbsolutePath()));
+            e.printStackTrace();
+            openSegment();
+            return false;
+        }
+
+        openSegment();
+
+        try
+        {
+            truncateLog(compactedLogLength);
+        }
+        catch (IOException e)
+        {
+            // Every event is still in the log and in memory, and replaying them onto the new segment changes nothing
+            LogHelper.error(String.format("Failed to truncate transmutation knowledge log %s", logFile.getAbsolutePath()));
+            e.printStackTrace();
+            return false;
+        }
+
+        pendingEvents.clear();
+        pendingEventCount = 0;
+        replayLog();
+        return true;
+    }
+
+    /**
+     * Replaces the log with the events logged after the given position
+     */
+    private void truncateLog(long position) throws IOException
+    {
+        File tempFile = new File(directory, Files.KNOWLEDGE_LOG_FILE + ".tmp");
+        byte[] remainingEvents = new byte[0];
+
+        if (logFile.isFile())
+        {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "r");
+
+            try
+            {
+                remainingEvents = new byte[(int) Math.max(0, randomAccessFile.length() - Math.max(position, LOG_HEADER_SIZE))];
+                randomAccessFile.seek(Math.max(position, LOG_HEADER_SIZE));
+                randomAccessFile.readFully(remainingEvents);
+            }
+            finally
+            {
+                randomAccessFile.close();
+            }
+        }
+
+        DataOutputStream outputStream = new DataOutputStream(new SyncedFileOutputStream(tempFile));
+
+        try
+        {
+            outputStream.writeInt(LOG_MAGIC);
+            outputStream.write(remainingEvents);
+        }
+        finally
+        {
+            outputStream.close();
+        }
+
+        SerializationHelper.replaceFile(tempFile, logFile);
+    }
+
+    private void openSegment()
+    {
+        closeSegmentReader();
+        segmentIndex.clear();
+
+        if (!segmentFile.isFile())
+        {
+            return;
+        }
+
+        try
+        {
+            segmentReader = new RandomAccessFile(segmentFile, "r");
+            long segmentLength = segmentReader.length();
+
+            if (segmentLength < SEGMENT_TRAILER_SIZE)
+            {
+                throw new IOException("Segment file is truncated");
+            }
+
+            segmentReader.seek(segmentLength - SEGMENT_TRAILER_SIZE);
+            long indexOffset = segmentReader.readLong();
+
+            if (segmentReader.readInt() != SEGMENT_MAGIC || indexOffset < 0 || indexOffset > segmentLength - SEGMENT_TRAILER_SIZE)
+            {
+                throw new IOException("Segment file has an invalid trailer");
+            }
+
+            byte[] index = new byte[(int) (segmentLength - SEGMENT_TRAILER_SIZE - indexOffset)];
+            segmentReader.seek(indexOffset);
+            segmentReader.readFully(index);
+
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(index));
+            int playerCount = dataInputStream.readInt();
+            for (int i = 0; i < playerCount; i++)
+            {
+                UUID playerUUID = new UUID(dataInputStream.readLong(), dataInputStream.readLong());
+                segmentIndex.put(playerUUID, new SegmentEntry(dataInputStream.readLong(), dataInputStream.readInt()));
+            }
+        }
+        catch (IOException e)
+        {
+            LogHelper.error(String.format("Failed to read transmutation knowledge segment %s", segmentFile.getAbsolutePath()));
+            e.printStackTrace();
+            segmentIndex.clear();
+            closeSegmentReader();
+        }
+    }
+
+    private void replayLog()
+    {
+        logLength = 0;
+
+        if (!logFile.isFile())
+        {
+            return;
+        }
+
+        byte[] log;
+
+        try
+        {
+            log = readLogFile();
+        }
+        catch (IOException e)
+        {
+            LogHelper.error(String.format("Failed to replay transmutation knowledge log %s", logFile.getAbsolutePath()));
+            e.printStackTrace();
+            quarantineLog(0);
+            return;
+        }
+
+        if (log.length < LOG_HEADER_SIZE || readInt(log, 0) != LOG_MAGIC)
+        {
+            replayLegacyLog(log);
+            return;
+        }
+
+        int position = LOG_HEADER_SIZE;
+        int skippedRecordCount = 0;
+
+        while (position + RECORD_HEADER_SIZE <= log.length)
+        {
+            int recordLength = readInt(log, position);
+
+            // Without a valid length there is no telling where the next record starts
+            if (recordLength <= 0 || recordLength > log.length - position - RECORD_HEADER_SIZE)
+            {
+                break;
+            }
+
+            try
+            {
+                if (!isChecksumValid(log, position + RECORD_HEADER_SIZE, recordLength, readInt(log, position + 4)))
+                {
+                    throw new IOException("Record checksum does not match");
+                }
+
+                DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(log, position + RECORD_HEADER_SIZE, recordLength));
+                UUID playerUUID = new UUID(dataInputStream.readLong(), dataInputStream.readLong());
+                addPendingEvent(playerUUID, readEvent(dataInputStream));
+                pendingEventCount++;
+            }
+            catch (IOException e)
+            {
+                skippedRecordCount++;
+            }
+
+            position += RECORD_HEADER_SIZE + recordLength;
+        }
+
+        if (skippedRecordCount > 0)
+        {
+            LogHelper.error(String.format("Skipped %s damaged records of transmutation knowledge log %s", skippedRecordCount, logFile.getAbsolutePath()));
+        }
+
+        logLength = position;
+
+        if (position < log.length)
+        {
+            quarantineLog(position);
+        }
+    }
+
+    /**
+     * Replays a log written before records had a length and checksum, and rewrites it in the current format
+     */
+    private void replayLegacyLog(byte[] log)
+    {
+        CountingInputStream countingInputStream = new CountingInputStream(new ByteArrayInputStream(log));
+        DataInputStream dataInputStream = new DataInputStream(countingInputStream);
+        long validLength = 0;
+
+        try
+        {
+            while (true)
+            {
+                UUID playerUUID = new UUID(dataInputStream.readLong(), dataInputStream.readLong());
+                addPendingEvent(playerUUID, readEvent(dataInputStream));
+                pendingEventCount++;
+                validLength = countingInputStream.getCount();
+            }
+        }
+        catch (IOException ignored)
+        {
+            // End of the log, or a record that was only partially written
+        }
+
+        File tempFile = new File(directory, Files.KNOWLEDGE_LOG_FILE + ".tmp");
+
+        try
+        {
+            DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new SyncedFileOutputStream(tempFile)));
+
+            try
+            {
+                dataOutputStream.writeInt(LOG_MAGIC);
+
+                for (Map.Entry<UUID, List<KnowledgeEvent>> entry : pendingEvents.entrySet())
+                {
+                    for (KnowledgeEvent event : entry.getValue())
+                    {
+                        dataOutputStream.write(createRecord(entry.getKey(), event));
+                    }
+                }
+            }
+            finally
+            {
+                dataOutputStream.close();
+            }
+
+            if (validLength < log.length)
+            {
+                quarantineLog(validLength);
+            }
+
+            SerializationHelper.replaceFile(tempFile, logFile);
+            logLength = logFile.length();
+        }
+        catch (IOException e)
+        {
+            // The events are kept in memory and go into the segment with the next compaction
+            tempFile.delete();
+            LogHelper.error(String.format("Failed to convert transmutation knowledge log %s", logFile.getAbsolutePath()));
+            e.printStackTrace();
+            quarantineLog(0);
+        }
+    }
+
+    private byte[] readLogFile() throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "r");
+
+        try
+        {
+            byte[] log = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(log);
+            return log;
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Moves everything in the log from the given position on to a separate file, so it can be looked into rather than
+     * being lost, and cuts the log back to that position
+     */
+    private void quarantineLog(long position)
+    {
+        File corruptLogFile = new File(directory, Files.KNOWLEDGE_LOG_FILE + CORRUPT_LOG_EXTENSION);
+
+        try
+        {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw");
+
+            try
+            {
+                byte[] unreadableEvents = new byte[(int) Math.max(0, randomAccessFile.length() - position)];
+                randomAccessFile.seek(position);
+                randomAccessFile.readFully(unreadableEvents);
+
+                OutputStream outputStream = new FileOutputStream(corruptLogFile, true);
+
+                try
+                {
+                    outputStream.write(unreadableEvents);
+                }
+                finally
+                {
+                    outputStream.close();
+                }
+
+                LogHelper.error(String.format("Moved %s unreadable bytes of transmutation knowledge log %s to %s", unreadableEvents.length, logFile.getAbsolutePath(), corruptLogFile.getAbsolutePath()));
+                randomAccessFile.setLength(position);
+            }
+            finally
+            {
+                randomAccessFile.close();
+            }
+        }
+        catch (IOException e)
+        {
+            LogHelper.error(String.format("Failed to move the unreadable part of transmutation knowledge log %s", logFile.getAbsolutePath()));
+            e.printStackTrace();
+        }
+    }
+
+    private TransmutationKnowledge importLegacyKnowledge(UUID playerUUID)
+    {
+        String fileName = playerUUID.toString() + LEGACY_FILE_EXTENSION;
+
+        if (new File(directory, fileName).isFile())
+        {
+            TransmutationKnowledge transmutationKnowledge = SerializationHelper.readTransmutationKnowledgeFromFile(directory, fileName);
+
+            if (transmutationKnowledge != null)
+            {
+                appendSnapshot(playerUUID, transmutationKnowledge);
+                finishAppend();
+                return transmutationKnowledge;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Logs the complete knowledge of the player; for knowledge based on the template only its differences to the template,
+     * so it is never resolved (and the template never read) here
+     */
+    private void appendSnapshot(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        appendEvent(playerUUID, new KnowledgeEvent(transmutationKnowledge.isBasedOnTemplate() ? EVENT_BASE_ON_TEMPLATE : EVENT_FORGET_ALL, null));
+
+        for (ItemStack itemStack : transmutationKnowledge.getTransmutationsKnownOnTopOfTemplate())
+        {
+            appendEvent(playerUUID, new KnowledgeEvent(EVENT_LEARN, itemStack));
+        }
+
+        if (transmutationKnowledge.isBasedOnTemplate())
+        {
+            for (ItemStack itemStack : transmutationKnowledge.getTransmutationsForgottenFromTemplate())
+            {
+                appendEvent(playerUUID, new KnowledgeEvent(EVENT_FORGET_FROM_TEMPLATE, itemStack));
+            }
+        }
+
+        transmutationKnowledge.markAsSaved();
+    }
+
+    /**
+     * Logs how the transmutation now differs from the template. Players that have nothing stored yet get a complete
+     * snapshot instead, so whether they are based on the template is stored as well.
+     */
+    private void appendChange(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        if (!segmentIndex.containsKey(playerUUID) && !pendingEvents.containsKey(playerUUID))
+        {
+            appendSnapshot(playerUUID, transmutationKnowledge);
+            return;
+        }
+
+        byte type = EVENT_FORGET;
+
+        if (transmutationKnowledge.isKnownOnTopOfTemplate(itemStack))
+        {
+            type = EVENT_LEARN;
+        }
+        else if (transmutationKnowledge.isForgottenFromTemplate(itemStack))
+        {
+            type = EVENT_FORGET_FROM_TEMPLATE;
+        }
+
+        appendEvent(playerUUID, new KnowledgeEvent(type, itemStack));
+        transmutationKnowledge.markAsSaved();
+    }
+
+    private void appendEvent(UUID playerUUID, KnowledgeEvent event)
+    {
+        // Checked up front, so an item that is no longer registered cannot leave a partially written record behind
+        if (hasItemStack(event.type) && getItemName(event.itemStack) == null)
+        {
+            LogHelper.warn(String.format("Not logging transmutation knowledge of player %s for an item that is not registered", playerUUID));
+            return;
+        }
+
+        try
+        {
+            // Buffered until the save is finished, so its records reach the log in one write
+            logBuffer.write(createRecord(playerUUID, event));
+            bufferedPlayers.add(playerUUID);
+        }
+        catch (IOException e)
+        {
+            LogHelper.error(String.format("Failed to log transmutation knowledge of player %s", playerUUID));
+            e.printStackTrace();
+            return;
+        }
+
+        addPendingEvent(playerUUID, event);
+        pendingEventCount++;
+    }
+
+    /**
+     * @return the event as a log record: its length and checksum, followed by the player and the event
+     */
+    private byte[] createRecord(UUID playerUUID, KnowledgeEvent event) throws IOException
+    {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(payload);
+        dataOutputStream.writeLong(playerUUID.getMostSignificantBits());
+        dataOutputStream.writeLong(playerUUID.getLeastSignificantBits());
+        writeEvent(dataOutputStream, event);
+
+        byte[] payloadBytes = payload.toByteArray();
+        recordChecksum.reset();
+        recordChecksum.update(payloadBytes, 0, payloadBytes.length);
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(RECORD_HEADER_SIZE + payloadBytes.length);
+        DataOutputStream recordOutputStream = new DataOutputStream(record);
+        recordOutputStream.writeInt(payloadBytes.length);
+        recordOutputStream.writeInt((int) recordChecksum.getValue());
+        recordOutputStream.write(payloadBytes);
+        return record.toByteArray();
+    }
+
+    private boolean isChecksumValid(byte[] log, int offset, int length, int checksum)
+    {
+        recordChecksum.reset();
+        recordChecksum.update(log, offset, length);
+        return (int) recordChecksum.getValue() == checksum;
+    }
+
+    private static int readInt(byte[] bytes, int offset)
+    {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private void finishAppend()
+    {
+        // Players whose records could not be written before are logged as a whole, from what the store holds in memory
+        if (!unloggedPlayers.isEmpty())
+        {
+            for (UUID playerUUID : new ArrayList<UUID>(unloggedPlayers))
+            {
+                TransmutationKnowledge transmutationKnowledge = readStoredKnowledge(playerUUID);
+
+                if (transmutationKnowledge != null)
+                {
+                    appendSnapshot(playerUUID, transmutationKnowledge);
+                }
+            }
+
+            unloggedPlayers.clear();
+        }
+
+        writeLogBuffer();
+
+        if (pendingEventCount >= COMPACTION_THRESHOLD && !compactionScheduled)
+        {
+            compactionScheduled = true;
+
+            AsyncIOHelper.submit("compact knowledge log", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    compact();
+                }
+            });
+        }
+    }
+
+    private void addPendingEvent(UUID playerUUID, KnowledgeEvent event)
+    {
+        List<KnowledgeEvent> events = pendingEvents.get(playerUUID);
+
+        if (events == null)
+        {
+            events = new ArrayList<KnowledgeEvent>();
+            pendingEvents.put(playerUUID, events);
+        }
+        else if (!hasItemStack(event.type))
+        {
+            // Everything logged before starting over no longer matters
+            events.clear();
+        }
+
+        events.add(event);
+    }
+
+    /**
+     * Writes the buffered records to the log in one call. If that fails, the log is cut back to the end of the last
+     * records written, so no partial record is left in it, and the players are logged as a whole with the next save.
+     */
+    private void writeLogBuffer()
+    {
+        if (logBuffer.size() == 0)
+        {
+            return;
+        }
+
+        try
+        {
+            logBuffer.writeTo(getLogOutputStream());
+            logLength += logBuffer.size();
+        }
+        catch (IOException e)
+        {
+            LogHelper.error(String.format("Failed to append to transmutation knowledge log %s", logFile.getAbsolutePath()));
+            e.printStackTrace();
+
+            unloggedPlayers.addAll(bufferedPlayers);
+            closeLogOutputStream();
+            cutLogBack();
+        }
+        finally
+        {
+            logBuffer.reset();
+            bufferedPlayers.clear();
+        }
+    }
+
+    private FileOutputStream getLogOutputStream() throws IOException
+    {
+        if (logOutputStream == null)
+        {
+            if (logLength < LOG_HEADER_SIZE)
+            {
+                DataOutputStream dataOutputStream = new DataOutputStream(new FileOutputStream(logFile));
+
+                try
+                {
+                    dataOutputStream.writeInt(LOG_MAGIC);
+                }
+                finally
+                {
+                    dataOutputStream.close();
+                }
+
+                logLength = LOG_HEADER_SIZE;
+            }
+            else if (logFile.length() != logLength)
+            {
+                cutLogBack();
+            }
+
+            logOutputStream = new FileOutputStream(logFile, true);
+        }
+
+        return logOutputStream;
+    }
+
+    private void cutLogBack()
+    {
+        try
+        {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw");
+
+            try
+            {
+                randomAccessFile.setLength(logLength);
+            }
+            finally
+            {
+                randomAccessFile.close();
+            }
+        }
+        catch (IOException e)
+        {
+            LogHelper.error(String.format("Failed to cut transmutation knowledge log %s back to %s bytes", logFile.getAbsolutePath(), logLength));
+            e.printStackTrace();
+        }
+    }
+
+    private void closeLogOutputStream()
+    {
+        if (logOutputStream != null)
+        {
+            try
+            {
+                logOutputStream.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+
+            logOutputStream = null;
+        }
+    }
+
+    private void closeSegmentReader()
+    {
+        if (segmentReader != null)
+        {
+            try
+            {
+                segmentReader.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+
+            segmentReader = null;
+        }
+    }
+
+    private byte[] readBlock(SegmentEntry segmentEntry) throws IOException
+    {
+        return readBlock(segmentReader, segmentEntry);
+    }
+
+    private static byte[] readBlock(RandomAccessFile reader, SegmentEntry segmentEntry) throws IOException
+    {
+        if (reader == null)
+        {
+            throw new IOException("Segment file is not open");
+        }
+
+        byte[] block = new byte[segmentEntry.length];
+        reader.seek(segmentEntry.offset);
+        reader.readFully(block);
+        return block;
+    }
+
+    /**
+     * @return the knowledge with the events applied, which is a new instance if the events start over
+     */
+    private static TransmutationKnowledge replay(TransmutationKnowledge transmutationKnowledge, List<KnowledgeEvent> events)
+    {
+        if (events != null)
+        {
+            for (KnowledgeEvent event : events)
+            {
+                if (event.type == EVENT_FORGET_ALL)
+                {
+                    transmutationKnowledge = new TransmutationKnowledge();
+                }
+                else if (event.type == EVENT_BASE_ON_TEMPLATE)
+                {
+                    transmutationKnowledge = TransmutationKnowledge.createFromTemplate(null);
+                }
+                else if (event.itemStack != null)
+                {
+                    transmutationKnowledge.setTemplateDifferences(event.itemStack, event.type == EVENT_LEARN, event.type == EVENT_FORGET_FROM_TEMPLATE);
+                }
+            }
+        }
+
+        return transmutationKnowledge;
+    }
+
+    private static TransmutationKnowledge readKnowledge(byte[] block) throws IOException
+    {
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(block));
+        int itemCount = dataInputStream.readInt();
+
+        if (itemCount == BLOCK_TEMPLATE_DIFFERENCES)
+        {
+            List<ItemStack> knownItemStacks = readItemStacks(dataInputStream, dataInputStream.readInt());
+            List<ItemStack> forgottenItemStacks = readItemStacks(dataInputStream, dataInputStream.readInt());
+            return TransmutationKnowledge.createFromTemplateDifferences(knownItemStacks, forgottenItemStacks);
+        }
+
+        return new TransmutationKnowledge(readItemStacks(dataInputStream, itemCount));
+    }
+
+    private static List<ItemStack> readItemStacks(DataInputStream dataInputStream, int itemCount) throws IOException
+    {
+        List<ItemStack> itemStacks = new ArrayList<ItemStack>(itemCount);
+
+        for (int i = 0; i < itemCount; i++)
+        {
+            ItemStack itemStack = readItemStack(dataInputStream);
+
+            if (itemStack != null)
+            {
+                itemStacks.add(itemStack);
+            }
+        }
+
+        return itemStacks;
+    }
+
+    /**
+     * Writes the knowledge without resolving it against the template, so it is safe to call off the server thread
+     */
+    private static void writeKnowledge(DataOutputStream dataOutputStream, TransmutationKnowledge transmutationKnowledge) throws IOException
+    {
+        if (transmutationKnowledge.isBasedOnTemplate())
+        {
+            dataOutputStream.writeInt(BLOCK_TEMPLATE_DIFFERENCES);
+            writeItemStacks(dataOutputStream, getWritableItemStacks(transmutationKnowledge.getTransmutationsKnownOnTopOfTemplate()));
+            writeItemStacks(dataOutputStream, getWritableItemStacks(transmutationKnowledge.getTransmutationsForgottenFromTemplate()));
+        }
+        else
+        {
+            writeItemStacks(dataOutputStream, getWritableItemStacks(transmutationKnowledge.getKnownTransmutations()));
+        }
+    }
+
+    private static void writeItemStacks(DataOutputStream dataOutputStream, List<ItemStack> itemStacks) throws IOException
+    {
+        dataOutputStream.writeInt(itemStacks.size());
+
+        for (ItemStack itemStack : itemStacks)
+        {
+            writeItemStack(dataOutputStream, itemStack);
+        }
+    }
+
+    /**
+     * @return the item stacks whose items are (still) registered, and can therefore be written
+     */
+    private static List<ItemStack> getWritableItemStacks(Collection<ItemStack> itemStacks)
+    {
+        List<ItemStack> writableItemStacks = new ArrayList<ItemStack>(itemStacks.size());
+
+        for (ItemStack itemStack : itemStacks)
+        {
+            if (getItemName(itemStack) != null)
+            {
+                writableItemStacks.add(itemStack);
+            }
+        }
+
+        return writableItemStacks;
+    }
+
+    private static KnowledgeEvent readEvent(DataInputStream dataInputStream) throws IOException
+    {
+        byte type = dataInputStream.readByte();
+        return new KnowledgeEvent(type, hasItemStack(type) ? readItemStack(dataInputStream) : null);
+    }
+
+    private static void writeEvent(DataOutputStream dataOutputStream, KnowledgeEvent event) throws IOException
+    {
+        dataOutputStream.writeByte(event.type);
+
+        if (hasItemStack(event.type))
+        {
+            writeItemStack(dataOutputStream, event.itemStack);
+        }
+    }
+
+    private static boolean hasItemStack(byte eventType)
+    {
+        return eventType != EVENT_FORGET_ALL && eventType != EVENT_BASE_ON_TEMPLATE;
+    }
+
+    /**
+     * Items are stored by registry name rather than by id, as ids are not stable across mod list changes
+     */
+    static ItemStack readItemStack(DataInputStream dataInputStream) throws IOException
+    {
+        String itemName = dataInputStream.readUTF();
+        int itemDamage = dataInputStream.readShort();
+        NBTTagCompound itemNBTTagCompound = dataInputStream.readBoolean() ? CompressedStreamTools.read(dataInputStream) : null;
+
+        Item item = (Item) Item.itemRegistry.getObject(itemName);
+        if (item != null)
+        {
+            ItemStack itemStack = new ItemStack(item, 1, itemDamage);
+            itemStack.stackTagCompound = itemNBTTagCompound;
+            return itemStack;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the registry name the item stack is stored under, or null if its item is not registered (e.g. because the
+     * mod adding it has been removed)
+     */
+    static String getItemName(ItemStack itemStack)
+    {
+        if (itemStack != null && itemStack.getItem() != null)
+        {
+            return Item.itemRegistry.getNameForObject(itemStack.getItem());
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the item stack, or throws before writing anything if its item is not registered. Callers that must not
+     * fail part way through a record check {@link #getItemName} first.
+     */
+    static void writeItemStack(DataOutputStream dataOutputStream, ItemStack itemStack) throws IOException
+    {
+        String itemName = getItemName(itemStack);
+
+        if (itemName == null)
+        {
+            throw new IOException("Item stack has no registered item");
+        }
+
+        dataOutputStream.writeUTF(itemName);
+        dataOutputStream.writeShort(itemStack.getItemDamage());
+        dataOutputStream.writeBoolean(itemStack.stackTagCompound != null);
+
+        if (itemStack.stackTagCompound != null)
+        {
+            CompressedStreamTools.write(itemStack.stackTagCompound, dataOutputStream);
+        }
+    }
+
+    private static final class SegmentEntry
+    {
+        private final long offset;
+        private final int length;
+
+        private SegmentEntry(long offset, int length)
+        {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class KnowledgeEvent
+    {
+        private final byte type;
+        private final ItemStack itemStack;
+
+        private KnowledgeEvent(byte type, ItemStack itemStack)
+        {
+            this.type = type;
+
+            if (itemStack != null)
+            {
+                this.itemStack = itemStack.copy();
+                this.itemStack.stackSize = 1;
+            }
+            else
+            {
+                this.itemStack = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.pahimar.ee3.knowledge;
+
+import java.util.*;
+
+/**
+ * A thread safe, size and age bounded cache of loaded player knowledge, ordered from least to most recently used.
+ * <p/>
+ * Entries are never evicted implicitly; the owner calls {@link #evict} periodically and is responsible for persisting
+ * any evicted knowledge that has been modified.
+ */
+public class PlayerKnowledgeCache
+{
+    private final LinkedHashMap<UUID, CacheEntry> entries;
+    private final int maxSize;
+    private final long maxIdleMillis;
+
+    public PlayerKnowledgeCache(int maxSize, long maxIdleMillis)
+    {
+        this.entries = new LinkedHashMap<UUID, CacheEntry>(16, 0.75f, true);
+        this.maxSize = maxSize;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    public synchronized boolean contains(UUID playerUUID)
+    {
+        return entries.containsKey(playerUUID);
+    }
+
+    public synchronized TransmutationKnowledge get(UUID playerUUID)
+    {
+        CacheEntry cacheEntry = entries.get(playerUUID);
+
+        if (cacheEntry != null)
+        {
+            cacheEntry.lastAccessTime = System.currentTimeMillis();
+            return cacheEntry.transmutationKnowledge;
+        }
+
+        return null;
+    }
+
+    public synchronized void put(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        entries.put(playerUUID, new CacheEntry(transmutationKnowledge));
+    }
+
+    /**
+     * @return the knowledge already cached for the player, or null if the supplied knowledge was added
+     */
+    public synchronized TransmutationKnowledge putIfAbsent(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        CacheEntry cacheEntry = entries.get(playerUUID);
+
+        if (cacheEntry != null)
+        {
+            return cacheEntry.transmutationKnowledge;
+        }
+
+        entries.put(playerUUID, new CacheEntry(transmutationKnowledge));
+        return null;
+    }
+
+    public synchronized TransmutationKnowledge remove(UUID playerUUID)
+    {
+        CacheEntry cacheEntry = entries.remove(playerUUID);
+        return cacheEntry != null ? cacheEntry.transmutationKnowledge : null;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return a copy of the cached knowledge, keyed by player
+     */
+    public synchronized Map<UUID, TransmutationKnowledge> asMap()
+    {
+        Map<UUID, TransmutationKnowledge> knowledgeMap = new LinkedHashMap<UUID, TransmutationKnowledge>();
+
+        for (Map.Entry<UUID, CacheEntry> entry : entries.entrySet())
+        {
+            knowledgeMap.put(entry.getKey(), entry.getValue().transmutationKnowledge);
+        }
+
+        return knowledgeMap;
+    }
+
+    /**
+     * Removes the entries that have not been used for longer than the maximum idle time, followed by the least recently
+     * used ones until the cache is within its maximum size. Retained players (e.g. those that are online) are never
+     * removed.
+     *
+     * @return the removed knowledge, keyed by player
+     */
+    public synchronized Map<UUID, TransmutationKnowledge> evict(Collection<UUID> retainedPlayers)
+    {
+        Map<UUID, TransmutationKnowledge> evictedKnowledge = new LinkedHashMap<UUID, TransmutationKnowledge>();
+        long currentTime = System.currentTimeMillis();
+        int excessEntries = entries.size() - maxSize;
+
+        Iterator<Map.Entry<UUID, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<UUID, CacheEntry> entry = iterator.next();
+            boolean isIdle = currentTime - entry.getValue().lastAccessTime > maxIdleMillis;
+
+            // Entries are in access order, so once one is neither idle nor in excess, neither are the ones after it
+            if (!isIdle && excessEntries <= 0)
+            {
+                break;
+            }
+
+            if (!retainedPlayers.contains(entry.getKey()))
+            {
+                evictedKnowledge.put(entry.getKey(), entry.getValue().transmutationKnowledge);
+                iterator.remove();
+                excessEntries--;
+            }
+        }
+
+        return evictedKnowledge;
+    }
+
+    private static final class CacheEntry
+    {
+        private final TransmutationKnowledge transmutationKnowledge;
+        private long lastAccessTime;
+
+        private CacheEntry(TransmutationKnowledge transmutationKnowledge)
+        {
+            this.transmutationKnowledge = transmutationKnowledge;
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.pahimar.ee3.knowledge;
+
+import net.minecraft.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The transmutations whose knowledge changed for a player since it was last handed to the store, coalesced per
+ * transmutation (by its {@link TransmutationKnowledgeIndex} index), so learning and forgetting the same transmutation
+ * between two flushes is written once, and only with its final state.
+ */
+public class PlayerKnowledgeChanges
+{
+    private final BitSet changedTransmutations = new BitSet();
+    private boolean allChanged;
+
+    public void recordChange(ItemStack itemStack)
+    {
+        int index = TransmutationKnowledgeIndex.getOrAssignIndex(itemStack);
+
+        if (!allChanged && index >= 0)
+        {
+            changedTransmutations.set(index);
+        }
+    }
+
+    /**
+     * Records that the knowledge has to be stored as a whole, e.g. because everything was forgotten
+     */
+    public void recordAllChanged()
+    {
+        allChanged = true;
+        changedTransmutations.clear();
+    }
+
+    public boolean areAllChanged()
+    {
+        return allChanged;
+    }
+
+    public List<ItemStack> getChangedTransmutations()
+    {
+        List<ItemStack> itemStacks = new ArrayList<ItemStack>(changedTransmutations.cardinality());
+
+        for (int index = changedTransmutations.nextSetBit(0); index >= 0; index = changedTransmutations.nextSetBit(index + 1))
+        {
+            itemStacks.add(TransmutationKnowledgeIndex.getItemStack(index));
+        }
+
+        return itemStacks;
+    }
+}
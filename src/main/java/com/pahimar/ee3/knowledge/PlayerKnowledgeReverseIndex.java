@@ -0,0 +1,430 @@
+package com.pahimar.ee3.knowledge;
+
+import com.pahimar.ee3.util.LogHelper;
+import com.pahimar.ee3.util.SerializationHelper;
+import com.pahimar.ee3.util.SyncedFileOutputStream;
+import net.minecraft.item.ItemStack;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Maps every transmutation (by its {@link TransmutationKnowledgeIndex} index) to the players that know it, so questions
+ * like "who can transmute this item" are answered without reading the knowledge of every player.
+ * <p/>
+ * Players are numbered in the order they are first seen, and the players knowing a transmutation are held as a bit set
+ * over those numbers. For players whose knowledge is based on the template, the index also holds which transmutations
+ * they differ from the template in, so a change to the template only touches the players inheriting that transmutation.
+ * The index is kept up to date incrementally by the knowledge registry and only written to disk on a clean shutdown; the file is deleted once it has been read, so after a crash the index is rebuilt from the store instead
+ * of silently missing changes.
+ */
+public class PlayerKnowledgeReverseIndex
+{
+    private static final int FILE_MAGIC = 0x4545334A;
+
+    private final List<UUID> players = new ArrayList<UUID>();
+    private final Map<UUID, Integer> playerNumbers = new HashMap<UUID, Integer>();
+    private final Map<Integer, BitSet> knowingPlayers = new HashMap<Integer, BitSet>();
+    private final BitSet templatePlayers = new BitSet();
+    private final Map<Integer, BitSet> differingPlayers = new HashMap<Integer, BitSet>();
+
+    /**
+     * Builds the index from everything in the store, followed by the supplied knowledge that may not have reached the
+     * store yet (in the order given, so later maps take precedence)
+     */
+    public static PlayerKnowledgeReverseIndex build(IPlayerKnowledgeStore store, final TransmutationKnowledge templateKnowledge, List<Map<UUID, TransmutationKnowledge>> unsavedKnowledge)
+    {
+        long startTime = System.nanoTime();
+        final PlayerKnowledgeReverseIndex reverseIndex = new PlayerKnowledgeReverseIndex();
+
+        store.visitAll(new IPlayerKnowledgeStore.Visitor()
+        {
+            @Override
+            public void visit(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+            {
+                transmutationKnowledge.attachTemplate(templateKnowledge);
+                reverseIndex.recordKnowledge(playerUUID, transmutationKnowledge);
+            }
+        });
+
+        for (Map<UUID, TransmutationKnowledge> knowledgeMap : unsavedKnowledge)
+        {
+            for (Map.Entry<UUID, TransmutationKnowledge> entry : knowledgeMap.entrySet())
+            {
+                reverseIndex.recordKnowledge(entry.getKey(), entry.getValue());
+            }
+        }
+
+        LogHelper.info(String.format("Built the transmutation knowledge index of %s players in %s ms", reverseIndex.players.size(), (System.nanoTime() - startTime) / 1000000F));
+        return reverseIndex;
+    }
+
+    /**
+     * @return the players that know the transmutation, in no particular order
+     */
+    public Set<UUID> getPlayersKnowing(ItemStack itemStack)
+    {
+        Set<UUID> playerUUIDs = new HashSet<UUID>();
+        BitSet playerBits = knowingPlayers.get(TransmutationKnowledgeIndex.indexOf(itemStack));
+
+        if (playerBits != null)
+        {
+            for (int playerNumber = playerBits.nextSetBit(0); playerNumber >= 0; playerNumber = playerBits.nextSetBit(playerNumber + 1))
+            {
+                playerUUIDs.add(players.get(playerNumber));
+            }
+        }
+
+        return playerUUIDs;
+    }
+
+    public boolean contains(UUID playerUUID)
+    {
+        return playerNumbers.containsKey(playerUUID);
+    }
+
+    public int countPlayersKnowing(ItemStack itemStack)
+    {
+        BitSet playerBits = knowingPlayers.get(TransmutationKnowledgeIndex.indexOf(itemStack));
+        return playerBits != null ? playerBits.cardinality() : 0;
+    }
+
+    /**
+     * Records that the player learned the transmutation, given their knowledge after learning it
+     */
+    public void recordLearn(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+
+        if (index >= 0)
+        {
+            int playerNumber = getOrAssignPlayerNumber(playerUUID);
+            getPlayerBits(knowingPlayers, index).set(playerNumber);
+            recordTemplateDifference(playerNumber, index, itemStack, transmutationKnowledge);
+        }
+    }
+
+    /**
+     * Records that the player forgot the transmutation, given their knowledge after forgetting it
+     */
+    public void recordForget(UUID playerUUID, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+
+        if (index >= 0)
+        {
+            int playerNumber = getOrAssignPlayerNumber(playerUUID);
+            getPlayerBits(knowingPlayers, index).clear(playerNumber);
+            recordTemplateDifference(playerNumber, index, itemStack, transmutationKnowledge);
+        }
+    }
+
+    /**
+     * Replaces whatever the index holds for the player with the supplied knowledge
+     */
+    public void recordKnowledge(UUID playerUUID, TransmutationKnowledge transmutationKnowledge)
+    {
+        // Player numbers are never reused, so a newly assigned one has nothing to clear
+        Integer playerNumber = playerNumbers.get(playerUUID);
+        if (playerNumber != null)
+        {
+            clearPlayer(playerNumber);
+        }
+        else
+        {
+            playerNumber = getOrAssignPlayerNumber(playerUUID);
+        }
+
+        BitSet knownTransmutations = transmutationKnowledge.getKnownTransmutationIndices();
+        for (int index = knownTransmutations.nextSetBit(0); index >= 0; index = knownTransmutations.nextSetBit(index + 1))
+        {
+            getPlayerBits(knowingPlayers, index).set(playerNumber);
+        }
+
+        if (transmutationKnowledge.isBasedOnTemplate())
+        {
+            templatePlayers.set(playerNumber);
+
+            BitSet differingTransmutations = transmutationKnowledge.getTemplateDifferenceIndices();
+            for (int index = differingTransmutations.nextSetBit(0); index >= 0; index = differingTransmutations.nextSetBit(index + 1))
+            {
+                getPlayerBits(differingPlayers, index).set(playerNumber);
+            }
+        }
+    }
+
+    /**
+     * Records that the template learned the transmutation, which every player based on it that does not differ from it
+     * in that transmutation now knows
+     */
+    public void recordTemplateLearn(ItemStack itemStack)
+    {
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+
+        if (index >= 0)
+        {
+            getPlayerBits(knowingPlayers, index).or(getInheritingPlayers(index));
+        }
+    }
+
+    /**
+     * Records that the template forgot the transmutation, which every player based on it that does not differ from it in
+     * that transmutation no longer knows
+     */
+    public void recordTemplateForget(ItemStack itemStack)
+    {
+        recordTemplateForget(TransmutationKnowledgeIndex.indexOf(itemStack));
+    }
+
+    /**
+     * Records that the template forgot everything, given the indices of the transmutations it knew before
+     */
+    public void recordTemplateForgetAll(BitSet templateTransmutations)
+    {
+        for (int index = templateTransmutations.nextSetBit(0); index >= 0; index = templateTransmutations.nextSetBit(index + 1))
+        {
+            recordTemplateForget(index);
+        }
+    }
+
+    private void recordTemplateForget(int index)
+    {
+        BitSet playerBits = knowingPlayers.get(index);
+
+        if (playerBits != null)
+        {
+            playerBits.andNot(getInheritingPlayers(index));
+        }
+    }
+
+    /**
+     * @return the players based on the template that do not differ from it in the transmutation
+     */
+    private BitSet getInheritingPlayers(int index)
+    {
+        BitSet inheritingPlayers = (BitSet) templatePlayers.clone();
+        BitSet playerBits = differingPlayers.get(index);
+
+        if (playerBits != null)
+        {
+            inheritingPlayers.andNot(playerBits);
+        }
+
+        return inheritingPlayers;
+    }
+
+    private void recordTemplateDifference(int playerNumber, int index, ItemStack itemStack, TransmutationKnowledge transmutationKnowledge)
+    {
+        templatePlayers.set(playerNumber, transmutationKnowledge.isBasedOnTemplate());
+
+        boolean differs = transmutationKnowledge.isBasedOnTemplate() && (transmutationKnowledge.isKnownOnTopOfTemplate(itemStack) || transmutationKnowledge.isForgottenFromTemplate(itemStack));
+        if (differs)
+        {
+            getPlayerBits(differingPlayers, index).set(playerNumber);
+        }
+        else if (differingPlayers.containsKey(index))
+        {
+            differingPlayers.get(index).clear(playerNumber);
+        }
+    }
+
+    private void clearPlayer(int playerNumber)
+    {
+        templatePlayers.clear(playerNumber);
+
+        for (BitSet playerBits : knowingPlayers.values())
+        {
+            playerBits.clear(playerNumber);
+        }
+
+        for (BitSet playerBits : differingPlayers.values())
+        {
+            playerBits.clear(playerNumber);
+        }
+    }
+
+    private static BitSet getPlayerBits(Map<Integer, BitSet> playerBitsMap, int index)
+    {
+        BitSet playerBits = playerBitsMap.get(index);
+
+        if (playerBits == null)
+        {
+            playerBits = new BitSet();
+            playerBitsMap.put(index, playerBits);
+        }
+
+        return playerBits;
+    }
+
+    private int getOrAssignPlayerNumber(UUID playerUUID)
+    {
+        Integer playerNumber = playerNumbers.get(playerUUID);
+
+        if (playerNumber == null)
+        {
+            playerNumber = players.size();
+            players.add(playerUUID);
+            playerNumbers.put(playerUUID, playerNumber);
+        }
+
+        return playerNumber;
+    }
+
+    /**
+     * Reads the index from the file and deletes the file, so a crash before the next {@link #writeToFile} leaves no stale
+     * index behind
+     *
+     * @return the index, or null if there is no (valid) index file
+     */
+    public static PlayerKnowledgeReverseIndex readFromFile(File file)
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        PlayerKnowledgeReverseIndex reverseIndex = null;
+
+        try
+        {
+            DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            try
+            {
+                if (dataInputStream.readInt() == FILE_MAGIC)
+                {
+                    reverseIndex = new PlayerKnowledgeReverseIndex();
+
+                    int playerCount = dataInputStream.readInt();
+                    for (int i = 0; i < playerCount; i++)
+                    {
+                        int playerNumber = reverseIndex.getOrAssignPlayerNumber(new UUID(dataInputStream.readLong(), dataInputStream.readLong()));
+                        reverseIndex.templatePlayers.set(playerNumber, dataInputStream.readBoolean());
+                    }
+
+                    int itemCount = dataInputStream.readInt();
+                    for (int i = 0; i < itemCount; i++)
+                    {
+                        ItemStack itemStack = LogStructuredPlayerKnowledgeStore.readItemStack(dataInputStream);
+                        BitSet playerBits = readPlayerBits(dataInputStream);
+                        BitSet differingPlayerBits = readPlayerBits(dataInputStream);
+
+                        // Items that no longer exist are dropped
+                        int index = TransmutationKnowledgeIndex.getOrAssignIndex(itemStack);
+                        if (index >= 0)
+                        {
+                            reverseIndex.knowingPlayers.put(index, playerBits);
+                            reverseIndex.differingPlayers.put(index, differingPlayerBits);
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                dataInputStream.close();
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            reverseIndex = null;
+        }
+
+        if (!file.delete())
+        {
+            LogHelper.warn("Unable to delete the transmutation knowledge index file: " + file.getAbsolutePath());
+            reverseIndex = null;
+        }
+
+        return reverseIndex;
+    }
+
+    public void writeToFile(File file)
+    {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try
+        {
+            DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new SyncedFileOutputStream(tempFile)));
+
+            try
+            {
+                dataOutputStream.writeInt(FILE_MAGIC);
+
+                dataOutputStream.writeInt(players.size());
+                for (int playerNumber = 0; playerNumber < players.size(); playerNumber++)
+                {
+                    dataOutputStream.writeLong(players.get(playerNumber).getMostSignificantBits());
+                    dataOutputStream.writeLong(players.get(playerNumber).getLeastSignificantBits());
+                    dataOutputStream.writeBoolean(templatePlayers.get(playerNumber));
+                }
+
+                Set<Integer> indices = new TreeSet<Integer>();
+                indices.addAll(knowingPlayers.keySet());
+                indices.addAll(differingPlayers.keySet());
+
+                for (Iterator<Integer> iterator = indices.iterator(); iterator.hasNext(); )
+                {
+                    int index = iterator.next();
+
+                    // Items that are no longer registered cannot be written by name
+                    if ((isEmpty(knowingPlayers.get(index)) && isEmpty(differingPlayers.get(index))) || LogStructuredPlayerKnowledgeStore.getItemName(TransmutationKnowledgeIndex.getItemStack(index)) == null)
+                    {
+                        iterator.remove();
+                    }
+                }
+
+                dataOutputStream.writeInt(indices.size());
+                for (int index : indices)
+                {
+                    LogStructuredPlayerKnowledgeStore.writeItemStack(dataOutputStream, TransmutationKnowledgeIndex.getItemStack(index));
+                    writePlayerBits(dataOutputStream, knowingPlayers.get(index));
+                    writePlayerBits(dataOutputStream, differingPlayers.get(index));
+                }
+            }
+            finally
+            {
+                dataOutputStream.close();
+            }
+
+            SerializationHelper.replaceFile(tempFile, file);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private static BitSet readPlayerBits(DataInputStream dataInputStream) throws IOException
+    {
+        BitSet playerBits = new BitSet();
+
+        int playerCount = dataInputStream.readInt();
+        for (int i = 0; i < playerCount; i++)
+        {
+            playerBits.set(dataInputStream.readInt());
+        }
+
+        return playerBits;
+    }
+
+    private static void writePlayerBits(DataOutputStream dataOutputStream, BitSet playerBits) throws IOException
+    {
+        if (playerBits == null)
+        {
+            dataOutputStream.writeInt(0);
+            return;
+        }
+
+        dataOutputStream.writeInt(playerBits.cardinality());
+        for (int playerNumber = playerBits.nextSetBit(0); playerNumber >= 0; playerNumber = playerBits.nextSetBit(playerNumber + 1))
+        {
+            dataOutputStream.writeInt(playerNumber);
+        }
+    }
+
+    private static boolean isEmpty(BitSet playerBits)
+    {
+        return playerBits == null || playerBits.isEmpty();
+    }
+}
@@ -6,6 +6,7 @@ import com.google.gson.stream.JsonWriter;
 import com.pahimar.ee3.exchange.JsonItemStack;
 import com.pahimar.ee3.reference.Comparators;
 import com.pahimar.ee3.serialization.TransmutationKnowledgeSerializer;
+import com.pahimar.ee3.util.CompressionHelper;
 import com.pahimar.ee3.util.FilterUtils;
 import com.pahimar.ee3.util.ItemHelper;
 import net.minecraft.item.Item;
@@ -15,21 +16,30 @@ import java.io.*;
 import java.lang.reflect.Type;
 import java.util.*;
 
+/**
+ * The transmutations a player (or the template) knows, held as a bit set over the indices assigned by
+ * {@link TransmutationKnowledgeIndex}.
+ * <p/>
+ * Knowledge can also be based on the template knowledge, in which case only the differences to the template are held
+ * (the transmutations known on top of it, and the template's transmutations that have been forgotten). What is known is
+ * resolved against the template on every query, so changes to the template reach such knowledge without it changing.
+ */
 public class TransmutationKnowledge
 {
-    private Set<ItemStack> knownTransmutations;
+    private final BitSet knownTransmutations;
+    private final BitSet forgottenTransmutations;
+    private final boolean basedOnTemplate;
+    private TransmutationKnowledge template;
     private boolean hasBeenModified = false;
 
     public TransmutationKnowledge()
     {
-        this(new TreeSet<ItemStack>(Comparators.idComparator));
+        this(Collections.<ItemStack>emptyList());
     }
 
     public TransmutationKnowledge(Collection<ItemStack> knownTransmutations)
     {
-        this.knownTransmutations = new TreeSet<ItemStack>(Comparators.idComparator);
-        this.knownTransmutations.addAll(knownTransmutations);
-        hasBeenModified = false;
+        this(knownTransmutations, Collections.<ItemStack>emptyList(), false);
     }
 
     public TransmutationKnowledge(ItemStack... knownTransmutations)
@@ -37,27 +47,210 @@ public class TransmutationKnowledge
         this(Arrays.asList(knownTransmutations));
     }
 
+    /**
+     * Creates an independent copy of the supplied knowledge, including whether it has been modified. Knowledge based on
+     * the template remains based on the same template.
+     */
+    public TransmutationKnowledge(TransmutationKnowledge transmutationKnowledge)
+    {
+        this.knownTransmutations = (BitSet) transmutationKnowledge.knownTransmutations.clone();
+        this.forgottenTransmutations = (BitSet) transmutationKnowledge.forgottenTransmutations.clone();
+        this.basedOnTemplate = transmutationKnowledge.basedOnTemplate;
+        this.template = transmutationKnowledge.template;
+        this.hasBeenModified = transmutationKnowledge.hasBeenModified;
+    }
+
+    private TransmutationKnowledge(Collection<ItemStack> knownTransmutations, Collection<ItemStack> forgottenTransmutations, boolean basedOnTemplate)
+    {
+        this.knownTransmutations = createBitSet(knownTransmutations);
+        this.forgottenTransmutations = createBitSet(forgottenTransmutations);
+        this.basedOnTemplate = basedOnTemplate;
+        hasBeenModified = false;
+    }
+
+    private TransmutationKnowledge(BitSet knownTransmutations, BitSet forgottenTransmutations, TransmutationKnowledge template)
+    {
+        this.knownTransmutations = knownTransmutations;
+        this.forgottenTransmutations = forgottenTransmutations;
+        this.basedOnTemplate = true;
+        this.template = template;
+    }
+
+    /**
+     * Creates knowledge that initially knows exactly what the template knows
+     */
+    public static TransmutationKnowledge createFromTemplate(TransmutationKnowledge template)
+    {
+        return new TransmutationKnowledge(new BitSet(), new BitSet(), template);
+    }
+
+    /**
+     * Creates knowledge based on the template from the stored differences to it. The template has to be attached with
+     * {@link #attachTemplate} before the knowledge is queried.
+     */
+    public static TransmutationKnowledge createFromTemplateDifferences(Collection<ItemStack> knownTransmutations, Collection<ItemStack> forgottenTransmutations)
+    {
+        return new TransmutationKnowledge(knownTransmutations, forgottenTransmutations, true);
+    }
+
+    /**
+     * @return knowledge based on the template that knows exactly what this knowledge currently knows
+     */
+    public TransmutationKnowledge rebaseOnTemplate(TransmutationKnowledge template)
+    {
+        BitSet resolvedTransmutations = resolveKnownTransmutations();
+
+        BitSet knownOnTopOfTemplate = (BitSet) resolvedTransmutations.clone();
+        knownOnTopOfTemplate.andNot(template.knownTransmutations);
+
+        BitSet forgottenFromTemplate = (BitSet) template.knownTransmutations.clone();
+        forgottenFromTemplate.andNot(resolvedTransmutations);
+
+        // Stored as modified, as it is stored differently from the knowledge it was rebased from
+        TransmutationKnowledge rebasedKnowledge = new TransmutationKnowledge(knownOnTopOfTemplate, forgottenFromTemplate, template);
+        rebasedKnowledge.hasBeenModified = true;
+        return rebasedKnowledge;
+    }
+
+    public void attachTemplate(TransmutationKnowledge template)
+    {
+        if (basedOnTemplate)
+        {
+            this.template = template;
+        }
+    }
+
+    public boolean isBasedOnTemplate()
+    {
+        return basedOnTemplate;
+    }
+
     public boolean isKnown(ItemStack itemStack)
     {
-        ItemStack unitItemStack = itemStack.copy();
-        unitItemStack.stackSize = 1;
-        return this.knownTransmutations.contains(unitItemStack);
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+        return index >= 0 && isKnown(index);
+    }
+
+    private boolean isKnown(int index)
+    {
+        if (basedOnTemplate && this.forgottenTransmutations.get(index))
+        {
+            return false;
+        }
+
+        return this.knownTransmutations.get(index) || isKnownByTemplate(index);
     }
 
+    private boolean isKnownByTemplate(int index)
+    {
+        return basedOnTemplate && template != null && template.isKnown(index);
+    }
+
+    /**
+     * @return a new set (in id order) holding copies of the known transmutations; changing it does not change this
+     * knowledge
+     */
     public Set<ItemStack> getKnownTransmutations()
     {
-        return this.knownTransmutations;
+        return createItemStackSet(resolveKnownTransmutations());
+    }
+
+    /**
+     * @return the transmutations known in addition to the template, or all known transmutations if this knowledge is not
+     * based on the template
+     */
+    public Set<ItemStack> getTransmutationsKnownOnTopOfTemplate()
+    {
+        return createItemStackSet(this.knownTransmutations);
+    }
+
+    /**
+     * @return the template's transmutations that have been forgotten
+     */
+    public Set<ItemStack> getTransmutationsForgottenFromTemplate()
+    {
+        return createItemStackSet(this.forgottenTransmutations);
+    }
+
+    /**
+     * @return whether the transmutation is known in addition to the template, or known at all if this knowledge is not
+     * based on the template
+     */
+    boolean isKnownOnTopOfTemplate(ItemStack itemStack)
+    {
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+        return index >= 0 && this.knownTransmutations.get(index);
+    }
+
+    /**
+     * @return whether the transmutation is one of the template's that has been forgotten
+     */
+    boolean isForgottenFromTemplate(ItemStack itemStack)
+    {
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
+        return basedOnTemplate && index >= 0 && this.forgottenTransmutations.get(index);
+    }
+
+    /**
+     * Sets how the transmutation differs from the template, without reading the template, when restoring stored
+     * differences. Knowledge that is not based on the template ignores whether it was forgotten from the template.
+     */
+    void setTemplateDifferences(ItemStack itemStack, boolean knownOnTopOfTemplate, boolean forgottenFromTemplate)
+    {
+        int index = TransmutationKnowledgeIndex.getOrAssignIndex(itemStack);
+
+        if (index >= 0)
+        {
+            this.knownTransmutations.set(index, knownOnTopOfTemplate);
+            this.forgottenTransmutations.set(index, basedOnTemplate && forgottenFromTemplate);
+        }
+    }
+
+    /**
+     * @return a copy of the {@link TransmutationKnowledgeIndex} indices of the known transmutations
+     */
+    BitSet getKnownTransmutationIndices()
+    {
+        return (BitSet) resolveKnownTransmutations().clone();
+    }
+
+    /**
+     * @return a copy of the {@link TransmutationKnowledgeIndex} indices of the transmutations this knowledge differs from
+     * the template in, or an empty bit set if it is not based on the template
+     */
+    BitSet getTemplateDifferenceIndices()
+    {
+        BitSet differingTransmutations = new BitSet();
+
+        if (basedOnTemplate)
+        {
+            differingTransmutations.or(this.knownTransmutations);
+            differingTransmutations.or(this.forgottenTransmutations);
+        }
+
+        return differingTransmutations;
+    }
+
+    public int getKnownTransmutationsCount()
+    {
+        return resolveKnownTransmutations().cardinality();
     }
 
     public boolean learnTransmutation(ItemStack itemStack)
     {
-        ItemStack unitItemStack = itemStack.copy();
-        unitItemStack.stackSize = 1;
+        int index = TransmutationKnowledgeIndex.getOrAssignIndex(itemStack);
 
-        if (!this.knownTransmutations.contains(unitItemStack))
+        if (index >= 0 && !isKnown(index))
         {
+            this.forgottenTransmutations.clear(index);
+
+            if (!isKnownByTemplate(index))
+            {
+                this.knownTransmutations.set(index);
+            }
+
             hasBeenModified = true;
-            return this.knownTransmutations.add(unitItemStack);
+            return true;
         }
 
         return false;
@@ -65,29 +258,92 @@ public class TransmutationKnowledge
 
     public boolean forgetTransmutation(ItemStack itemStack)
     {
-        ItemStack unitItemStack = itemStack.copy();
-        unitItemStack.stackSize = 1;
+        int index = TransmutationKnowledgeIndex.indexOf(itemStack);
 
-        if (this.knownTransmutations.contains(unitItemStack))
+        if (index >= 0 && isKnown(index))
         {
+            this.knownTransmutations.clear(index);
+
+            if (isKnownByTemplate(index))
+            {
+                this.forgottenTransmutations.set(index);
+            }
+
             hasBeenModified = true;
-            return this.knownTransmutations.remove(unitItemStack);
+            return true;
         }
 
         return false;
     }
 
+    /**
+     * Forgets every known transmutation. Knowledge based on the template still learns what the template learns later.
+     */
     public void forgetAllTransmutations()
     {
         this.knownTransmutations.clear();
+        this.forgottenTransmutations.clear();
+
+        if (basedOnTemplate && template != null)
+        {
+            this.forgottenTransmutations.or(template.knownTransmutations);
+        }
+
         hasBeenModified = true;
     }
 
+    private BitSet resolveKnownTransmutations()
+    {
+        if (!basedOnTemplate)
+        {
+            return this.knownTransmutations;
+        }
+
+        BitSet resolvedTransmutations = template != null ? (BitSet) template.knownTransmutations.clone() : new BitSet();
+        resolvedTransmutations.or(this.knownTransmutations);
+        resolvedTransmutations.andNot(this.forgottenTransmutations);
+        return resolvedTransmutations;
+    }
+
+    private static BitSet createBitSet(Collection<ItemStack> itemStacks)
+    {
+        BitSet bitSet = new BitSet();
+
+        for (ItemStack itemStack : itemStacks)
+        {
+            int index = TransmutationKnowledgeIndex.getOrAssignIndex(itemStack);
+
+            if (index >= 0)
+            {
+                bitSet.set(index);
+            }
+        }
+
+        return bitSet;
+    }
+
+    private static Set<ItemStack> createItemStackSet(BitSet bitSet)
+    {
+        Set<ItemStack> itemStacks = new TreeSet<ItemStack>(Comparators.idComparator);
+
+        for (int index = bitSet.nextSetBit(0); index >= 0; index = bitSet.nextSetBit(index + 1))
+        {
+            itemStacks.add(TransmutationKnowledgeIndex.getItemStack(index));
+        }
+
+        return itemStacks;
+    }
+
     public boolean hasBeenModified()
     {
         return hasBeenModified;
     }
 
+    public void markAsSaved()
+    {
+        hasBeenModified = false;
+    }
+
     public Set<ItemStack> filterByNameStartsWith(String filterString)
     {
         return FilterUtils.filterByNameStartsWith(getKnownTransmutations(), filterString);
@@ -104,7 +360,7 @@ public class TransmutationKnowledge
         StringBuilder stringBuilder = new StringBuilder();
 
         stringBuilder.append("[");
-        for (ItemStack itemStack : knownTransmutations)
+        for (ItemStack itemStack : getKnownTransmutations())
         {
             stringBuilder.append(String.format("%s, ", ItemHelper.toString(itemStack)));
         }
@@ -142,7 +398,7 @@ public class TransmutationKnowledge
 
         try
         {
-            jsonWriter = new JsonWriter(new FileWriter(file));
+            jsonWriter = CompressionHelper.createJsonWriter(file);
             jsonWriter.setIndent("    ");
             TransmutationKnowledgeSerializer.toJson(transmutationKnowledge, jsonWriter);
             jsonWriter.close();
@@ -160,7 +416,7 @@ public class TransmutationKnowledge
 
         try
         {
-            jsonReader = new JsonReader(new FileReader(file));
+            jsonReader = CompressionHelper.createJsonReader(file);
             TransmutationKnowledge transmutationKnowledge = TransmutationKnowledgeSerializer.createFromJson(jsonReader);
             jsonReader.close();
             return transmutationKnowledge;
@@ -173,6 +429,10 @@ public class TransmutationKnowledge
         {
             e.printStackTrace();
         }
+        catch (JsonParseException e)
+        {
+            e.printStackTrace();
+        }
 
         return null;
     }
@@ -0,0 +1,142 @@
+package com.pahimar.ee3.knowledge;
+
+import com.pahimar.ee3.exchange.WrappedStack;
+import com.pahimar.ee3.reference.Comparators;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.oredict.OreDictionary;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns every item stack that can be part of a player's transmutation knowledge a dense, stable index, so knowledge can
+ * be held as a bit set over those indices (see {@link TransmutationKnowledge}).
+ * <p/>
+ * Whenever the energy value registry takes a new snapshot, the item stacks it has values for and that are not indexed yet
+ * are appended in id order. Stacks that are learnt without having an energy value (e.g. knowledge loaded from disk before
+ * its value was removed) are appended on demand. Indices are never reassigned during the lifetime of the game, so
+ * existing bit sets remain valid across snapshots.
+ * <p/>
+ * Plain stacks (a registered item with a specific damage value and no NBT) are also indexed by item id and damage in a
+ * concurrent map, so the common lookups (e.g. whether an item is learnable) do not have to lock the sorted index.
+ */
+public final class TransmutationKnowledgeIndex
+{
+    private static final Map<ItemStack, Integer> stackIndices = new TreeMap<ItemStack, Integer>(Comparators.unitIdComparator);
+    private static final List<ItemStack> indexedStacks = new ArrayList<ItemStack>();
+    private static final ConcurrentMap<Long, Integer> plainStackIndices = new ConcurrentHashMap<Long, Integer>();
+
+    private TransmutationKnowledgeIndex()
+    {
+    }
+
+    /**
+     * @return the index of the item stack, or -1 if it has not been indexed
+     */
+    public static int indexOf(ItemStack itemStack)
+    {
+        if (itemStack != null && itemStack.getItem() != null && isPlainStack(itemStack))
+        {
+            Integer index = plainStackIndices.get(getPlainStackKey(itemStack));
+
+            if (index != null)
+            {
+                return index;
+            }
+        }
+
+        return lookUpIndex(itemStack);
+    }
+
+    private static synchronized int lookUpIndex(ItemStack itemStack)
+    {
+        if (itemStack != null && itemStack.getItem() != null)
+        {
+            Integer index = stackIndices.get(itemStack);
+
+            if (index != null)
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the index of the item stack, assigning it the next free index if it has not been indexed yet, or -1 if the
+     * stack is invalid
+     */
+    public static synchronized int getOrAssignIndex(ItemStack itemStack)
+    {
+        int index = indexOf(itemStack);
+
+        if (index < 0 && itemStack != null && itemStack.getItem() != null)
+        {
+            ItemStack unitItemStack = itemStack.copy();
+            unitItemStack.stackSize = 1;
+
+            index = indexedStacks.size();
+            indexedStacks.add(unitItemStack);
+            stackIndices.put(unitItemStack, index);
+
+            if (isPlainStack(unitItemStack))
+            {
+                plainStackIndices.put(getPlainStackKey(unitItemStack), index);
+            }
+        }
+
+        return index;
+    }
+
+    public static synchronized int size()
+    {
+        return indexedStacks.size();
+    }
+
+    /**
+     * @return a copy of the unit item stack with the given index
+     */
+    public static synchronized ItemStack getItemStack(int index)
+    {
+        return indexedStacks.get(index).copy();
+    }
+
+    private static boolean isPlainStack(ItemStack itemStack)
+    {
+        return !itemStack.hasTagCompound() && itemStack.getItemDamage() != OreDictionary.WILDCARD_VALUE && Item.getIdFromItem(itemStack.getItem()) >= 0;
+    }
+
+    private static long getPlainStackKey(ItemStack itemStack)
+    {
+        return ((long) Item.getIdFromItem(itemStack.getItem()) << 32) | (itemStack.getItemDamage() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Appends the item stacks among the given (energy value registry) keys that are not indexed yet, in id order
+     */
+    public static void indexStacks(Collection<WrappedStack> wrappedStacks)
+    {
+        List<ItemStack> itemStacks = new ArrayList<ItemStack>();
+
+        for (WrappedStack wrappedStack : wrappedStacks)
+        {
+            if (wrappedStack != null && wrappedStack.getWrappedObject() instanceof ItemStack)
+            {
+                itemStacks.add((ItemStack) wrappedStack.getWrappedObject());
+            }
+        }
+
+        Collections.sort(itemStacks, Comparators.idComparator);
+
+        synchronized (TransmutationKnowledgeIndex.class)
+        {
+            for (ItemStack itemStack : itemStacks)
+            {
+                getOrAssignIndex(itemStack);
+            }
+        }
+    }
+}
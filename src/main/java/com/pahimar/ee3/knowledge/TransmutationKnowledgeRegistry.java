@@ -2,9 +2,14 @@ package com.pahimar.ee3.knowledge;
 
 import com.pahimar.ee3.api.event.PlayerKnowledgeEvent;
 import com.pahimar.ee3.api.event.TemplateKnowledgeEvent;
+import com.pahimar.ee3.configuration.KnowledgeStorageOption;
 import com.pahimar.ee3.filesystem.FileSystem;
+import com.pahimar.ee3.network.TransmutationKnowledgeChangeBroadcaster;
 import com.pahimar.ee3.reference.Files;
+import com.pahimar.ee3.reference.Settings;
+import com.pahimar.ee3.util.AsyncIOHelper;
 import com.pahimar.ee3.util.FilterUtils;
+import com.pahimar.ee3.util.LogHelper;
 import com.pahimar.ee3.util.SerializationHelper;
 import cpw.mods.fml.common.FMLCommonHandler;
 import net.minecraft.entity.player.EntityPlayer;
@@ -14,9 +19,8 @@ import net.minecraftforge.common.MinecraftForge;
 
 import javax.naming.OperationNotSupportedException;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class TransmutationKnowledgeRegistry
 {
@@ -25,7 +29,14 @@ public class TransmutationKnowledgeRegistry
 
     private static File playerKnowledgeDirectory, dataKnowledgeDirectory;
     private static TransmutationKnowledge templateKnowledge;
-    private static HashMap<UUID, TransmutationKnowledge> playerKnowledgeMap;
+    private static PlayerKnowledgeCache playerKnowledgeCache;
+    private static IPlayerKnowledgeStore playerKnowledgeStore;
+    private static PlayerKnowledgeReverseIndex playerKnowledgeReverseIndex;
+    private static Set<UUID> dirtyPlayers;
+    private static final Map<UUID, PlayerKnowledgeChanges> unsavedChanges = new HashMap<UUID, PlayerKnowledgeChanges>();
+    private static final ConcurrentMap<UUID, TransmutationKnowledge> unwrittenSnapshots = new ConcurrentHashMap<UUID, TransmutationKnowledge>();
+    private static final ConcurrentMap<UUID, Future<TransmutationKnowledge>> pendingLoads = new ConcurrentHashMap<UUID, Future<TransmutationKnowledge>>();
+    private static final Map<UUID, Integer> knowledgeVersions = new HashMap<UUID, Integer>();
 
     private TransmutationKnowledgeRegistry()
             throws OperationNotSupportedException
@@ -33,12 +44,25 @@ public class TransmutationKnowledgeRegistry
         playerKnowledgeDirectory = FileSystem.getPlayer().getTransmutationDirectory();
         playerKnowledgeDirectory.mkdirs();
 
+        if (Settings.Knowledge.storageBackend == KnowledgeStorageOption.Log)
+        {
+            playerKnowledgeStore = new LogStructuredPlayerKnowledgeStore(playerKnowledgeDirectory);
+        }
+        else
+        {
+            playerKnowledgeStore = new JsonPlayerKnowledgeStore(playerKnowledgeDirectory);
+        }
+
+        // Only present after a clean shutdown, otherwise it is rebuilt from the store when it is first needed
+        playerKnowledgeReverseIndex = PlayerKnowledgeReverseIndex.readFromFile(new File(playerKnowledgeDirectory, Files.KNOWLEDGE_INDEX_FILE));
+
         dataKnowledgeDirectory = FileSystem.getWorld().getTransmutationDirectory();
         dataKnowledgeDirectory.mkdirs();
 
         loadTemplateKnowledgeFromDisk();
 
-        playerKnowledgeMap = new HashMap<UUID, TransmutationKnowledge>();
+        playerKnowledgeCache = new PlayerKnowledgeCache(Settings.Knowledge.maxCachedPlayers, Settings.Knowledge.cachedPlayerExpiry * 1000L);
+        dirtyPlayers = new LinkedHashSet<UUID>();
     }
 
     public static TransmutationKnowledgeRegistry getInstance()
@@ -135,6 +159,11 @@ public class TransmutationKnowledgeRegistry
         {
             templateKnowledge.learnTransmutation(itemStack);
             saveTemplateKnowledgeToDisk();
+
+            if (playerKnowledgeReverseIndex != null)
+            {
+                playerKnowledgeReverseIndex.recordTemplateLearn(itemStack);
+            }
         }
     }
 
@@ -149,6 +178,11 @@ public class TransmutationKnowledgeRegistry
         {
             templateKnowledge.forgetTransmutation(itemStack);
             saveTemplateKnowledgeToDisk();
+
+            if (playerKnowledgeReverseIndex != null)
+            {
+                playerKnowledgeReverseIndex.recordTemplateForget(itemStack);
+            }
         }
     }
 
@@ -161,8 +195,14 @@ public class TransmutationKnowledgeRegistry
 
         if (!MinecraftForge.EVENT_BUS.post(new TemplateKnowledgeEvent.TemplateForgetAllKnowledgeEvent()))
         {
+            BitSet templateTransmutations = templateKnowledge.getKnownTransmutationIndices();
             templateKnowledge.forgetAllTransmutations();
             saveTemplateKnowledgeToDisk();
+
+            if (playerKnowledgeReverseIndex != null)
+            {
+                playerKnowledgeReverseIndex.recordTemplateForgetAll(templateTransmutations);
+            }
         }
     }
 
@@ -183,9 +223,9 @@ public class TransmutationKnowledgeRegistry
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
 
-            if (playerKnowledgeMap.containsKey(playerUUID))
+            if (playerKnowledgeCache.contains(playerUUID))
             {
-                return playerKnowledgeMap.get(playerUUID).getKnownTransmutations();
+                return playerKnowledgeCache.get(playerUUID).getKnownTransmutations();
             }
         }
 
@@ -208,9 +248,9 @@ public class TransmutationKnowledgeRegistry
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
 
-            if (playerKnowledgeMap.containsKey(playerUUID))
+            if (playerKnowledgeCache.contains(playerUUID))
             {
-                return playerKnowledgeMap.get(playerUUID).filterByNameStartsWith(startsWith);
+                return playerKnowledgeCache.get(playerUUID).filterByNameStartsWith(startsWith);
             }
         }
 
@@ -233,9 +273,9 @@ public class TransmutationKnowledgeRegistry
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
 
-            if (playerKnowledgeMap.containsKey(playerUUID))
+            if (playerKnowledgeCache.contains(playerUUID))
             {
-                return playerKnowledgeMap.get(playerUUID).filterByNameContains(contains);
+                return playerKnowledgeCache.get(playerUUID).filterByNameContains(contains);
             }
         }
 
@@ -248,9 +288,9 @@ public class TransmutationKnowledgeRegistry
         {
             loadPlayerFromDiskIfNeeded(entityPlayer);
 
-            if (playerKnowledgeMap.containsKey(entityPlayer.getUniqueID()))
+            if (playerKnowledgeCache.contains(entityPlayer.getUniqueID()))
             {
-                return playerKnowledgeMap.get(entityPlayer.getUniqueID()).isKnown(itemStack);
+                return playerKnowledgeCache.get(entityPlayer.getUniqueID()).isKnown(itemStack);
             }
         }
 
@@ -263,9 +303,9 @@ public class TransmutationKnowledgeRegistry
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
 
-            if (playerKnowledgeMap.containsKey(playerUUID))
+            if (playerKnowledgeCache.contains(playerUUID))
             {
-                return playerKnowledgeMap.get(playerUUID).isKnown(itemStack);
+                return playerKnowledgeCache.get(playerUUID).isKnown(itemStack);
             }
         }
 
@@ -290,9 +330,9 @@ public class TransmutationKnowledgeRegistry
             {
                 loadPlayerFromDiskIfNeeded(playerUUID);
 
-                if (playerKnowledgeMap.containsKey(playerUUID))
+                if (playerKnowledgeCache.contains(playerUUID))
                 {
-                    return !playerKnowledgeMap.get(playerUUID).isKnown(itemStack);
+                    return !playerKnowledgeCache.get(playerUUID).isKnown(itemStack);
                 }
             }
         }
@@ -313,10 +353,27 @@ public class TransmutationKnowledgeRegistry
         if (playerUUID != null && itemStack != null && canPlayerLearn(playerUUID, itemStack))
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
-            if (playerKnowledgeMap.containsKey(playerUUID) && !MinecraftForge.EVENT_BUS.post(new PlayerKnowledgeEvent.PlayerLearnKnowledgeEvent(playerUUID, itemStack)))
+            if (playerKnowledgeCache.contains(playerUUID) && !MinecraftForge.EVENT_BUS.post(new PlayerKnowledgeEvent.PlayerLearnKnowledgeEvent(playerUUID, itemStack)))
             {
-                playerKnowledgeMap.get(playerUUID).learnTransmutation(itemStack);
-                savePlayerKnowledgeToDisk(playerUUID);
+                if (playerKnowledgeCache.get(playerUUID).learnTransmutation(itemStack))
+                {
+                    if (playerKnowledgeReverseIndex != null)
+                    {
+                        playerKnowledgeReverseIndex.recordLearn(playerUUID, itemStack, playerKnowledgeCache.get(playerUUID));
+                    }
+
+                    TransmutationKnowledgeChangeBroadcaster.sendLearned(playerUUID, itemStack, nextKnowledgeVersion(playerUUID));
+
+                    if (isWriteBehindEnabled())
+                    {
+                        getUnsavedChanges(playerUUID).recordChange(itemStack);
+                        markPlayerDirty(playerUUID);
+                    }
+                    else
+                    {
+                        playerKnowledgeStore.recordLearn(playerUUID, itemStack, playerKnowledgeCache.get(playerUUID));
+                    }
+                }
             }
         }
     }
@@ -334,10 +391,27 @@ public class TransmutationKnowledgeRegistry
         if (playerUUID != null && itemStack != null && doesPlayerKnow(playerUUID, itemStack))
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
-            if (playerKnowledgeMap.containsKey(playerUUID) && !MinecraftForge.EVENT_BUS.post(new PlayerKnowledgeEvent.PlayerForgetKnowledgeEvent(playerUUID, itemStack)))
+            if (playerKnowledgeCache.contains(playerUUID) && !MinecraftForge.EVENT_BUS.post(new PlayerKnowledgeEvent.PlayerForgetKnowledgeEvent(playerUUID, itemStack)))
             {
-                playerKnowledgeMap.get(playerUUID).forgetTransmutation(itemStack);
-                savePlayerKnowledgeToDisk(playerUUID);
+                if (playerKnowledgeCache.get(playerUUID).forgetTransmutation(itemStack))
+                {
+                    if (playerKnowledgeReverseIndex != null)
+                    {
+                        playerKnowledgeReverseIndex.recordForget(playerUUID, itemStack, playerKnowledgeCache.get(playerUUID));
+                    }
+
+                    TransmutationKnowledgeChangeBroadcaster.sendForgotten(playerUUID, itemStack, nextKnowledgeVersion(playerUUID));
+
+                    if (isWriteBehindEnabled())
+                    {
+                        getUnsavedChanges(playerUUID).recordChange(itemStack);
+                        markPlayerDirty(playerUUID);
+                    }
+                    else
+                    {
+                        playerKnowledgeStore.recordForget(playerUUID, itemStack, playerKnowledgeCache.get(playerUUID));
+                    }
+                }
             }
         }
     }
@@ -355,12 +429,98 @@ public class TransmutationKnowledgeRegistry
         if (playerUUID != null)
         {
             loadPlayerFromDiskIfNeeded(playerUUID);
-            if (playerKnowledgeMap.containsKey(playerUUID) && !MinecraftForge.EVENT_BUS.post(new PlayerKnowledgeEvent.PlayerForgetAllKnowledgeEvent(playerUUID)))
+            if (playerKnowledgeCache.contains(playerUUID) && !MinecraftForge.EVENT_BUS.post(new PlayerKnowledgeEvent.PlayerForgetAllKnowledgeEvent(playerUUID)))
             {
-                playerKnowledgeMap.get(playerUUID).forgetAllTransmutations();
-                savePlayerKnowledgeToDisk(playerUUID);
+                playerKnowledgeCache.get(playerUUID).forgetAllTransmutations();
+
+                if (playerKnowledgeReverseIndex != null)
+                {
+                    playerKnowledgeReverseIndex.recordKnowledge(playerUUID, playerKnowledgeCache.get(playerUUID));
+                }
+
+                TransmutationKnowledgeChangeBroadcaster.sendForgotEverything(playerUUID, nextKnowledgeVersion(playerUUID));
+
+                if (isWriteBehindEnabled())
+                {
+                    getUnsavedChanges(playerUUID).recordAllChanged();
+                    markPlayerDirty(playerUUID);
+                }
+                else
+                {
+                    playerKnowledgeStore.recordForgetAll(playerUUID, playerKnowledgeCache.get(playerUUID));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the version of the player's knowledge, which changes every time they learn or forget something while their
+     * knowledge is loaded. Versions are dropped along with the knowledge, as open tablets track the version they were last
+     * sent themselves.
+     */
+    public int getPlayersKnowledgeVersion(UUID playerUUID)
+    {
+        Integer knowledgeVersion = knowledgeVersions.get(playerUUID);
+        return knowledgeVersion != null ? knowledgeVersion : 0;
+    }
+
+    private int nextKnowledgeVersion(UUID playerUUID)
+    {
+        int knowledgeVersion = getPlayersKnowledgeVersion(playerUUID) + 1;
+        knowledgeVersions.put(playerUUID, knowledgeVersion);
+        return knowledgeVersion;
+    }
+
+    /* Reverse Index Related Transmutation Knowledge */
+    /**
+     * @return the players (online or not) that know the transmutation
+     */
+    public Set<UUID> getPlayersKnowing(ItemStack itemStack)
+    {
+        if (itemStack != null)
+        {
+            return getReverseIndex().getPlayersKnowing(itemStack);
+        }
+
+        return Collections.emptySet();
+    }
+
+    /**
+     * Makes every player (online or not) that knows the transmutation forget it, only loading the knowledge of those
+     * players
+     *
+     * @return the number of players that forgot the transmutation
+     */
+    public int makeEveryoneForget(ItemStack itemStack)
+    {
+        int forgottenCount = 0;
+
+        for (UUID playerUUID : getPlayersKnowing(itemStack))
+        {
+            makePlayerForget(playerUUID, itemStack);
+
+            if (!doesPlayerKnow(playerUUID, itemStack))
+            {
+                forgottenCount++;
             }
         }
+
+        return forgottenCount;
+    }
+
+    private PlayerKnowledgeReverseIndex getReverseIndex()
+    {
+        if (playerKnowledgeReverseIndex == null)
+        {
+            // Taken before reading the store, as the background I/O thread drops snapshots once they have been stored
+            List<Map<UUID, TransmutationKnowledge>> unsavedKnowledge = new ArrayList<Map<UUID, TransmutationKnowledge>>();
+            unsavedKnowledge.add(new HashMap<UUID, TransmutationKnowledge>(unwrittenSnapshots));
+            unsavedKnowledge.add(playerKnowledgeCache.asMap());
+
+            playerKnowledgeReverseIndex = PlayerKnowledgeReverseIndex.build(playerKnowledgeStore, templateKnowledge, unsavedKnowledge);
+        }
+
+        return playerKnowledgeReverseIndex;
     }
 
     /* Serialization */
@@ -412,21 +572,131 @@ public class TransmutationKnowledgeRegistry
 
     public void loadPlayerFromDiskIfNeeded(UUID playerUUID)
     {
-        if (playerUUID != null && playerKnowledgeDirectory != null && !playerKnowledgeMap.containsKey(playerUUID))
+        if (playerUUID != null && playerKnowledgeDirectory != null)
         {
-            TransmutationKnowledge playerTransmutationKnowledge = new TransmutationKnowledge();
+            Future<TransmutationKnowledge> pendingLoad = pendingLoads.remove(playerUUID);
+            boolean rebasedOnTemplate = false;
 
-            File playerKnowledgeFile = new File(playerKnowledgeDirectory, playerUUID.toString() + ".json");
+            if (!playerKnowledgeCache.contains(playerUUID))
+            {
+                TransmutationKnowledge playerTransmutationKnowledge = resolvePlayerKnowledge(readPlayerKnowledge(playerUUID, pendingLoad));
+                playerKnowledgeCache.put(playerUUID, playerTransmutationKnowledge);
 
-            if (playerKnowledgeFile.exists() && playerKnowledgeFile.isFile())
+                // Knowledge that was just rebased on the template has to be stored that way before changes are recorded
+                if (playerTransmutationKnowledge.hasBeenModified())
+                {
+                    rebasedOnTemplate = true;
+
+                    if (isWriteBehindEnabled())
+                    {
+                        getUnsavedChanges(playerUUID).recordAllChanged();
+                        markPlayerDirty(playerUUID);
+                    }
+                    else
+                    {
+                        playerKnowledgeStore.save(playerUUID, playerTransmutationKnowledge);
+                    }
+                }
+            }
+
+            // Players seen for the first time may already know what the template knows, and rebased players now inherit it
+            if (playerKnowledgeReverseIndex != null && (rebasedOnTemplate || !playerKnowledgeReverseIndex.contains(playerUUID)))
             {
-                playerTransmutationKnowledge = SerializationHelper.readTransmutationKnowledgeFromFile(playerKnowledgeDirectory, playerUUID.toString() + ".json");
+                playerKnowledgeReverseIndex.recordKnowledge(playerUUID, playerKnowledgeCache.get(playerUUID));
             }
+        }
+    }
+
+    /**
+     * Starts reading the stored knowledge of the player on the background I/O thread, so it is (usually) already read
+     * once it is first needed on the server thread. Only the store is read there; the template is only touched once the
+     * result is collected on the server thread.
+     */
+    public void prefetchPlayer(final UUID playerUUID)
+    {
+        if (playerUUID != null && playerKnowledgeDirectory != null && !playerKnowledgeCache.contains(playerUUID) && !pendingLoads.containsKey(playerUUID))
+        {
+            final IPlayerKnowledgeStore store = playerKnowledgeStore;
 
-            playerKnowledgeMap.put(playerUUID, playerTransmutationKnowledge);
+            pendingLoads.put(playerUUID, AsyncIOHelper.submit("load player knowledge", new Callable<TransmutationKnowledge>()
+            {
+                @Override
+                public TransmutationKnowledge call()
+                {
+                    return readStoredKnowledge(playerUUID, store);
+                }
+            }));
         }
     }
 
+    /**
+     * @return the stored knowledge of the player, collected from the prefetch if there is one (which only blocks if it
+     * has not finished yet), and read directly otherwise or if the prefetch failed
+     */
+    private TransmutationKnowledge readPlayerKnowledge(UUID playerUUID, Future<TransmutationKnowledge> pendingLoad)
+    {
+        if (pendingLoad != null)
+        {
+            try
+            {
+                return pendingLoad.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                // Already logged by the I/O thread
+            }
+        }
+
+        return readStoredKnowledge(playerUUID, playerKnowledgeStore);
+    }
+
+    /**
+     * Reads what has been stored for the player, without touching the template, so it is safe to call from the
+     * background I/O thread
+     *
+     * @return the stored knowledge, or null if nothing has been stored for the player
+     */
+    private static TransmutationKnowledge readStoredKnowledge(UUID playerUUID, IPlayerKnowledgeStore store)
+    {
+        // Knowledge that was unloaded may not have reached the store yet
+        TransmutationKnowledge unwrittenSnapshot = unwrittenSnapshots.get(playerUUID);
+        if (unwrittenSnapshot != null)
+        {
+            TransmutationKnowledge playerTransmutationKnowledge = new TransmutationKnowledge(unwrittenSnapshot);
+            playerTransmutationKnowledge.markAsSaved();
+            return playerTransmutationKnowledge;
+        }
+
+        return store.load(playerUUID);
+    }
+
+    /**
+     * Bases the stored knowledge of a player on the template, as configured. Must be called on the server thread, as it
+     * reads the template.
+     */
+    private static TransmutationKnowledge resolvePlayerKnowledge(TransmutationKnowledge playerTransmutationKnowledge)
+    {
+        if (playerTransmutationKnowledge == null)
+        {
+            return Settings.Knowledge.inheritTemplate ? TransmutationKnowledge.createFromTemplate(templateKnowledge) : new TransmutationKnowledge();
+        }
+        else if (playerTransmutationKnowledge.isBasedOnTemplate())
+        {
+            playerTransmutationKnowledge.attachTemplate(templateKnowledge);
+        }
+        else if (Settings.Knowledge.inheritTemplate)
+        {
+            // Keeps what the player knows, but from now on only stores how that differs from the template
+            return playerTransmutationKnowledge.rebaseOnTemplate(templateKnowledge);
+        }
+
+        return playerTransmutationKnowledge;
+    }
+
     public void unloadPlayer(EntityPlayer entityPlayer)
     {
         if (entityPlayer != null)
@@ -439,11 +709,28 @@ public class TransmutationKnowledgeRegistry
     {
         if (playerUUID != null)
         {
-            if (playerKnowledgeMap.containsKey(playerUUID))
+            if (playerKnowledgeCache.contains(playerUUID))
             {
                 savePlayerKnowledgeToDisk(playerUUID);
-                playerKnowledgeMap.remove(playerUUID);
+                playerKnowledgeCache.remove(playerUUID);
             }
+
+            cancelPendingLoad(playerUUID);
+            knowledgeVersions.remove(playerUUID);
+        }
+    }
+
+    /**
+     * Drops the prefetched knowledge of a player that will not be collected, e.g. because they logged out or their login
+     * failed before the knowledge was needed
+     */
+    private static void cancelPendingLoad(UUID playerUUID)
+    {
+        Future<TransmutationKnowledge> pendingLoad = pendingLoads.remove(playerUUID);
+
+        if (pendingLoad != null)
+        {
+            pendingLoad.cancel(false);
         }
     }
 
@@ -459,17 +746,171 @@ public class TransmutationKnowledgeRegistry
     {
         if (playerUUID != null && playerKnowledgeDirectory != null)
         {
-            if (playerKnowledgeMap.containsKey(playerUUID) && playerKnowledgeMap.get(playerUUID) != null)
+            if (playerKnowledgeCache.contains(playerUUID) && playerKnowledgeCache.get(playerUUID) != null)
             {
-                if (playerKnowledgeMap.get(playerUUID).hasBeenModified())
+                if (playerKnowledgeCache.get(playerUUID).hasBeenModified())
                 {
-                    SerializationHelper.writeTransmutationKnowledgeToFile(playerKnowledgeDirectory, playerUUID.toString() + ".json", playerKnowledgeMap.get(playerUUID));
+                    writePlayerKnowledge(Collections.singletonMap(playerUUID, playerKnowledgeCache.get(playerUUID)));
                 }
             }
             else
             {
                 loadPlayerFromDiskIfNeeded(playerUUID);
-                SerializationHelper.writeTransmutationKnowledgeToFile(playerKnowledgeDirectory, playerUUID.toString() + ".json", playerKnowledgeMap.get(playerUUID));
+                writePlayerKnowledge(Collections.singletonMap(playerUUID, playerKnowledgeCache.get(playerUUID)));
+            }
+
+            dirtyPlayers.remove(playerUUID);
+        }
+    }
+
+    /**
+     * @return the number of players whose knowledge changed since it was last handed to the background I/O thread
+     */
+    public int getDirtyPlayerCount()
+    {
+        return dirtyPlayers.size();
+    }
+
+    /**
+     * Hands the knowledge of all players that changed since the last flush to the background I/O thread, as one batch
+     */
+    public void flushDirtyPlayers()
+    {
+        if (!dirtyPlayers.isEmpty())
+        {
+            Map<UUID, TransmutationKnowledge> dirtyKnowledge = new LinkedHashMap<UUID, TransmutationKnowledge>();
+
+            for (UUID playerUUID : dirtyPlayers)
+            {
+                if (playerKnowledgeCache.get(playerUUID) != null)
+                {
+                    dirtyKnowledge.put(playerUUID, playerKnowledgeCache.get(playerUUID));
+                }
+            }
+
+            LogHelper.trace(String.format("Flushing transmutation knowledge of %s players", dirtyKnowledge.size()));
+            dirtyPlayers.clear();
+            writePlayerKnowledge(dirtyKnowledge);
+        }
+    }
+
+    /**
+     * Drops the knowledge of offline players that has not been used for a while, or that exceeds the maximum number of
+     * cached players, writing any unsaved changes first. Finished prefetches of offline players are dropped as well.
+     */
+    public void evictIdlePlayers()
+    {
+        Set<UUID> onlinePlayers = new HashSet<UUID>();
+        for (Object entityPlayer : FMLCommonHandler.instance().getMinecraftServerInstance().getConfigurationManager().playerEntityList)
+        {
+            onlinePlayers.add(((EntityPlayer) entityPlayer).getUniqueID());
+        }
+
+        Map<UUID, TransmutationKnowledge> modifiedKnowledge = new LinkedHashMap<UUID, TransmutationKnowledge>();
+        for (Map.Entry<UUID, TransmutationKnowledge> entry : playerKnowledgeCache.evict(onlinePlayers).entrySet())
+        {
+            if (entry.getValue().hasBeenModified())
+            {
+                modifiedKnowledge.put(entry.getKey(), entry.getValue());
+            }
+
+            dirtyPlayers.remove(entry.getKey());
+            knowledgeVersions.remove(entry.getKey());
+        }
+
+        // Prefetches of players that never finished logging in are not collected by anything else
+        for (Map.Entry<UUID, Future<TransmutationKnowledge>> entry : pendingLoads.entrySet())
+        {
+            if (!onlinePlayers.contains(entry.getKey()) && entry.getValue().isDone())
+            {
+                pendingLoads.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        writePlayerKnowledge(modifiedKnowledge);
+    }
+
+    private static boolean isWriteBehindEnabled()
+    {
+        return Settings.Knowledge.writeBehindInterval > 0;
+    }
+
+    private static PlayerKnowledgeChanges getUnsavedChanges(UUID playerUUID)
+    {
+        PlayerKnowledgeChanges changes = unsavedChanges.get(playerUUID);
+
+        if (changes == null)
+        {
+            changes = new PlayerKnowledgeChanges();
+            unsavedChanges.put(playerUUID, changes);
+        }
+
+        return changes;
+    }
+
+    private void markPlayerDirty(UUID playerUUID)
+    {
+        dirtyPlayers.add(playerUUID);
+
+        if (dirtyPlayers.size() >= Settings.Knowledge.maxDirtyPlayers)
+        {
+            flushDirtyPlayers();
+        }
+    }
+
+    /**
+     * Writes the supplied knowledge to the store, either directly or, with write-behind enabled, from a snapshot on the
+     * background I/O thread. Snapshots are taken here so the I/O thread never reads knowledge the server thread changes.
+     * Along with each snapshot the store gets the transmutations that changed since the last write, so stores that record
+     * individual changes only write those.
+     */
+    private void writePlayerKnowledge(Map<UUID, TransmutationKnowledge> knowledgeMap)
+    {
+        if (isWriteBehindEnabled())
+        {
+            final IPlayerKnowledgeStore store = playerKnowledgeStore;
+            final Map<UUID, TransmutationKnowledge> snapshots = new LinkedHashMap<UUID, TransmutationKnowledge>();
+            final Map<UUID, PlayerKnowledgeChanges> changes = new HashMap<UUID, PlayerKnowledgeChanges>();
+
+            for (Map.Entry<UUID, TransmutationKnowledge> entry : knowledgeMap.entrySet())
+            {
+                if (entry.getValue() != null)
+                {
+                    PlayerKnowledgeChanges playerChanges = unsavedChanges.remove(entry.getKey());
+
+                    // Changes that were not tracked (e.g. made through the knowledge directly) are written as a whole
+                    if (playerChanges == null)
+                    {
+                        playerChanges = new PlayerKnowledgeChanges();
+                        playerChanges.recordAllChanged();
+                    }
+
+                    snapshots.put(entry.getKey(), new TransmutationKnowledge(entry.getValue()));
+                    changes.put(entry.getKey(), playerChanges);
+                    entry.getValue().markAsSaved();
+                }
+            }
+
+            unwrittenSnapshots.putAll(snapshots);
+
+            AsyncIOHelper.submit("save player knowledge", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (Map.Entry<UUID, TransmutationKnowledge> entry : snapshots.entrySet())
+                    {
+                        store.saveChanges(entry.getKey(), entry.getValue(), changes.get(entry.getKey()));
+                        unwrittenSnapshots.remove(entry.getKey(), entry.getValue());
+                    }
+                }
+            });
+        }
+        else
+        {
+            for (Map.Entry<UUID, TransmutationKnowledge> entry : knowledgeMap.entrySet())
+            {
+                playerKnowledgeStore.save(entry.getKey(), entry.getValue());
             }
         }
     }
@@ -483,16 +924,26 @@ public class TransmutationKnowledgeRegistry
 
         if (playerKnowledgeDirectory != null)
         {
-            for (UUID playerUUID : playerKnowledgeMap.keySet())
-            {
-                SerializationHelper.writeTransmutationKnowledgeToFile(playerKnowledgeDirectory, playerUUID.toString() + ".json", playerKnowledgeMap.get(playerUUID));
-            }
+            writePlayerKnowledge(playerKnowledgeCache.asMap());
+            dirtyPlayers.clear();
         }
     }
 
     public void clear()
     {
         saveAll();
+        AsyncIOHelper.waitForPendingTasks();
+        pendingLoads.clear();
+        unsavedChanges.clear();
+        knowledgeVersions.clear();
+
+        if (playerKnowledgeReverseIndex != null && playerKnowledgeDirectory != null)
+        {
+            playerKnowledgeReverseIndex.writeToFile(new File(playerKnowledgeDirectory, Files.KNOWLEDGE_INDEX_FILE));
+            playerKnowledgeReverseIndex = null;
+        }
+
+        playerKnowledgeStore.close();
         transmutationKnowledgeRegistry = null;
     }
 }
@@ -0,0 +1,599 @@
+package com.pahimar.ee3.knowledge;
+
+import com.pahimar.ee3.api.exchange.EnergyValueRegistryProxy;
+import com.pahimar.ee3.exchange.EnergyValueRegistry;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.StatCollector;
+
+import java.util.*;
+
+/**
+ * Answers "display name contains" queries over a player's known transmutations without going through every display
+ * name on every query, and pages through the results in a given order without sorting them.
+ * <p/>
+ * The lowercased display name of every stack is computed once, and again only when the language changes. Every three
+ * letter sequence (trigram) of those names maps to the stacks whose name contains it, so a query of three or more
+ * letters only has to check the stacks under its rarest trigram. A query that contains the previous query (e.g. the
+ * search term after typing another letter) only has to check the stacks that matched the previous query.
+ * <p/>
+ * Each order the stacks are shown in is sorted once, and kept up to date as stacks are added and removed, until the
+ * language or the energy values change.
+ * <p/>
+ * The energy value of every stack is looked up once per version of the energy value registry. The stacks that have one
+ * are ranked by it, so the stacks affordable with a given amount of energy are those ranked below a cutoff found by
+ * binary search, and a change in the available energy only moves that cutoff.
+ */
+public class TransmutationSearchIndex
+{
+    private static final int GRAM_LENGTH = 3;
+    private static final String LANGUAGE_CODE_KEY = "language.code";
+
+    private final List<ItemStack> itemStacks = new ArrayList<ItemStack>();
+    private final List<String> displayNames = new ArrayList<String>();
+    private final Map<ItemStack, Integer> entryIds;
+    private final Map<String, IntList> gramEntries = new HashMap<String, IntList>();
+    private int entryCount;
+    private String languageCode;
+
+    private String lastSearchTerm;
+    private IntList lastMatches;
+
+    private final Map<Comparator<ItemStack>, IntList> orderings = new IdentityHashMap<Comparator<ItemStack>, IntList>();
+    private int energyValuesVersion;
+
+    private float[] energyValues;
+    private float[] rankedEnergyValues;
+    private int[] energyValueRanks;
+
+    /**
+     * @param comparator the comparator that decides whether two stacks are the same transmutation
+     */
+    public TransmutationSearchIndex(Comparator<ItemStack> comparator)
+    {
+        this.entryIds = new TreeMap<ItemStack, Integer>(comparator);
+    }
+
+    public void add(ItemStack itemStack)
+    {
+        if (itemStack != null && !entryIds.containsKey(itemStack))
+        {
+            int entryId = itemStacks.size();
+            itemStacks.add(itemStack);
+            displayNames.add(null);
+            entryIds.put(itemStack, entryId);
+            entryCount++;
+
+            if (languageCode != null)
+            {
+                indexDisplayName(entryId);
+            }
+
+            for (Map.Entry<Comparator<ItemStack>, IntList> ordering : orderings.entrySet())
+            {
+                insertIntoOrdering(ordering.getValue(), ordering.getKey(), entryId);
+            }
+
+            if (energyValues != null)
+            {
+                if (entryId == energyValues.length)
+                {
+                    energyValues = Arrays.copyOf(energyValues, entryId * 2 + 1);
+                }
+
+                energyValues[entryId] = lookUpEnergyValue(itemStack);
+            }
+
+            rankedEnergyValues = null;
+            lastSearchTerm = null;
+        }
+    }
+
+    public void remove(ItemStack itemStack)
+    {
+        Integer entryId = itemStack != null ? entryIds.remove(itemStack) : null;
+
+        if (entryId != null)
+        {
+            // The entry stays in the trigram lists, the null stack marks it as removed
+            itemStacks.set(entryId, null);
+            entryCount--;
+            lastSearchTerm = null;
+
+            for (IntList ordering : orderings.values())
+            {
+                ordering.removeValue(entryId);
+            }
+
+            rankedEnergyValues = null;
+
+            if (entryCount < itemStacks.size() / 2)
+            {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * @return the known stacks whose lowercased display name contains the lowercased search term, in the order they were
+     * added; all of them if the search term is null or empty
+     */
+    public List<ItemStack> search(String searchTerm)
+    {
+        IntList matches = searchEntries(searchTerm);
+        List<ItemStack> matchingItemStacks = new ArrayList<ItemStack>(matches.size);
+
+        for (int i = 0; i < matches.size; i++)
+        {
+            matchingItemStacks.add(itemStacks.get(matches.values[i]));
+        }
+
+        return matchingItemStacks;
+    }
+
+    /**
+     * Gets one page of the known stacks that match the search term and have an energy value of at most the given one, as
+     * they are ordered by the given comparator. Where the page starts is given as a fraction of the number of such
+     * stacks; the last page is always a full one (if there are enough stacks).
+     *
+     * @param comparator the ascending order to page through; it is sorted once and then reused
+     */
+    public List<ItemStack> getPage(String searchTerm, float maximumEnergyValue, Comparator<ItemStack> comparator, boolean descending, float startFraction, int pageSize)
+    {
+        IntList matches = searchEntries(searchTerm);
+        int affordableCount = getAffordableCount(maximumEnergyValue);
+        boolean[] isShown = null;
+        int shownCount = 0;
+
+        if (matches.size == entryCount)
+        {
+            // Everything matches the search term, so only the energy cutoff decides what is shown
+            shownCount = affordableCount;
+        }
+        else
+        {
+            isShown = new boolean[itemStacks.size()];
+
+            for (int i = 0; i < matches.size; i++)
+            {
+                if (energyValueRanks[matches.values[i]] < affordableCount)
+                {
+                    isShown[matches.values[i]] = true;
+                    shownCount++;
+                }
+            }
+        }
+
+        int startIndex = shownCount <= pageSize ? 0 : Math.min((int) (startFraction * shownCount), shownCount - pageSize);
+        IntList ordering = getOrdering(comparator);
+        List<ItemStack> page = new ArrayList<ItemStack>(pageSize);
+
+        if (shownCount == ordering.size)
+        {
+            // Nothing is filtered out, so the page can be read straight off the ordering
+            for (int i = startIndex; i < startIndex + pageSize && i < shownCount; i++)
+            {
+                page.add(itemStacks.get(ordering.values[descending ? ordering.size - 1 - i : i]));
+            }
+        }
+        else
+        {
+            int shownIndex = 0;
+
+            for (int i = 0; i < ordering.size && page.size() < pageSize; i++)
+            {
+                int entryId = ordering.values[descending ? ordering.size - 1 - i : i];
+
+                if (isShown != null ? isShown[entryId] : energyValueRanks[entryId] < affordableCount)
+                {
+                    if (shownIndex >= startIndex)
+                    {
+                        page.add(itemStacks.get(entryId));
+                    }
+
+                    shownIndex++;
+                }
+            }
+        }
+
+        return page;
+    }
+
+    private IntList searchEntries(String searchTerm)
+    {
+        String currentLanguageCode = StatCollector.translateToLocal(LANGUAGE_CODE_KEY);
+
+        if (!currentLanguageCode.equals(languageCode))
+        {
+            languageCode = currentLanguageCode;
+            reindexDisplayNames();
+        }
+
+        String lowerCaseSearchTerm = searchTerm != null ? searchTerm.toLowerCase() : "";
+        IntList candidates;
+
+        if (lastSearchTerm != null && lowerCaseSearchTerm.contains(lastSearchTerm))
+        {
+            candidates = lastMatches;
+        }
+        else if (lowerCaseSearchTerm.length() >= GRAM_LENGTH)
+        {
+            candidates = getRarestGramEntries(lowerCaseSearchTerm);
+        }
+        else
+        {
+            candidates = null;
+        }
+
+        IntList matches = new IntList(candidates != null ? candidates.size : itemStacks.size());
+
+        if (candidates != null)
+        {
+            for (int i = 0; i < candidates.size; i++)
+            {
+                addIfMatching(matches, candidates.values[i], lowerCaseSearchTerm);
+            }
+        }
+        else
+        {
+            for (int entryId = 0; entryId < itemStacks.size(); entryId++)
+            {
+                addIfMatching(matches, entryId, lowerCaseSearchTerm);
+            }
+        }
+
+        lastSearchTerm = lowerCaseSearchTerm;
+        lastMatches = matches;
+        return matches;
+    }
+
+    private void addIfMatching(IntList matches, int entryId, String lowerCaseSearchTerm)
+    {
+        if (itemStacks.get(entryId) != null && displayNames.get(entryId).contains(lowerCaseSearchTerm))
+        {
+            matches.add(entryId);
+        }
+    }
+
+    private IntList getRarestGramEntries(String lowerCaseSearchTerm)
+    {
+        IntList rarestGramEntries = null;
+
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseSearchTerm.length(); i++)
+        {
+            IntList entries = gramEntries.get(lowerCaseSearchTerm.substring(i, i + GRAM_LENGTH));
+
+            if (entries == null)
+            {
+                // No known display name contains this trigram, so none can contain the search term
+                return new IntList(0);
+            }
+            else if (rarestGramEntries == null || entries.size < rarestGramEntries.size)
+            {
+                rarestGramEntries = entries;
+            }
+        }
+
+        return rarestGramEntries;
+    }
+
+    /**
+     * @return the ids of all entries, sorted by the comparator
+     */
+    private IntList getOrdering(final Comparator<ItemStack> comparator)
+    {
+        checkEnergyValuesVersion();
+        IntList ordering = orderings.get(comparator);
+
+        if (ordering == null)
+        {
+            List<Integer> sortedEntryIds = new ArrayList<Integer>(entryIds.values());
+            Collections.sort(sortedEntryIds, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer entryId1, Integer entryId2)
+                {
+                    return comparator.compare(itemStacks.get(entryId1), itemStacks.get(entryId2));
+                }
+            });
+
+            ordering = new IntList(sortedEntryIds.size());
+            for (Integer entryId : sortedEntryIds)
+            {
+                ordering.add(entryId);
+            }
+            orderings.put(comparator, ordering);
+        }
+
+        return ordering;
+    }
+
+    /**
+     * @return the number of stacks that have an energy value of at most the given one; they are exactly the stacks with
+     * an energy value rank below that number
+     */
+    private int getAffordableCount(float maximumEnergyValue)
+    {
+        checkEnergyValuesVersion();
+
+        if (energyValues == null)
+        {
+            energyValues = new float[Math.max(itemStacks.size(), 1)];
+
+            for (int entryId = 0; entryId < itemStacks.size(); entryId++)
+            {
+                energyValues[entryId] = itemStacks.get(entryId) != null ? lookUpEnergyValue(itemStacks.get(entryId)) : Float.NaN;
+            }
+        }
+
+        if (rankedEnergyValues == null)
+        {
+            rankEnergyValues();
+        }
+
+        if (maximumEnergyValue <= 0f)
+        {
+            return 0;
+        }
+
+        // The first rank with a higher energy value
+        int low = 0;
+        int high = rankedEnergyValues.length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (rankedEnergyValues[middle] <= maximumEnergyValue)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private void rankEnergyValues()
+    {
+        List<Integer> rankedEntryIds = new ArrayList<Integer>(entryCount);
+
+        for (int entryId = 0; entryId < itemStacks.size(); entryId++)
+        {
+            if (itemStacks.get(entryId) != null && !Float.isNaN(energyValues[entryId]))
+            {
+                rankedEntryIds.add(entryId);
+            }
+        }
+
+        Collections.sort(rankedEntryIds, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer entryId1, Integer entryId2)
+            {
+                return Float.compare(energyValues[entryId1], energyValues[entryId2]);
+            }
+        });
+
+        rankedEnergyValues = new float[rankedEntryIds.size()];
+        energyValueRanks = new int[itemStacks.size()];
+        Arrays.fill(energyValueRanks, Integer.MAX_VALUE);
+
+        for (int rank = 0; rank < rankedEntryIds.size(); rank++)
+        {
+            rankedEnergyValues[rank] = energyValues[rankedEntryIds.get(rank)];
+            energyValueRanks[rankedEntryIds.get(rank)] = rank;
+        }
+    }
+
+    /**
+     * @return the energy value of the item stack, or NaN if it has none
+     */
+    private static float lookUpEnergyValue(ItemStack itemStack)
+    {
+        if (EnergyValueRegistryProxy.hasEnergyValue(itemStack))
+        {
+            return EnergyValueRegistryProxy.getEnergyValue(itemStack).getValue();
+        }
+
+        return Float.NaN;
+    }
+
+    /**
+     * Drops everything that depends on the energy values if they changed
+     */
+    private void checkEnergyValuesVersion()
+    {
+        int currentEnergyValuesVersion = EnergyValueRegistry.getInstance().getVersion();
+
+        if (energyValuesVersion != currentEnergyValuesVersion)
+        {
+            energyValuesVersion = currentEnergyValuesVersion;
+            orderings.clear();
+            energyValues = null;
+            rankedEnergyValues = null;
+        }
+    }
+
+    private void insertIntoOrdering(IntList ordering, Comparator<ItemStack> comparator, int entryId)
+    {
+        ItemStack itemStack = itemStacks.get(entryId);
+        int low = 0;
+        int high = ordering.size;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (comparator.compare(itemStacks.get(ordering.values[middle]), itemStack) <= 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        ordering.insert(low, entryId);
+    }
+
+    private void indexDisplayName(int entryId)
+    {
+        displayNames.set(entryId, itemStacks.get(entryId).getDisplayName().toLowerCase());
+        indexGrams(entryId);
+    }
+
+    private void indexGrams(int entryId)
+    {
+        String displayName = displayNames.get(entryId);
+        Set<String> grams = new HashSet<String>();
+
+        for (int i = 0; i + GRAM_LENGTH <= displayName.length(); i++)
+        {
+            grams.add(displayName.substring(i, i + GRAM_LENGTH));
+        }
+
+        for (String gram : grams)
+        {
+            IntList entries = gramEntries.get(gram);
+
+            if (entries == null)
+            {
+                entries = new IntList(4);
+                gramEntries.put(gram, entries);
+            }
+
+            // Entry ids are handed out in increasing order, so the lists stay sorted
+            entries.add(entryId);
+        }
+    }
+
+    private void reindexDisplayNames()
+    {
+        gramEntries.clear();
+        lastSearchTerm = null;
+
+        // Display names may sort differently in the new language
+        orderings.clear();
+
+        for (int entryId = 0; entryId < itemStacks.size(); entryId++)
+        {
+            if (itemStacks.get(entryId) != null)
+            {
+                indexDisplayName(entryId);
+            }
+            else
+            {
+                displayNames.set(entryId, null);
+            }
+        }
+    }
+
+    /**
+     * Drops removed entries, renumbering the remaining ones in the order they were added
+     */
+    private void compact()
+    {
+        List<ItemStack> remainingItemStacks = new ArrayList<ItemStack>(entryCount);
+        List<String> remainingDisplayNames = new ArrayList<String>(entryCount);
+        int[] newEntryIds = new int[itemStacks.size()];
+        Arrays.fill(newEntryIds, -1);
+
+        for (int entryId = 0; entryId < itemStacks.size(); entryId++)
+        {
+            if (itemStacks.get(entryId) != null)
+            {
+                newEntryIds[entryId] = remainingItemStacks.size();
+                remainingItemStacks.add(itemStacks.get(entryId));
+                remainingDisplayNames.add(displayNames.get(entryId));
+            }
+        }
+
+        itemStacks.clear();
+        itemStacks.addAll(remainingItemStacks);
+        displayNames.clear();
+        displayNames.addAll(remainingDisplayNames);
+        entryIds.clear();
+        gramEntries.clear();
+
+        for (int entryId = 0; entryId < itemStacks.size(); entryId++)
+        {
+            entryIds.put(itemStacks.get(entryId), entryId);
+
+            if (languageCode != null)
+            {
+                indexGrams(entryId);
+            }
+        }
+
+        // The orderings stay sorted, only the ids in them change
+        for (IntList ordering : orderings.values())
+        {
+            for (int i = 0; i < ordering.size; i++)
+            {
+                ordering.values[i] = newEntryIds[ordering.values[i]];
+            }
+        }
+
+        if (energyValues != null)
+        {
+            float[] remainingEnergyValues = new float[Math.max(itemStacks.size(), 1)];
+
+            for (int entryId = 0; entryId < newEntryIds.length; entryId++)
+            {
+                if (newEntryIds[entryId] >= 0)
+                {
+                    remainingEnergyValues[newEntryIds[entryId]] = energyValues[entryId];
+                }
+            }
+
+            energyValues = remainingEnergyValues;
+        }
+
+        rankedEnergyValues = null;
+    }
+
+    private static class IntList
+    {
+        private int[] values;
+        private int size;
+
+        private IntList(int initialCapacity)
+        {
+            this.values = new int[Math.max(initialCapacity, 1)];
+        }
+
+        private void add(int value)
+        {
+            insert(size, value);
+        }
+
+        private void insert(int index, int value)
+        {
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        private void removeValue(int value)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (values[i] == value)
+                {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.pahimar.ee3.network;
+
+import com.pahimar.ee3.network.message.MessageEffectBurst;
+import cpw.mods.fml.common.network.NetworkRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the particles and sounds spawned during a server tick, and at the end of the tick sends each group of effects
+ * that lie close together as a single {@link MessageEffectBurst}, to everyone within range of any of them
+ */
+public final class EffectBurstBroadcaster
+{
+    private static final double MAX_BURST_RADIUS = 16d;
+    private static final int MAX_EFFECTS_PER_BURST = 1024;
+
+    private static List<PendingBurst> pendingBursts = new ArrayList<PendingBurst>();
+
+    private EffectBurstBroadcaster()
+    {
+    }
+
+    public static synchronized void queueParticle(String particleName, int dimensionId, double xCoord, double yCoord, double zCoord, double xVelocity, double yVelocity, double zVelocity, double range)
+    {
+        getBurst(dimensionId, xCoord, yCoord, zCoord, range).addParticle(particleName, xCoord, yCoord, zCoord, xVelocity, yVelocity, zVelocity);
+    }
+
+    public static synchronized void queueSound(String soundName, int dimensionId, double xCoord, double yCoord, double zCoord, float volume, float pitch, double range)
+    {
+        getBurst(dimensionId, xCoord, yCoord, zCoord, range).addSound(soundName, xCoord, yCoord, zCoord, volume, pitch);
+    }
+
+    public static synchronized void flush()
+    {
+        if (!pendingBursts.isEmpty())
+        {
+            for (PendingBurst pendingBurst : pendingBursts)
+            {
+                MessageEffectBurst message = pendingBurst.message;
+                PacketHandler.INSTANCE.sendToAllAround(message, new NetworkRegistry.TargetPoint(pendingBurst.dimensionId, message.getXCoord(), message.getYCoord(), message.getZCoord(), pendingBurst.range + message.getSpread()));
+            }
+
+            pendingBursts = new ArrayList<PendingBurst>();
+        }
+    }
+
+    private static MessageEffectBurst getBurst(int dimensionId, double xCoord, double yCoord, double zCoord, double range)
+    {
+        for (PendingBurst pendingBurst : pendingBursts)
+        {
+            if (pendingBurst.dimensionId == dimensionId && pendingBurst.range == range && pendingBurst.message.getEffectCount() < MAX_EFFECTS_PER_BURST && pendingBurst.message.getDistanceFromOrigin(xCoord, yCoord, zCoord) <= MAX_BURST_RADIUS)
+            {
+                return pendingBurst.message;
+            }
+        }
+
+        PendingBurst pendingBurst = new PendingBurst(dimensionId, range, new MessageEffectBurst(xCoord, yCoord, zCoord));
+        pendingBursts.add(pendingBurst);
+        return pendingBurst.message;
+    }
+
+    private static class PendingBurst
+    {
+        private final int dimensionId;
+        private final double range;
+        private final MessageEffectBurst message;
+
+        private PendingBurst(int dimensionId, double range, MessageEffectBurst message)
+        {
+            this.dimensionId = dimensionId;
+            this.range = range;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.pahimar.ee3.network;
+
+import com.pahimar.ee3.api.exchange.EnergyValue;
+import com.pahimar.ee3.exchange.WrappedStack;
+import com.pahimar.ee3.network.message.MessageSetEnergyValue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the energy values changed during a server tick and broadcasts them to all players at the end of the tick, in
+ * as few {@link MessageSetEnergyValue} batches as possible. Repeated changes of the same stack within a tick are
+ * coalesced into the last one.
+ */
+public final class EnergyValueChangeBroadcaster
+{
+    private static final int MAX_CHANGES_PER_MESSAGE = 512;
+
+    private static Map<WrappedStack, EnergyValue> pendingChanges = new TreeMap<WrappedStack, EnergyValue>();
+
+    private EnergyValueChangeBroadcaster()
+    {
+    }
+
+    public static synchronized void queueChange(WrappedStack wrappedStack, EnergyValue energyValue)
+    {
+        if (wrappedStack != null && energyValue != null)
+        {
+            pendingChanges.put(wrappedStack, energyValue);
+        }
+    }
+
+    public static synchronized void flush()
+    {
+        if (!pendingChanges.isEmpty())
+        {
+            Map<WrappedStack, EnergyValue> batch = new TreeMap<WrappedStack, EnergyValue>();
+
+            for (Map.Entry<WrappedStack, EnergyValue> entry : pendingChanges.entrySet())
+            {
+                batch.put(entry.getKey(), entry.getValue());
+
+                if (batch.size() == MAX_CHANGES_PER_MESSAGE)
+                {
+                    PacketHandler.INSTANCE.sendToAll(new MessageSetEnergyValue(batch));
+                    batch = new TreeMap<WrappedStack, EnergyValue>();
+                }
+            }
+
+            if (!batch.isEmpty())
+            {
+                PacketHandler.INSTANCE.sendToAll(new MessageSetEnergyValue(batch));
+            }
+
+            pendingChanges = new TreeMap<WrappedStack, EnergyValue>();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.pahimar.ee3.network;
+
+import com.pahimar.ee3.api.exchange.EnergyValue;
+import com.pahimar.ee3.exchange.EnergyValueRegistry;
+import com.pahimar.ee3.exchange.WrappedStack;
+import com.pahimar.ee3.network.message.MessageSyncEnergyValues;
+import com.pahimar.ee3.serialization.EnergyValueRegistryBinarySerializer;
+import com.pahimar.ee3.util.CompressionHelper;
+import com.pahimar.ee3.util.LogHelper;
+import net.minecraft.entity.player.EntityPlayerMP;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the energy value sync payloads sent to clients, once per version of the energy value registry, and shares them
+ * between all recipients.
+ * <p/>
+ * Every snapshot of the registry is identified by the hash of its binary form. Clients announce the hash of the snapshot
+ * they cached for the server; they are sent nothing if it is still current, the changes since that snapshot if it is one
+ * of the last few snapshots of this server, or the full snapshot otherwise.
+ */
+public final class EnergyValueSyncCache
+{
+    private static final int MAX_PREVIOUS_SNAPSHOTS = 4;
+
+    private static boolean hasSnapshot = false;
+    private static int snapshotVersion;
+    private static String snapshotHash;
+    private static Map<WrappedStack, EnergyValue> snapshot;
+    private static List<MessageSyncEnergyValues> fullSnapshotMessages;
+    private static final LinkedHashMap<String, Map<WrappedStack, EnergyValue>> previousSnapshots = new LinkedHashMap<String, Map<WrappedStack, EnergyValue>>();
+    private static final Map<String, List<MessageSyncEnergyValues>> deltaMessages = new HashMap<String, List<MessageSyncEnergyValues>>();
+
+    private EnergyValueSyncCache()
+    {
+    }
+
+    /**
+     * @return the hash of the current energy values, as announced to clients on login
+     */
+    public static synchronized String getCurrentHash()
+    {
+        updateSnapshot();
+        return snapshotHash;
+    }
+
+    /**
+     * @param clientHash the hash of the snapshot the client has cached, or null if it has none
+     * @return the (chunked) messages that bring the client up to date, none if it already is
+     */
+    public static synchronized List<MessageSyncEnergyValues> getSyncMessages(String clientHash)
+    {
+        updateSnapshot();
+
+        if (snapshotHash.equals(clientHash))
+        {
+            return Collections.emptyList();
+        }
+
+        if (clientHash != null && previousSnapshots.containsKey(clientHash))
+        {
+            List<MessageSyncEnergyValues> messages = deltaMessages.get(clientHash);
+
+            if (messages == null)
+            {
+                byte[] delta = EnergyValueRegistryBinarySerializer.deltaToBytes(previousSnapshots.get(clientHash), snapshot);
+                messages = MessageSyncEnergyValues.createDelta(clientHash, snapshotHash, CompressionHelper.compressByteArray(delta));
+                deltaMessages.put(clientHash, messages);
+            }
+
+            return messages;
+        }
+
+        return fullSnapshotMessages;
+    }
+
+    /**
+     * Sends the player the messages that bring their client up to date
+     */
+    public static void sendTo(EntityPlayerMP entityPlayer, String clientHash)
+    {
+        for (MessageSyncEnergyValues message : getSyncMessages(clientHash))
+        {
+            PacketHandler.INSTANCE.sendTo(message, entityPlayer);
+        }
+    }
+
+    private static void updateSnapshot()
+    {
+        EnergyValueRegistry energyValueRegistry = EnergyValueRegistry.getInstance();
+
+        if (hasSnapshot && snapshotVersion == energyValueRegistry.getVersion())
+        {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        int version = energyValueRegistry.getVersion();
+        Map<WrappedStack, EnergyValue> stackValueMap = energyValueRegistry.getStackValueMap() != null ? energyValueRegistry.getStackValueMap() : Collections.<WrappedStack, EnergyValue>emptyMap();
+        byte[] snapshotBytes = EnergyValueRegistryBinarySerializer.snapshotToBytes(stackValueMap);
+        String hash = DigestUtils.md5Hex(snapshotBytes);
+
+        if (hasSnapshot && !hash.equals(snapshotHash))
+        {
+            previousSnapshots.remove(snapshotHash);
+            previousSnapshots.put(snapshotHash, snapshot);
+
+            Iterator<String> iterator = previousSnapshots.keySet().iterator();
+            while (previousSnapshots.size() > MAX_PREVIOUS_SNAPSHOTS)
+            {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        previousSnapshots.remove(hash);
+        deltaMessages.clear();
+
+        hasSnapshot = true;
+        snapshotVersion = version;
+        snapshotHash = hash;
+        snapshot = stackValueMap;
+        fullSnapshotMessages = MessageSyncEnergyValues.createFull(hash, CompressionHelper.compressByteArray(snapshotBytes));
+
+        LogHelper.trace(String.format("Built energy value sync snapshot %s (%s bytes) in %s ms", hash, snapshotBytes.length, (System.nanoTime() - startTime) / 100000 / 10F));
+    }
+}
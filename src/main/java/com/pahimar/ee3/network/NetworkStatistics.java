@@ -0,0 +1,117 @@
+package com.pahimar.ee3.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running totals of the EE3 network traffic seen by the server, per message type and direction: how many messages, how
+ * many encoded bytes, and how long they took to encode or decode
+ */
+public final class NetworkStatistics
+{
+    private static Map<String, MessageStatistics> statisticsMap = new LinkedHashMap<String, MessageStatistics>();
+    private static long startTime = System.currentTimeMillis();
+
+    private NetworkStatistics()
+    {
+    }
+
+    /**
+     * Records a message that was encoded or decoded once, and sent to or received from the given number of players
+     */
+    public static synchronized void record(Direction direction, Class<?> messageType, int players, int bytes, long nanos)
+    {
+        String key = direction + ":" + messageType.getSimpleName();
+        MessageStatistics messageStatistics = statisticsMap.get(key);
+
+        if (messageStatistics == null)
+        {
+            messageStatistics = new MessageStatistics(direction, messageType.getSimpleName());
+            statisticsMap.put(key, messageStatistics);
+        }
+
+        messageStatistics.count += players;
+        messageStatistics.bytes += (long) bytes * players;
+        messageStatistics.nanos += nanos;
+    }
+
+    /**
+     * @return a copy of the statistics recorded since the last reset, the message types with the most bytes first
+     */
+    public static synchronized List<MessageStatistics> getStatistics()
+    {
+        List<MessageStatistics> statistics = new ArrayList<MessageStatistics>(statisticsMap.size());
+
+        for (MessageStatistics messageStatistics : statisticsMap.values())
+        {
+            statistics.add(messageStatistics.copy());
+        }
+
+        Collections.sort(statistics, MessageStatistics.BYTES_DESCENDING);
+        return statistics;
+    }
+
+    public static synchronized long getStartTime()
+    {
+        return startTime;
+    }
+
+    public static synchronized void reset()
+    {
+        statisticsMap.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    public enum Direction
+    {
+        SENT, RECEIVED
+    }
+
+    public static class MessageStatistics
+    {
+        public static final Comparator<MessageStatistics> BYTES_DESCENDING = new Comparator<MessageStatistics>()
+        {
+            @Override
+            public int compare(MessageStatistics messageStatistics1, MessageStatistics messageStatistics2)
+            {
+                return messageStatistics1.bytes < messageStatistics2.bytes ? 1 : (messageStatistics1.bytes > messageStatistics2.bytes ? -1 : 0);
+            }
+        };
+
+        public final Direction direction;
+        public final String messageType;
+        public long count;
+        public long bytes;
+        public long nanos;
+
+        public MessageStatistics(Direction direction, String messageType)
+        {
+            this.direction = direction;
+            this.messageType = messageType;
+        }
+
+        public String getKey()
+        {
+            return direction + ":" + messageType;
+        }
+
+        public MessageStatistics copy()
+        {
+            MessageStatistics messageStatistics = new MessageStatistics(direction, messageType);
+            messageStatistics.count = count;
+            messageStatistics.bytes = bytes;
+            messageStatistics.nanos = nanos;
+            return messageStatistics;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s %s: %s messages, %s bytes, %.2f ms", direction, messageType, count, bytes, nanos / 1000000d);
+        }
+    }
+}
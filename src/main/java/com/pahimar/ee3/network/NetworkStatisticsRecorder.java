@@ -0,0 +1,171 @@
+package com.pahimar.ee3.network;
+
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.network.FMLEmbeddedChannel;
+import cpw.mods.fml.common.network.FMLOutboundHandler;
+import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.SimpleIndexedCodec;
+import cpw.mods.fml.relauncher.Side;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+/**
+ * Feeds {@link NetworkStatistics} from the server side of a channel. A handler either side of the channel's codec sees
+ * every message both as an {@link IMessage} and as the encoded {@link FMLProxyPacket}; the time between the two is the
+ * time spent encoding or decoding it. Messages sent to several players at once are encoded once, but counted once per
+ * player they are sent to.
+ */
+public final class NetworkStatisticsRecorder
+{
+    private static final ThreadLocal<PendingMessage> pendingMessage = new ThreadLocal<PendingMessage>();
+
+    private NetworkStatisticsRecorder()
+    {
+    }
+
+    public static void install(String channelName)
+    {
+        FMLEmbeddedChannel channel = NetworkRegistry.INSTANCE.getChannel(channelName, Side.SERVER);
+        String codecName = channel.findChannelHandlerNameForType(SimpleIndexedCodec.class);
+
+        channel.pipeline().addBefore(codecName, channelName + ":statistics:packets", new PacketSideHandler());
+        channel.pipeline().addAfter(codecName, channelName + ":statistics:messages", new MessageSideHandler());
+    }
+
+    /**
+     * Sits between the codec and the message handlers
+     */
+    private static class MessageSideHandler extends ChannelDuplexHandler
+    {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception
+        {
+            if (msg instanceof IMessage)
+            {
+                pendingMessage.set(new PendingMessage(msg.getClass(), 0));
+            }
+
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+        {
+            PendingMessage pending = pendingMessage.get();
+
+            if (pending != null && msg instanceof IMessage)
+            {
+                pendingMessage.remove();
+                NetworkStatistics.record(NetworkStatistics.Direction.RECEIVED, msg.getClass(), 1, pending.bytes, System.nanoTime() - pending.startTime);
+            }
+
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    /**
+     * Sits between the codec and the network
+     */
+    private static class PacketSideHandler extends ChannelDuplexHandler
+    {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception
+        {
+            PendingMessage pending = pendingMessage.get();
+
+            if (pending != null && msg instanceof FMLProxyPacket)
+            {
+                pendingMessage.remove();
+                // Taken before counting the recipients, which is not part of encoding the message
+                long nanos = System.nanoTime() - pending.startTime;
+                NetworkStatistics.record(NetworkStatistics.Direction.SENT, pending.messageType, countRecipients(ctx), ((FMLProxyPacket) msg).payload().readableBytes(), nanos);
+            }
+
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+        {
+            if (msg instanceof FMLProxyPacket)
+            {
+                pendingMessage.set(new PendingMessage(null, ((FMLProxyPacket) msg).payload().readableBytes()));
+            }
+
+            try
+            {
+                ctx.fireChannelRead(msg);
+            }
+            finally
+            {
+                // In case the packet could not be decoded
+                pendingMessage.remove();
+            }
+        }
+    }
+
+    /**
+     * @return how many players the message being written goes to, the same way {@link FMLOutboundHandler} picks them
+     */
+    private static int countRecipients(ChannelHandlerContext ctx)
+    {
+        FMLOutboundHandler.OutboundTarget outboundTarget = ctx.channel().attr(FMLOutboundHandler.FML_MESSAGETARGET).get();
+        Object outboundTargetArgs = ctx.channel().attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).get();
+
+        if (outboundTarget == FMLOutboundHandler.OutboundTarget.ALL)
+        {
+            return FMLCommonHandler.instance().getMinecraftServerInstance().getConfigurationManager().playerEntityList.size();
+        }
+        else if (outboundTarget == FMLOutboundHandler.OutboundTarget.DIMENSION || outboundTarget == FMLOutboundHandler.OutboundTarget.ALLAROUNDPOINT)
+        {
+            int recipients = 0;
+
+            for (Object player : FMLCommonHandler.instance().getMinecraftServerInstance().getConfigurationManager().playerEntityList)
+            {
+                EntityPlayerMP entityPlayer = (EntityPlayerMP) player;
+
+                if (outboundTarget == FMLOutboundHandler.OutboundTarget.DIMENSION)
+                {
+                    if (entityPlayer.dimension == (Integer) outboundTargetArgs)
+                    {
+                        recipients++;
+                    }
+                }
+                else
+                {
+                    NetworkRegistry.TargetPoint targetPoint = (NetworkRegistry.TargetPoint) outboundTargetArgs;
+                    double dx = targetPoint.x - entityPlayer.posX;
+                    double dy = targetPoint.y - entityPlayer.posY;
+                    double dz = targetPoint.z - entityPlayer.posZ;
+
+                    if (entityPlayer.dimension == targetPoint.dimension && dx * dx + dy * dy + dz * dz < targetPoint.range * targetPoint.range)
+                    {
+                        recipients++;
+                    }
+                }
+            }
+
+            return recipients;
+        }
+
+        return 1;
+    }
+
+    private static class PendingMessage
+    {
+        private final Class<?> messageType;
+        private final int bytes;
+        private final long startTime;
+
+        private PendingMessage(Class<?> messageType, int bytes)
+        {
+            this.messageType = messageType;
+            this.bytes = bytes;
+            this.startTime = System.nanoTime();
+        }
+    }
+}
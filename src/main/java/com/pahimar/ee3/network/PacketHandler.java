@@ -30,5 +30,13 @@ public class PacketHandler
         INSTANCE.registerMessage(MessageSliderElementUpdated.class, MessageSliderElementUpdated.class, 15, Side.SERVER);
         INSTANCE.registerMessage(MessageTransmutationKnowledgeUpdate.class, MessageTransmutationKnowledgeUpdate.class, 16, Side.CLIENT);
         INSTANCE.registerMessage(MessageTileEntityResearchStation.class, MessageTileEntityResearchStation.class, 17, Side.CLIENT);
+        INSTANCE.registerMessage(MessageEnergyValuesVersion.class, MessageEnergyValuesVersion.class, 18, Side.CLIENT);
+        INSTANCE.registerMessage(MessageRequestEnergyValues.class, MessageRequestEnergyValues.class, 19, Side.SERVER);
+        INSTANCE.registerMessage(MessageTransmutationKnowledgeChange.class, MessageTransmutationKnowledgeChange.class, 20, Side.CLIENT);
+        INSTANCE.registerMessage(MessageRequestTransmutationKnowledge.class, MessageRequestTransmutationKnowledge.class, 21, Side.SERVER);
+        INSTANCE.registerMessage(MessageTileEntitySync.class, MessageTileEntitySync.class, 22, Side.CLIENT);
+        INSTANCE.registerMessage(MessageEffectBurst.class, MessageEffectBurst.class, 23, Side.CLIENT);
+
+        NetworkStatisticsRecorder.install(Reference.LOWERCASE_MOD_ID);
     }
 }
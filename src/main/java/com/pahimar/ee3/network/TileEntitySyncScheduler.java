@@ -0,0 +1,72 @@
+package com.pahimar.ee3.network;
+
+import com.pahimar.ee3.network.message.MessageTileEntitySync;
+import com.pahimar.ee3.tileentity.TileEntityEE;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.Packet;
+import net.minecraft.world.WorldServer;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the tile entities whose synced fields changed during a server tick, and at the end of the tick sends one
+ * {@link MessageTileEntitySync} per tile entity, holding only the changed fields, to the players tracking its chunk
+ */
+public final class TileEntitySyncScheduler
+{
+    private static Set<TileEntityEE> scheduledTileEntities = new LinkedHashSet<TileEntityEE>();
+
+    private TileEntitySyncScheduler()
+    {
+    }
+
+    public static synchronized void schedule(TileEntityEE tileEntity)
+    {
+        scheduledTileEntities.add(tileEntity);
+    }
+
+    public static synchronized void flush()
+    {
+        if (!scheduledTileEntities.isEmpty())
+        {
+            Set<TileEntityEE> tileEntities = scheduledTileEntities;
+            scheduledTileEntities = new LinkedHashSet<TileEntityEE>();
+
+            for (TileEntityEE tileEntity : tileEntities)
+            {
+                int changedFields = tileEntity.takeChangedSyncFields();
+
+                if (changedFields != 0 && !tileEntity.isInvalid() && tileEntity.getWorldObj() instanceof WorldServer)
+                {
+                    sendToTrackingPlayers(tileEntity, changedFields);
+                }
+            }
+        }
+    }
+
+    private static void sendToTrackingPlayers(TileEntityEE tileEntity, int changedFields)
+    {
+        WorldServer worldServer = (WorldServer) tileEntity.getWorldObj();
+        int chunkX = tileEntity.xCoord >> 4;
+        int chunkZ = tileEntity.zCoord >> 4;
+
+        // Encoded once, and only if someone is tracking the chunk
+        Packet packet = null;
+
+        for (Object entityPlayer : worldServer.playerEntities)
+        {
+            EntityPlayerMP entityPlayerMP = (EntityPlayerMP) entityPlayer;
+
+            if (worldServer.getPlayerManager().isPlayerWatchingChunk(entityPlayerMP, chunkX, chunkZ))
+            {
+                if (packet == null)
+                {
+                    packet = PacketHandler.INSTANCE.getPacketFrom(new MessageTileEntitySync(tileEntity, changedFields));
+                }
+
+                entityPlayerMP.playerNetServerHandler.sendPacket(packet);
+            }
+        }
+    }
+}
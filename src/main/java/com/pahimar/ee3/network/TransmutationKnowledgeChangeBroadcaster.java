@@ -0,0 +1,117 @@
+package com.pahimar.ee3.network;
+
+import com.pahimar.ee3.inventory.ContainerTransmutationTablet;
+import cpw.mods.fml.common.FMLCommonHandler;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Passes changes of a player's knowledge on to every Transmutation Tablet that is open with that player's tome in it, so
+ * the tablets can update in place rather than being sent the whole of the player's knowledge again.
+ * <p/>
+ * Clients that fell out of step ask for the whole of the knowledge again; those requests arrive on the network thread and
+ * are answered at the end of the server tick, as the tablets' knowledge is only ever read on the server thread.
+ */
+public final class TransmutationKnowledgeChangeBroadcaster
+{
+    private static final Queue<ResyncRequest> resyncRequests = new ConcurrentLinkedQueue<ResyncRequest>();
+
+    private TransmutationKnowledgeChangeBroadcaster()
+    {
+    }
+
+    public static void sendLearned(UUID playerUUID, ItemStack itemStack, int knowledgeVersion)
+    {
+        for (EntityPlayerMP entityPlayer : getPlayersViewingKnowledgeOf(playerUUID))
+        {
+            ((ContainerTransmutationTablet) entityPlayer.openContainer).sendTransmutationKnowledgeChange(entityPlayer, itemStack, true, knowledgeVersion);
+        }
+    }
+
+    public static void sendForgotten(UUID playerUUID, ItemStack itemStack, int knowledgeVersion)
+    {
+        for (EntityPlayerMP entityPlayer : getPlayersViewingKnowledgeOf(playerUUID))
+        {
+            ((ContainerTransmutationTablet) entityPlayer.openContainer).sendTransmutationKnowledgeChange(entityPlayer, itemStack, false, knowledgeVersion);
+        }
+    }
+
+    public static void sendForgotEverything(UUID playerUUID, int knowledgeVersion)
+    {
+        for (EntityPlayerMP entityPlayer : getPlayersViewingKnowledgeOf(playerUUID))
+        {
+            ((ContainerTransmutationTablet) entityPlayer.openContainer).sendTransmutationKnowledgeReset(entityPlayer, knowledgeVersion);
+        }
+    }
+
+    private static List<EntityPlayerMP> getPlayersViewingKnowledgeOf(UUID playerUUID)
+    {
+        List<EntityPlayerMP> viewingPlayers = new ArrayList<EntityPlayerMP>();
+        MinecraftServer minecraftServer = FMLCommonHandler.instance().getMinecraftServerInstance();
+
+        if (minecraftServer != null && minecraftServer.getConfigurationManager() != null)
+        {
+            for (Object entityPlayer : minecraftServer.getConfigurationManager().playerEntityList)
+            {
+                EntityPlayerMP entityPlayerMP = (EntityPlayerMP) entityPlayer;
+
+                if (entityPlayerMP.openContainer instanceof ContainerTransmutationTablet && ((ContainerTransmutationTablet) entityPlayerMP.openContainer).isShowingKnowledgeOf(playerUUID))
+                {
+                    viewingPlayers.add(entityPlayerMP);
+                }
+            }
+        }
+
+        return viewingPlayers;
+    }
+
+    public static void requestResync(EntityPlayerMP entityPlayer, int xCoord, int yCoord, int zCoord)
+    {
+        if (entityPlayer != null)
+        {
+            resyncRequests.add(new ResyncRequest(entityPlayer, xCoord, yCoord, zCoord));
+        }
+    }
+
+    /**
+     * Sends the players that asked for it the whole of the knowledge shown by their open tablet. Called on the server
+     * thread.
+     */
+    public static void sendRequestedResyncs()
+    {
+        ResyncRequest resyncRequest;
+        while ((resyncRequest = resyncRequests.poll()) != null)
+        {
+            if (resyncRequest.entityPlayer.openContainer instanceof ContainerTransmutationTablet)
+            {
+                ContainerTransmutationTablet containerTransmutationTablet = (ContainerTransmutationTablet) resyncRequest.entityPlayer.openContainer;
+
+                if (containerTransmutationTablet.tileEntityTransmutationTablet.xCoord == resyncRequest.xCoord && containerTransmutationTablet.tileEntityTransmutationTablet.yCoord == resyncRequest.yCoord && containerTransmutationTablet.tileEntityTransmutationTablet.zCoord == resyncRequest.zCoord)
+                {
+                    PacketHandler.INSTANCE.sendTo(containerTransmutationTablet.createTransmutationKnowledgeUpdate(), resyncRequest.entityPlayer);
+                }
+            }
+        }
+    }
+
+    private static final class ResyncRequest
+    {
+        private final EntityPlayerMP entityPlayer;
+        private final int xCoord, yCoord, zCoord;
+
+        private ResyncRequest(EntityPlayerMP entityPlayer, int xCoord, int yCoord, int zCoord)
+        {
+            this.entityPlayer = entityPlayer;
+            this.xCoord = xCoord;
+            this.yCoord = yCoord;
+            this.zCoord = zCoord;
+        }
+    }
+}
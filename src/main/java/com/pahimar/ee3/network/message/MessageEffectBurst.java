@@ -0,0 +1,236 @@
+package com.pahimar.ee3.network.message;
+
+import com.pahimar.ee3.EquivalentExchange3;
+import com.pahimar.ee3.configuration.SoundModeOption;
+import com.pahimar.ee3.reference.Settings;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Carries a burst of particles and sounds around a single origin, in place of one {@link MessageSingleParticleEvent} or
+ * {@link MessageSoundEvent} per effect. Each effect is stored as an offset from the origin, and refers to its particle or
+ * sound name by index into a table of the names used in the burst.
+ */
+public class MessageEffectBurst implements IMessage, IMessageHandler<MessageEffectBurst, IMessage>
+{
+    private static final int PARTICLE_FLOATS = 6;
+    private static final int SOUND_FLOATS = 5;
+
+    private double xCoord, yCoord, zCoord;
+    private List<String> effectNames;
+    private int particleCount;
+    private short[] particleNameIndices;
+    private float[] particleData;
+    private int soundCount;
+    private short[] soundNameIndices;
+    private float[] soundData;
+    private double spread;
+
+    public MessageEffectBurst()
+    {
+    }
+
+    public MessageEffectBurst(double xCoord, double yCoord, double zCoord)
+    {
+        this.xCoord = xCoord;
+        this.yCoord = yCoord;
+        this.zCoord = zCoord;
+        this.effectNames = new ArrayList<String>();
+        this.particleNameIndices = new short[8];
+        this.particleData = new float[8 * PARTICLE_FLOATS];
+        this.soundNameIndices = new short[1];
+        this.soundData = new float[SOUND_FLOATS];
+    }
+
+    public void addParticle(String particleName, double xCoord, double yCoord, double zCoord, double xVelocity, double yVelocity, double zVelocity)
+    {
+        if (particleCount == particleNameIndices.length)
+        {
+            particleNameIndices = Arrays.copyOf(particleNameIndices, particleCount * 2);
+            particleData = Arrays.copyOf(particleData, particleCount * 2 * PARTICLE_FLOATS);
+        }
+
+        particleNameIndices[particleCount] = getNameIndex(particleName);
+        int dataIndex = particleCount * PARTICLE_FLOATS;
+        particleData[dataIndex] = (float) (xCoord - this.xCoord);
+        particleData[dataIndex + 1] = (float) (yCoord - this.yCoord);
+        particleData[dataIndex + 2] = (float) (zCoord - this.zCoord);
+        particleData[dataIndex + 3] = (float) xVelocity;
+        particleData[dataIndex + 4] = (float) yVelocity;
+        particleData[dataIndex + 5] = (float) zVelocity;
+        particleCount++;
+
+        spread = Math.max(spread, getDistanceFromOrigin(xCoord, yCoord, zCoord));
+    }
+
+    public void addSound(String soundName, double xCoord, double yCoord, double zCoord, float volume, float pitch)
+    {
+        if (soundCount == soundNameIndices.length)
+        {
+            soundNameIndices = Arrays.copyOf(soundNameIndices, soundCount * 2);
+            soundData = Arrays.copyOf(soundData, soundCount * 2 * SOUND_FLOATS);
+        }
+
+        soundNameIndices[soundCount] = getNameIndex(soundName);
+        int dataIndex = soundCount * SOUND_FLOATS;
+        soundData[dataIndex] = (float) (xCoord - this.xCoord);
+        soundData[dataIndex + 1] = (float) (yCoord - this.yCoord);
+        soundData[dataIndex + 2] = (float) (zCoord - this.zCoord);
+        soundData[dataIndex + 3] = volume;
+        soundData[dataIndex + 4] = pitch;
+        soundCount++;
+
+        spread = Math.max(spread, getDistanceFromOrigin(xCoord, yCoord, zCoord));
+    }
+
+    public double getXCoord()
+    {
+        return xCoord;
+    }
+
+    public double getYCoord()
+    {
+        return yCoord;
+    }
+
+    public double getZCoord()
+    {
+        return zCoord;
+    }
+
+    public int getEffectCount()
+    {
+        return particleCount + soundCount;
+    }
+
+    /**
+     * @return the distance of the effect furthest from the origin
+     */
+    public double getSpread()
+    {
+        return spread;
+    }
+
+    public double getDistanceFromOrigin(double xCoord, double yCoord, double zCoord)
+    {
+        double xDistance = xCoord - this.xCoord;
+        double yDistance = yCoord - this.yCoord;
+        double zDistance = zCoord - this.zCoord;
+        return Math.sqrt(xDistance * xDistance + yDistance * yDistance + zDistance * zDistance);
+    }
+
+    private short getNameIndex(String effectName)
+    {
+        int nameIndex = effectNames.indexOf(effectName);
+
+        if (nameIndex == -1)
+        {
+            nameIndex = effectNames.size();
+            effectNames.add(effectName);
+        }
+
+        return (short) nameIndex;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.xCoord = buf.readDouble();
+        this.yCoord = buf.readDouble();
+        this.zCoord = buf.readDouble();
+
+        int nameCount = buf.readShort();
+        this.effectNames = new ArrayList<String>(nameCount);
+        for (int i = 0; i < nameCount; i++)
+        {
+            this.effectNames.add(ByteBufUtils.readUTF8String(buf));
+        }
+
+        this.particleCount = buf.readShort();
+        this.particleNameIndices = new short[particleCount];
+        this.particleData = new float[particleCount * PARTICLE_FLOATS];
+        for (int i = 0; i < particleCount; i++)
+        {
+            this.particleNameIndices[i] = buf.readShort();
+            for (int j = 0; j < PARTICLE_FLOATS; j++)
+            {
+                this.particleData[i * PARTICLE_FLOATS + j] = buf.readFloat();
+            }
+        }
+
+        this.soundCount = buf.readShort();
+        this.soundNameIndices = new short[soundCount];
+        this.soundData = new float[soundCount * SOUND_FLOATS];
+        for (int i = 0; i < soundCount; i++)
+        {
+            this.soundNameIndices[i] = buf.readShort();
+            for (int j = 0; j < SOUND_FLOATS; j++)
+            {
+                this.soundData[i * SOUND_FLOATS + j] = buf.readFloat();
+            }
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeDouble(xCoord);
+        buf.writeDouble(yCoord);
+        buf.writeDouble(zCoord);
+
+        buf.writeShort(effectNames.size());
+        for (String effectName : effectNames)
+        {
+            ByteBufUtils.writeUTF8String(buf, effectName);
+        }
+
+        buf.writeShort(particleCount);
+        for (int i = 0; i < particleCount; i++)
+        {
+            buf.writeShort(particleNameIndices[i]);
+            for (int j = 0; j < PARTICLE_FLOATS; j++)
+            {
+                buf.writeFloat(particleData[i * PARTICLE_FLOATS + j]);
+            }
+        }
+
+        buf.writeShort(soundCount);
+        for (int i = 0; i < soundCount; i++)
+        {
+            buf.writeShort(soundNameIndices[i]);
+            for (int j = 0; j < SOUND_FLOATS; j++)
+            {
+                buf.writeFloat(soundData[i * SOUND_FLOATS + j]);
+            }
+        }
+    }
+
+    @Override
+    public IMessage onMessage(MessageEffectBurst message, MessageContext ctx)
+    {
+        for (int i = 0; i < message.particleCount; i++)
+        {
+            int dataIndex = i * PARTICLE_FLOATS;
+            EquivalentExchange3.proxy.spawnParticle(message.effectNames.get(message.particleNameIndices[i]), message.xCoord + message.particleData[dataIndex], message.yCoord + message.particleData[dataIndex + 1], message.zCoord + message.particleData[dataIndex + 2], message.particleData[dataIndex + 3], message.particleData[dataIndex + 4], message.particleData[dataIndex + 5]);
+        }
+
+        // Sounds at a location have no player they originate from, so they are only played if all sounds are
+        if (Settings.Sounds.soundMode == SoundModeOption.All)
+        {
+            for (int i = 0; i < message.soundCount; i++)
+            {
+                int dataIndex = i * SOUND_FLOATS;
+                EquivalentExchange3.proxy.playSound(message.effectNames.get(message.soundNameIndices[i]), (float) (message.xCoord + message.soundData[dataIndex]), (float) (message.yCoord + message.soundData[dataIndex + 1]), (float) (message.zCoord + message.soundData[dataIndex + 2]), message.soundData[dataIndex + 3], message.soundData[dataIndex + 4]);
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.pahimar.ee3.network.message;
+
+import com.pahimar.ee3.client.util.EnergyValueSyncReceiver;
+import cpw.mods.fml.client.FMLClientHandler;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Tells a client which version (by hash) of the energy values the server has. The client answers with the hash of the
+ * snapshot it has cached for the server, and uses that snapshot right away if it is the current one.
+ */
+public class MessageEnergyValuesVersion implements IMessage, IMessageHandler<MessageEnergyValuesVersion, IMessage>
+{
+    public String hash;
+
+    public MessageEnergyValuesVersion()
+    {
+    }
+
+    public MessageEnergyValuesVersion(String hash)
+    {
+        this.hash = hash;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.hash = ByteBufUtils.readUTF8String(buf);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        ByteBufUtils.writeUTF8String(buf, hash);
+    }
+
+    @Override
+    public IMessage onMessage(MessageEnergyValuesVersion message, MessageContext ctx)
+    {
+        // The integrated server shares its energy value registry with the client
+        if (FMLClientHandler.instance().getClient().isIntegratedServerRunning())
+        {
+            return null;
+        }
+
+        // Reading the cached snapshot is left to the sync thread, which also sends the reply
+        EnergyValueSyncReceiver.onVersionAnnounced(message.hash);
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.pahimar.ee3.network.message;
+
+import com.pahimar.ee3.network.EnergyValueSyncCache;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Sent by a client with the hash of the energy value snapshot it has cached for the server (if any). The server replies
+ * with nothing if that snapshot is current, or with what the client is missing otherwise.
+ */
+public class MessageRequestEnergyValues implements IMessage, IMessageHandler<MessageRequestEnergyValues, IMessage>
+{
+    public String cachedHash;
+
+    public MessageRequestEnergyValues()
+    {
+    }
+
+    public MessageRequestEnergyValues(String cachedHash)
+    {
+        this.cachedHash = cachedHash;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.cachedHash = buf.readBoolean() ? ByteBufUtils.readUTF8String(buf) : null;
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeBoolean(cachedHash != null);
+
+        if (cachedHash != null)
+        {
+            ByteBufUtils.writeUTF8String(buf, cachedHash);
+        }
+    }
+
+    @Override
+    public IMessage onMessage(MessageRequestEnergyValues message, MessageContext ctx)
+    {
+        EnergyValueSyncCache.sendTo(ctx.getServerHandler().playerEntity, message.cachedHash);
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.pahimar.ee3.network.message;
+
+import com.pahimar.ee3.network.TransmutationKnowledgeChangeBroadcaster;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Sent by a client whose open Transmutation Tablet has fallen out of step with the server's. The server replies with the
+ * whole of the knowledge the tablet shows.
+ */
+public class MessageRequestTransmutationKnowledge implements IMessage, IMessageHandler<MessageRequestTransmutationKnowledge, IMessage>
+{
+    public int xCoord, yCoord, zCoord;
+
+    public MessageRequestTransmutationKnowledge()
+    {
+    }
+
+    public MessageRequestTransmutationKnowledge(int xCoord, int yCoord, int zCoord)
+    {
+        this.xCoord = xCoord;
+        this.yCoord = yCoord;
+        this.zCoord = zCoord;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.xCoord = buf.readInt();
+        this.yCoord = buf.readInt();
+        this.zCoord = buf.readInt();
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(xCoord);
+        buf.writeInt(yCoord);
+        buf.writeInt(zCoord);
+    }
+
+    /**
+     * Runs on the network thread, so the update is only built on the server thread, once the tick ends
+     */
+    @Override
+    public IMessage onMessage(MessageRequestTransmutationKnowledge message, MessageContext ctx)
+    {
+        TransmutationKnowledgeChangeBroadcaster.requestResync(ctx.getServerHandler().playerEntity, message.xCoord, message.yCoord, message.zCoord);
+        return null;
+    }
+}
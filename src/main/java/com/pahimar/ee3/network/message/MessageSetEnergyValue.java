@@ -1,19 +1,28 @@
 package com.pahimar.ee3.network.message;
 
 import com.pahimar.ee3.api.exchange.EnergyValue;
-import com.pahimar.ee3.exchange.EnergyValueRegistry;
-import com.pahimar.ee3.exchange.EnergyValueStackMapping;
+import com.pahimar.ee3.client.util.EnergyValueSyncReceiver;
 import com.pahimar.ee3.exchange.WrappedStack;
-import com.pahimar.ee3.util.CompressionHelper;
+import com.pahimar.ee3.serialization.EnergyValueRegistryBinarySerializer;
 import com.pahimar.ee3.util.LogHelper;
+import cpw.mods.fml.client.FMLClientHandler;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import io.netty.buffer.ByteBuf;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Carries a batch of changed energy values, as binary (see {@link EnergyValueRegistryBinarySerializer}), which the client
+ * applies as a single registry update
+ */
 public class MessageSetEnergyValue implements IMessage, IMessageHandler<MessageSetEnergyValue, IMessage>
 {
-    public EnergyValueStackMapping energyValueStackMapping;
+    public Map<WrappedStack, EnergyValue> energyValueStackMap;
+    private byte[] energyValueStackMapBytes;
 
     public MessageSetEnergyValue()
     {
@@ -21,57 +30,56 @@ public class MessageSetEnergyValue implements IMessage, IMessageHandler<MessageS
 
     public MessageSetEnergyValue(WrappedStack wrappedStack, EnergyValue energyValue)
     {
-        this.energyValueStackMapping = new EnergyValueStackMapping(wrappedStack, energyValue);
+        this(Collections.singletonMap(wrappedStack, energyValue));
+    }
+
+    public MessageSetEnergyValue(Map<WrappedStack, EnergyValue> energyValueStackMap)
+    {
+        this.energyValueStackMap = energyValueStackMap;
     }
 
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        byte[] compressedEnergyValueStackMapping = null;
-        int energyValueStackMappingByteCount = buf.readInt();
+        byte[] energyValueStackMapBytes = new byte[buf.readInt()];
+        buf.readBytes(energyValueStackMapBytes);
 
-        if (energyValueStackMappingByteCount > 0)
+        try
         {
-            compressedEnergyValueStackMapping = buf.readBytes(energyValueStackMappingByteCount).array();
+            this.energyValueStackMap = EnergyValueRegistryBinarySerializer.snapshotFromBytes(energyValueStackMapBytes);
         }
-
-        if (compressedEnergyValueStackMapping != null)
+        catch (IOException e)
         {
-            String decompressedEnergyValueStackMapping = CompressionHelper.decompressStringFromByteArray(compressedEnergyValueStackMapping);
-            this.energyValueStackMapping = EnergyValueStackMapping.createFromJson(decompressedEnergyValueStackMapping);
+            e.printStackTrace();
         }
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
-        byte[] compressedBytes = null;
-        String jsonEnergyValueStackMapping = this.energyValueStackMapping.toJson();
-
-
-        if (jsonEnergyValueStackMapping != null)
+        // Encoded once, even if the message is sent to several players
+        if (energyValueStackMapBytes == null)
         {
-            compressedBytes = CompressionHelper.compressStringToByteArray(jsonEnergyValueStackMapping);
+            energyValueStackMapBytes = EnergyValueRegistryBinarySerializer.snapshotToBytes(energyValueStackMap);
         }
 
-        if (compressedBytes != null)
-        {
-            buf.writeInt(compressedBytes.length);
-            buf.writeBytes(compressedBytes);
-        }
-        else
-        {
-            buf.writeInt(0);
-        }
+        buf.writeInt(energyValueStackMapBytes.length);
+        buf.writeBytes(energyValueStackMapBytes);
     }
 
     @Override
     public IMessage onMessage(MessageSetEnergyValue message, MessageContext ctx)
     {
-        if (message.energyValueStackMapping != null && message.energyValueStackMapping.wrappedStack != null && message.energyValueStackMapping.energyValue != null)
+        // The integrated server shares its energy value registry with the client
+        if (FMLClientHandler.instance().getClient().isIntegratedServerRunning())
+        {
+            return null;
+        }
+
+        if (message.energyValueStackMap != null && !message.energyValueStackMap.isEmpty())
         {
-            EnergyValueRegistry.getInstance().setEnergyValue(message.energyValueStackMapping.wrappedStack, message.energyValueStackMapping.energyValue);
-            LogHelper.info(String.format("Client successfully received new EnergyValue '%s' for object '%s'", message.energyValueStackMapping.wrappedStack, message.energyValueStackMapping.energyValue));
+            EnergyValueSyncReceiver.receiveChanges(message.energyValueStackMap);
+            LogHelper.info(String.format("Client successfully received %s new EnergyValues from server", message.energyValueStackMap.size()));
         }
         else
         {
@@ -1,34 +1,76 @@
 package com.pahimar.ee3.network.message;
 
-import com.google.gson.stream.JsonReader;
-import com.pahimar.ee3.api.exchange.EnergyValue;
-import com.pahimar.ee3.exchange.EnergyValueRegistry;
-import com.pahimar.ee3.exchange.EnergyValueStackMapping;
-import com.pahimar.ee3.exchange.WrappedStack;
-import com.pahimar.ee3.serialization.JsonSerialization;
-import com.pahimar.ee3.util.CompressionHelper;
-import com.pahimar.ee3.util.LogHelper;
+import com.pahimar.ee3.client.util.EnergyValueSyncReceiver;
+import com.pahimar.ee3.serialization.EnergyValueRegistryBinarySerializer;
+import cpw.mods.fml.client.FMLClientHandler;
+import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import io.netty.buffer.ByteBuf;
 
-import java.io.IOException;
-import java.io.StringReader;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Carries one chunk of either a full snapshot of the server's energy values, or the changes since a snapshot the client
+ * has cached, as compressed binary (see {@link EnergyValueRegistryBinarySerializer}). Payloads are split into chunks so
+ * no single packet exceeds the packet size limit. The chunks are built once per registry version on the server and sent
+ * to every client that needs them; the client reassembles and decodes them off the network thread.
+ */
 public class MessageSyncEnergyValues implements IMessage, IMessageHandler<MessageSyncEnergyValues, IMessage>
 {
-    public String jsonEnergyValueRegistry;
+    public static final byte FULL_SNAPSHOT = 0;
+    public static final byte DELTA = 1;
+
+    private static final int MAX_CHUNK_SIZE = 30 * 1024;
+
+    public byte payloadType;
+    public String baseHash;
+    public String hash;
+    public int chunkIndex;
+    public int chunkCount;
+    public byte[] payloadChunk;
 
     public MessageSyncEnergyValues()
     {
     }
 
-    public MessageSyncEnergyValues(EnergyValueRegistry energyValueRegistry)
+    private MessageSyncEnergyValues(byte payloadType, String baseHash, String hash, int chunkIndex, int chunkCount, byte[] payloadChunk)
+    {
+        this.payloadType = payloadType;
+        this.baseHash = baseHash;
+        this.hash = hash;
+        this.chunkIndex = chunkIndex;
+        this.chunkCount = chunkCount;
+        this.payloadChunk = payloadChunk;
+    }
+
+    public static List<MessageSyncEnergyValues> createFull(String hash, byte[] compressedSnapshot)
+    {
+        return createChunks(FULL_SNAPSHOT, "", hash, compressedSnapshot);
+    }
+
+    public static List<MessageSyncEnergyValues> createDelta(String baseHash, String hash, byte[] compressedDelta)
     {
-        this.jsonEnergyValueRegistry = energyValueRegistry.toJson();
+        return createChunks(DELTA, baseHash, hash, compressedDelta);
+    }
+
+    private static List<MessageSyncEnergyValues> createChunks(byte payloadType, String baseHash, String hash, byte[] compressedPayload)
+    {
+        int chunkCount = Math.max(1, (compressedPayload.length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        List<MessageSyncEnergyValues> messages = new ArrayList<MessageSyncEnergyValues>(chunkCount);
+
+        for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++)
+        {
+            int offset = chunkIndex * MAX_CHUNK_SIZE;
+            byte[] payloadChunk = Arrays.copyOfRange(compressedPayload, offset, Math.min(compressedPayload.length, offset + MAX_CHUNK_SIZE));
+            messages.add(new MessageSyncEnergyValues(payloadType, baseHash, hash, chunkIndex, chunkCount, payloadChunk));
+        }
+
+        return Collections.unmodifiableList(messages);
     }
 
     /**
@@ -39,18 +81,13 @@ public class MessageSyncEnergyValues implements IMessage, IMessageHandler<Messag
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        byte[] compressedBytes = null;
-        int readableBytes = buf.readInt();
-
-        if (readableBytes > 0)
-        {
-            compressedBytes = buf.readBytes(readableBytes).array();
-        }
-
-        if (compressedBytes != null)
-        {
-            this.jsonEnergyValueRegistry = CompressionHelper.decompressStringFromByteArray(compressedBytes);
-        }
+        this.payloadType = buf.readByte();
+        this.baseHash = ByteBufUtils.readUTF8String(buf);
+        this.hash = ByteBufUtils.readUTF8String(buf);
+        this.chunkIndex = buf.readInt();
+        this.chunkCount = buf.readInt();
+        this.payloadChunk = new byte[buf.readInt()];
+        buf.readBytes(this.payloadChunk);
     }
 
     /**
@@ -61,22 +98,13 @@ public class MessageSyncEnergyValues implements IMessage, IMessageHandler<Messag
     @Override
     public void toBytes(ByteBuf buf)
     {
-        byte[] compressedBytes = null;
-
-        if (jsonEnergyValueRegistry != null)
-        {
-            compressedBytes = CompressionHelper.compressStringToByteArray(jsonEnergyValueRegistry);
-        }
-
-        if (compressedBytes != null)
-        {
-            buf.writeInt(compressedBytes.length);
-            buf.writeBytes(compressedBytes);
-        }
-        else
-        {
-            buf.writeInt(0);
-        }
+        buf.writeByte(payloadType);
+        ByteBufUtils.writeUTF8String(buf, baseHash);
+        ByteBufUtils.writeUTF8String(buf, hash);
+        buf.writeInt(chunkIndex);
+        buf.writeInt(chunkCount);
+        buf.writeInt(payloadChunk.length);
+        buf.writeBytes(payloadChunk);
     }
 
     /**
@@ -90,36 +118,10 @@ public class MessageSyncEnergyValues implements IMessage, IMessageHandler<Messag
     @Override
     public IMessage onMessage(MessageSyncEnergyValues message, MessageContext ctx)
     {
-        if (message.jsonEnergyValueRegistry != null)
-        {
-            Map<WrappedStack, EnergyValue> energyValueStackMap = new TreeMap<WrappedStack, EnergyValue>();
-
-            try
-            {
-                JsonReader jsonReader = new JsonReader(new StringReader(message.jsonEnergyValueRegistry));
-                jsonReader.beginArray();
-                while (jsonReader.hasNext())
-                {
-                    EnergyValueStackMapping energyValueStackMapping = JsonSerialization.jsonSerializer.fromJson(jsonReader, EnergyValueStackMapping.class);
-                    if (energyValueStackMapping != null)
-                    {
-                        energyValueStackMap.put(energyValueStackMapping.wrappedStack, energyValueStackMapping.energyValue);
-                    }
-                }
-                jsonReader.endArray();
-                jsonReader.close();
-            }
-            catch (IOException e)
-            {
-                e.printStackTrace();
-            }
-
-            EnergyValueRegistry.getInstance().loadFromMap(energyValueStackMap);
-            LogHelper.info("Client successfully received EnergyValues from server");
-        }
-        else
+        // The integrated server shares its energy value registry with the client
+        if (!FMLClientHandler.instance().getClient().isIntegratedServerRunning())
         {
-            LogHelper.info("Client failed to receive EnergyValues from server - falling back to local EnergyValues");
+            EnergyValueSyncReceiver.receiveChunk(message);
         }
 
         return null;
@@ -32,10 +32,10 @@ public class MessageTileCalcinator implements IMessage, IMessageHandler<MessageT
         this.state = (byte) tileEntityCalcinator.getState();
         this.customName = tileEntityCalcinator.getCustomName();
         this.ownerUUID = tileEntityCalcinator.getOwnerUUID();
-        this.leftStackSize = tileEntityCalcinator.leftStackSize;
-        this.leftStackMeta = tileEntityCalcinator.leftStackMeta;
-        this.rightStackSize = tileEntityCalcinator.rightStackSize;
-        this.rightStackMeta = tileEntityCalcinator.rightStackMeta;
+        this.leftStackSize = (byte) tileEntityCalcinator.getLeftStackSize();
+        this.leftStackMeta = (byte) tileEntityCalcinator.getLeftStackMeta();
+        this.rightStackSize = (byte) tileEntityCalcinator.getRightStackSize();
+        this.rightStackMeta = (byte) tileEntityCalcinator.getRightStackMeta();
     }
 
     @Override
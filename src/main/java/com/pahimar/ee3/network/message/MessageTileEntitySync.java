@@ -0,0 +1,81 @@
+package com.pahimar.ee3.network.message;
+
+import com.pahimar.ee3.tileentity.TileEntityEE;
+import cpw.mods.fml.client.FMLClientHandler;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.tileentity.TileEntity;
+
+/**
+ * Carries the fields of a tile entity that changed during a server tick. Which fields are present is given by a bit mask,
+ * and the tile entity itself writes and reads them (see {@link TileEntityEE#writeSyncData} and
+ * {@link TileEntityEE#readSyncData}).
+ */
+public class MessageTileEntitySync implements IMessage, IMessageHandler<MessageTileEntitySync, IMessage>
+{
+    public int x, y, z;
+    public int changedFields;
+    public byte[] syncData;
+
+    public MessageTileEntitySync()
+    {
+    }
+
+    public MessageTileEntitySync(TileEntityEE tileEntityEE, int changedFields)
+    {
+        this.x = tileEntityEE.xCoord;
+        this.y = tileEntityEE.yCoord;
+        this.z = tileEntityEE.zCoord;
+        this.changedFields = changedFields;
+
+        // Taken now, as the message may only be encoded once the tile entity has changed again
+        ByteBuf syncDataBuf = Unpooled.buffer();
+        tileEntityEE.writeSyncData(syncDataBuf, changedFields);
+        this.syncData = new byte[syncDataBuf.readableBytes()];
+        syncDataBuf.readBytes(this.syncData);
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.x = buf.readInt();
+        this.y = buf.readInt();
+        this.z = buf.readInt();
+        this.changedFields = buf.readInt();
+        this.syncData = new byte[buf.readInt()];
+        buf.readBytes(this.syncData);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(x);
+        buf.writeInt(y);
+        buf.writeInt(z);
+        buf.writeInt(changedFields);
+        buf.writeInt(syncData.length);
+        buf.writeBytes(syncData);
+    }
+
+    @Override
+    public IMessage onMessage(MessageTileEntitySync message, MessageContext ctx)
+    {
+        TileEntity tileEntity = FMLClientHandler.instance().getClient().theWorld.getTileEntity(message.x, message.y, message.z);
+
+        if (tileEntity instanceof TileEntityEE)
+        {
+            ((TileEntityEE) tileEntity).readSyncData(Unpooled.wrappedBuffer(message.syncData), message.changedFields);
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("MessageTileEntitySync - x:%s, y:%s, z:%s, changedFields:%s, syncData: %s bytes", x, y, z, Integer.toBinaryString(changedFields), syncData.length);
+    }
+}
@@ -0,0 +1,70 @@
+package com.pahimar.ee3.network.message;
+
+import com.pahimar.ee3.client.util.TransmutationKnowledgeSyncReceiver;
+import com.pahimar.ee3.tileentity.TileEntityTransmutationTablet;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Carries a single transmutation learned or forgotten by the owner of the tome in an open Transmutation Tablet, which the
+ * client applies in place (on the client thread) if it is at the version the change was made against. Otherwise it asks
+ * the server for the whole of the knowledge again.
+ */
+public class MessageTransmutationKnowledgeChange implements IMessage, IMessageHandler<MessageTransmutationKnowledgeChange, IMessage>
+{
+    public int xCoord, yCoord, zCoord;
+    public int baseKnowledgeVersion;
+    public int knowledgeVersion;
+    public boolean learned;
+    public ItemStack itemStack;
+
+    public MessageTransmutationKnowledgeChange()
+    {
+    }
+
+    public MessageTransmutationKnowledgeChange(TileEntityTransmutationTablet tileEntityTransmutationTablet, ItemStack itemStack, boolean learned, int baseKnowledgeVersion, int knowledgeVersion)
+    {
+        this.xCoord = tileEntityTransmutationTablet.xCoord;
+        this.yCoord = tileEntityTransmutationTablet.yCoord;
+        this.zCoord = tileEntityTransmutationTablet.zCoord;
+        this.baseKnowledgeVersion = baseKnowledgeVersion;
+        this.knowledgeVersion = knowledgeVersion;
+        this.learned = learned;
+        this.itemStack = itemStack;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.xCoord = buf.readInt();
+        this.yCoord = buf.readInt();
+        this.zCoord = buf.readInt();
+        this.baseKnowledgeVersion = buf.readInt();
+        this.knowledgeVersion = buf.readInt();
+        this.learned = buf.readBoolean();
+        this.itemStack = ByteBufUtils.readItemStack(buf);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(xCoord);
+        buf.writeInt(yCoord);
+        buf.writeInt(zCoord);
+        buf.writeInt(baseKnowledgeVersion);
+        buf.writeInt(knowledgeVersion);
+        buf.writeBoolean(learned);
+        ByteBufUtils.writeItemStack(buf, itemStack);
+    }
+
+    @Override
+    public IMessage onMessage(MessageTransmutationKnowledgeChange message, MessageContext ctx)
+    {
+        TransmutationKnowledgeSyncReceiver.receiveChange(message);
+        return null;
+    }
+}
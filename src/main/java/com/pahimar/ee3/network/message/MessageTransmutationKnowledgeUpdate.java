@@ -1,22 +1,32 @@
 package com.pahimar.ee3.network.message;
 
-import com.pahimar.ee3.inventory.ContainerTransmutationTablet;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.pahimar.ee3.client.util.TransmutationKnowledgeSyncReceiver;
 import com.pahimar.ee3.knowledge.TransmutationKnowledge;
+import com.pahimar.ee3.serialization.TransmutationKnowledgeSerializer;
 import com.pahimar.ee3.tileentity.TileEntityTransmutationTablet;
 import com.pahimar.ee3.util.CompressionHelper;
-import cpw.mods.fml.client.FMLClientHandler;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import io.netty.buffer.ByteBuf;
-import net.minecraft.client.gui.inventory.GuiContainer;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import net.minecraft.item.ItemStack;
 
+import java.io.IOException;
 import java.util.Collection;
 
+/**
+ * Carries the whole of the knowledge shown by a Transmutation Tablet, and the version of it. Sent when a tome is put in or
+ * taken out of the tablet, and when the client has missed a {@link MessageTransmutationKnowledgeChange}.
+ */
 public class MessageTransmutationKnowledgeUpdate implements IMessage, IMessageHandler<MessageTransmutationKnowledgeUpdate, IMessage>
 {
     public int xCoord, yCoord, zCoord;
+    public int knowledgeVersion;
     public TransmutationKnowledge transmutationKnowledge;
 
     public MessageTransmutationKnowledgeUpdate()
@@ -24,8 +34,10 @@ public class MessageTransmutationKnowledgeUpdate implements IMessage, IMessageHa
 
     }
 
-    public MessageTransmutationKnowledgeUpdate(TileEntityTransmutationTablet tileEntityTransmutationTablet, Collection<ItemStack> knownTransmutationsCollection)
+    public MessageTransmutationKnowledgeUpdate(TileEntityTransmutationTablet tileEntityTransmutationTablet, Collection<ItemStack> knownTransmutationsCollection, int knowledgeVersion)
     {
+        this.knowledgeVersion = knowledgeVersion;
+
         if (tileEntityTransmutationTablet != null)
         {
             this.xCoord = tileEntityTransmutationTablet.xCoord;
@@ -49,8 +61,9 @@ public class MessageTransmutationKnowledgeUpdate implements IMessage, IMessageHa
         }
     }
 
-    public MessageTransmutationKnowledgeUpdate(int xCoord, int yCoord, int zCoord, Collection<ItemStack> knownTransmutationsCollection)
+    public MessageTransmutationKnowledgeUpdate(int xCoord, int yCoord, int zCoord, Collection<ItemStack> knownTransmutationsCollection, int knowledgeVersion)
     {
+        this.knowledgeVersion = knowledgeVersion;
         this.xCoord = xCoord;
         this.yCoord = yCoord;
         this.zCoord = zCoord;
@@ -71,19 +84,30 @@ public class MessageTransmutationKnowledgeUpdate implements IMessage, IMessageHa
         this.xCoord = buf.readInt();
         this.yCoord = buf.readInt();
         this.zCoord = buf.readInt();
+        this.knowledgeVersion = buf.readInt();
 
-        byte[] compressedString = null;
         int readableBytes = buf.readInt();
 
         if (readableBytes > 0)
         {
-            compressedString = buf.readBytes(readableBytes).array();
-        }
+            int endIndex = buf.readerIndex() + readableBytes;
 
-        if (compressedString != null)
-        {
-            String uncompressedString = CompressionHelper.decompressStringFromByteArray(compressedString);
-            this.transmutationKnowledge = TransmutationKnowledge.createFromJson(uncompressedString);
+            try
+            {
+                JsonReader jsonReader = CompressionHelper.createCompressedJsonReader(new ByteBufInputStream(buf, readableBytes), readableBytes);
+                this.transmutationKnowledge = TransmutationKnowledgeSerializer.createFromJson(jsonReader);
+                jsonReader.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+            catch (JsonParseException e)
+            {
+                e.printStackTrace();
+            }
+
+            buf.readerIndex(endIndex);
         }
     }
 
@@ -93,22 +117,26 @@ public class MessageTransmutationKnowledgeUpdate implements IMessage, IMessageHa
         buf.writeInt(xCoord);
         buf.writeInt(yCoord);
         buf.writeInt(zCoord);
+        buf.writeInt(knowledgeVersion);
 
-        byte[] compressedString = null;
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(0);
 
         if (transmutationKnowledge != null)
         {
-            compressedString = CompressionHelper.compressStringToByteArray(transmutationKnowledge.toJson());
-        }
+            try
+            {
+                JsonWriter jsonWriter = CompressionHelper.createCompressedPacketJsonWriter(new ByteBufOutputStream(buf));
+                TransmutationKnowledgeSerializer.toJson(transmutationKnowledge, jsonWriter);
+                jsonWriter.close();
 
-        if (compressedString != null)
-        {
-            buf.writeInt(compressedString.length);
-            buf.writeBytes(compressedString);
-        }
-        else
-        {
-            buf.writeInt(0);
+                buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - 4);
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+                buf.writerIndex(lengthIndex + 4);
+            }
         }
     }
 
@@ -117,18 +145,7 @@ public class MessageTransmutationKnowledgeUpdate implements IMessage, IMessageHa
     {
         if (message.yCoord != Integer.MIN_VALUE)
         {
-            if (FMLClientHandler.instance().getClient().currentScreen instanceof GuiContainer)
-            {
-                GuiContainer guiContainer = (GuiContainer) FMLClientHandler.instance().getClient().currentScreen;
-
-                if (guiContainer.inventorySlots instanceof ContainerTransmutationTablet)
-                {
-                    if (FMLClientHandler.instance().getWorldClient().getTileEntity(message.xCoord, message.yCoord, message.zCoord) instanceof TileEntityTransmutationTablet)
-                    {
-                        ((ContainerTransmutationTablet) guiContainer.inventorySlots).handleTransmutationKnowledgeUpdate(message.transmutationKnowledge);
-                    }
-                }
-            }
+            TransmutationKnowledgeSyncReceiver.receiveUpdate(message);
         }
 
         return null;
@@ -1,9 +1,12 @@
 package com.pahimar.ee3.proxy;
 
+import com.pahimar.ee3.client.handler.ClientConnectionEventHandler;
 import com.pahimar.ee3.client.handler.DrawBlockHighlightEventHandler;
+import com.pahimar.ee3.client.handler.EnergyValueSyncTickHandler;
 import com.pahimar.ee3.client.handler.HUDTickHandler;
 import com.pahimar.ee3.client.handler.ItemTooltipEventHandler;
 import com.pahimar.ee3.client.handler.KeyInputEventHandler;
+import com.pahimar.ee3.client.handler.TransmutationKnowledgeSyncTickHandler;
 import com.pahimar.ee3.client.renderer.item.*;
 import com.pahimar.ee3.client.renderer.tileentity.*;
 import com.pahimar.ee3.client.settings.Keybindings;
@@ -30,6 +33,9 @@ public class ClientProxy extends CommonProxy
         super.registerEventHandlers();
         FMLCommonHandler.instance().bus().register(new KeyInputEventHandler());
         FMLCommonHandler.instance().bus().register(new HUDTickHandler());
+        FMLCommonHandler.instance().bus().register(new EnergyValueSyncTickHandler());
+        FMLCommonHandler.instance().bus().register(new TransmutationKnowledgeSyncTickHandler());
+        FMLCommonHandler.instance().bus().register(new ClientConnectionEventHandler());
         MinecraftForge.EVENT_BUS.register(new ItemTooltipEventHandler());
         MinecraftForge.EVENT_BUS.register(new DrawBlockHighlightEventHandler());
     }
@@ -14,6 +14,12 @@ public abstract class CommonProxy implements IProxy
 
         FMLCommonHandler.instance().bus().register(new ConfigurationHandler());
         FMLCommonHandler.instance().bus().register(new AbilityRegistrySerializationHandler());
+        FMLCommonHandler.instance().bus().register(new TransmutationKnowledgeSerializationHandler());
+        FMLCommonHandler.instance().bus().register(new EnergyValueBroadcastHandler());
+        FMLCommonHandler.instance().bus().register(new TileEntitySyncHandler());
+        FMLCommonHandler.instance().bus().register(new TransmutationKnowledgeSyncHandler());
+        FMLCommonHandler.instance().bus().register(new EffectBurstHandler());
+        FMLCommonHandler.instance().bus().register(new NetworkStatisticsLogHandler());
         FMLCommonHandler.instance().bus().register(itemEventHandler);
         MinecraftForge.EVENT_BUS.register(itemEventHandler);
         MinecraftForge.EVENT_BUS.register(new WorldEventHandler());
@@ -89,6 +89,56 @@ public class Comparators
         }
     };
 
+    /**
+     * Orders item stacks like {@link #idComparator}, but treats stacks that only differ in their stack size as equal, so
+     * stacks can be looked up without first copying them to a unit stack
+     */
+    public static Comparator<ItemStack> unitIdComparator = new Comparator<ItemStack>()
+    {
+        public int compare(ItemStack itemStack1, ItemStack itemStack2)
+        {
+            if (itemStack1 != null && itemStack2 != null)
+            {
+                if (Item.getIdFromItem(itemStack1.getItem()) != Item.getIdFromItem(itemStack2.getItem()))
+                {
+                    return Item.getIdFromItem(itemStack1.getItem()) - Item.getIdFromItem(itemStack2.getItem());
+                }
+                else if (itemStack1.getItem() != itemStack2.getItem())
+                {
+                    return itemStack1.getItem().getUnlocalizedName(itemStack1).compareToIgnoreCase(itemStack2.getItem().getUnlocalizedName(itemStack2));
+                }
+                else if (itemStack1.getItemDamage() != itemStack2.getItemDamage() && itemStack1.getItemDamage() != OreDictionary.WILDCARD_VALUE && itemStack2.getItemDamage() != OreDictionary.WILDCARD_VALUE)
+                {
+                    return itemStack1.getItemDamage() - itemStack2.getItemDamage();
+                }
+                else if (itemStack1.hasTagCompound() && itemStack2.hasTagCompound())
+                {
+                    return ItemStack.areItemStackTagsEqual(itemStack1, itemStack2) ? 0 : itemStack1.getTagCompound().hashCode() - itemStack2.getTagCompound().hashCode();
+                }
+                else if (itemStack1.hasTagCompound() != itemStack2.hasTagCompound())
+                {
+                    return itemStack1.hasTagCompound() ? 1 : -1;
+                }
+                else
+                {
+                    return 0;
+                }
+            }
+            else if (itemStack1 != null)
+            {
+                return -1;
+            }
+            else if (itemStack2 != null)
+            {
+                return 1;
+            }
+            else
+            {
+                return 0;
+            }
+        }
+    };
+
     public static Comparator<ItemStack> reverseIdComparator = new Comparator<ItemStack>()
     {
         @Override
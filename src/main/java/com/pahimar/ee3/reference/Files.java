@@ -8,6 +8,8 @@ public class Files
     public static final String KNOWLEDGE_DIRECTORY = "knowledge";
     public static final String ABILITIES_DIRECTORY = "abilities";
     public static final String ENERGY_VALUES_DIRECTORY = "energyvalues";
+    public static final String ENERGY_VALUES_CACHE_DIRECTORY = "cache";
+    public static final String SERVER_ENERGY_VALUES_DIRECTORY = "servers";
 
     public static final String TRANSMUTATION_DIRECTORY = "transmutation";
 
@@ -15,5 +17,8 @@ public class Files
     public static final String POST_CALCULATION_ENERGY_VALUES = "post-calculation-energy-values.json";
     public static final String TEMPLATE_JSON_FILE = "template.json";
     public static final String ABILITIES_JSON_FILE = "abilities.json";
+    public static final String KNOWLEDGE_LOG_FILE = "knowledge.log";
+    public static final String KNOWLEDGE_SEGMENT_FILE = "knowledge.segment";
+    public static final String KNOWLEDGE_INDEX_FILE = "knowledge.index";
     public static final String STATIC_ENERGY_VALUES_JSON = "energy-values.json.gz";
 }
@@ -53,6 +53,16 @@ public final class Messages
         public static final String SYNC_ENERGY_VALUES_SUCCESS = COMMAND_PREFIX + Names.Commands.SYNC_ENERGY_VALUES + ".success";
         public static final String SYNC_ENERGY_VALUES_DENIED = COMMAND_PREFIX + Names.Commands.SYNC_ENERGY_VALUES + ".denied";
 
+        public static final String NETWORK_STATISTICS_USAGE = COMMAND_PREFIX + Names.Commands.NETWORK_STATISTICS + ".usage";
+        public static final String NETWORK_STATISTICS_HEADER = COMMAND_PREFIX + Names.Commands.NETWORK_STATISTICS + ".header";
+        public static final String NETWORK_STATISTICS_ENTRY = COMMAND_PREFIX + Names.Commands.NETWORK_STATISTICS + ".entry";
+        public static final String NETWORK_STATISTICS_EMPTY = COMMAND_PREFIX + Names.Commands.NETWORK_STATISTICS + ".empty";
+        public static final String NETWORK_STATISTICS_RESET = COMMAND_PREFIX + Names.Commands.NETWORK_STATISTICS + ".reset";
+
+        public static final String PERSISTENCE_STATISTICS_USAGE = COMMAND_PREFIX + Names.Commands.PERSISTENCE_STATISTICS + ".usage";
+        public static final String PERSISTENCE_STATISTICS_DIRTY_PLAYERS = COMMAND_PREFIX + Names.Commands.PERSISTENCE_STATISTICS + ".dirty-players";
+        public static final String PERSISTENCE_STATISTICS_ABILITY_SAVE_LATENCY = COMMAND_PREFIX + Names.Commands.PERSISTENCE_STATISTICS + ".ability-save-latency";
+
         public static final String PLAYER_LEARN_EVERYTHING_USAGE = COMMAND_PREFIX + Names.Commands.PLAYER_LEARN_EVERYTHING + ".usage";
         public static final String PLAYER_LEARN_EVERYTHING_SUCCESS = COMMAND_PREFIX + Names.Commands.PLAYER_LEARN_EVERYTHING + ".success";
 
@@ -67,6 +77,7 @@ public final class Messages
 
         public static final String PLAYER_FORGET_ITEM_USAGE = COMMAND_PREFIX + Names.Commands.PLAYER_FORGET_ITEM + ".usage";
         public static final String PLAYER_FORGET_ITEM_SUCCESS = COMMAND_PREFIX + Names.Commands.PLAYER_FORGET_ITEM + ".success";
+        public static final String PLAYER_FORGET_ITEM_EVERYONE_SUCCESS = COMMAND_PREFIX + Names.Commands.PLAYER_FORGET_ITEM + ".everyone.success";
 
         public static final String PLAYER_FORGET_CURRENT_ITEM_USAGE = COMMAND_PREFIX + Names.Commands.PLAYER_FORGET_CURRENT_ITEM + ".usage";
         public static final String PLAYER_FORGET_CURRENT_ITEM_SUCCESS = COMMAND_PREFIX + Names.Commands.PLAYER_FORGET_CURRENT_ITEM + ".success";
@@ -124,6 +135,34 @@ public final class Messages
         public static final String ABILITIES_ONLY_LOAD_FILE_LABEL = "general.abilities.onlyLoadFile.label";
         public static final String ABILITIES_ONLY_LOAD_FILE_COMMENT = "general.abilities.onlyLoadFile.comment";
 
+        public static final String ABILITIES_SAVE_INTERVAL = "abilities.saveInterval";
+        public static final String ABILITIES_SAVE_INTERVAL_LABEL = "general.abilities.saveInterval.label";
+        public static final String ABILITIES_SAVE_INTERVAL_COMMENT = "general.abilities.saveInterval.comment";
+
+        public static final String KNOWLEDGE_STORAGE_BACKEND = "knowledge.storageBackend";
+        public static final String KNOWLEDGE_STORAGE_BACKEND_LABEL = "general.knowledge.storageBackend.label";
+        public static final String KNOWLEDGE_STORAGE_BACKEND_COMMENT = "general.knowledge.storageBackend.comment";
+
+        public static final String KNOWLEDGE_WRITE_BEHIND_INTERVAL = "knowledge.writeBehindInterval";
+        public static final String KNOWLEDGE_WRITE_BEHIND_INTERVAL_LABEL = "general.knowledge.writeBehindInterval.label";
+        public static final String KNOWLEDGE_WRITE_BEHIND_INTERVAL_COMMENT = "general.knowledge.writeBehindInterval.comment";
+
+        public static final String KNOWLEDGE_MAX_DIRTY_PLAYERS = "knowledge.maxDirtyPlayers";
+        public static final String KNOWLEDGE_MAX_DIRTY_PLAYERS_LABEL = "general.knowledge.maxDirtyPlayers.label";
+        public static final String KNOWLEDGE_MAX_DIRTY_PLAYERS_COMMENT = "general.knowledge.maxDirtyPlayers.comment";
+
+        public static final String KNOWLEDGE_MAX_CACHED_PLAYERS = "knowledge.maxCachedPlayers";
+        public static final String KNOWLEDGE_MAX_CACHED_PLAYERS_LABEL = "general.knowledge.maxCachedPlayers.label";
+        public static final String KNOWLEDGE_MAX_CACHED_PLAYERS_COMMENT = "general.knowledge.maxCachedPlayers.comment";
+
+        public static final String KNOWLEDGE_CACHED_PLAYER_EXPIRY = "knowledge.cachedPlayerExpiry";
+        public static final String KNOWLEDGE_CACHED_PLAYER_EXPIRY_LABEL = "general.knowledge.cachedPlayerExpiry.label";
+        public static final String KNOWLEDGE_CACHED_PLAYER_EXPIRY_COMMENT = "general.knowledge.cachedPlayerExpiry.comment";
+
+        public static final String KNOWLEDGE_INHERIT_TEMPLATE = "knowledge.inheritTemplate";
+        public static final String KNOWLEDGE_INHERIT_TEMPLATE_LABEL = "general.knowledge.inheritTemplate.label";
+        public static final String KNOWLEDGE_INHERIT_TEMPLATE_COMMENT = "general.knowledge.inheritTemplate.comment";
+
         public static final String REGENERATE_ENERGYVALUES_WHEN = "energyvalues.regenerateEnergyValuesWhen";
         public static final String REGENERATE_ENERGYVALUES_WHEN_LABEL = "general.energyvalues.regenerateEnergyValuesWhen.label";
         public static final String REGENERATE_ENERGYVALUES_WHEN_COMMENT = "general.energyvalues.regenerateEnergyValuesWhen.comment";
@@ -131,5 +170,9 @@ public final class Messages
         public static final String LOG_TRACE_TO_INFO = "debug.logTraceToInfo";
         public static final String LOG_TRACE_TO_INFO_LABEL = "debug.logTraceToInfo.label";
         public static final String LOG_TRACE_TO_INFO_COMMENT = "debug.logTraceToInfo.comment";
+
+        public static final String NETWORK_STATISTICS_LOG_INTERVAL = "debug.networkStatisticsLogInterval";
+        public static final String NETWORK_STATISTICS_LOG_INTERVAL_LABEL = "debug.networkStatisticsLogInterval.label";
+        public static final String NETWORK_STATISTICS_LOG_INTERVAL_COMMENT = "debug.networkStatisticsLogInterval.comment";
     }
 }
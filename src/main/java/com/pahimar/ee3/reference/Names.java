@@ -138,6 +138,8 @@ public class Names
         public static final String SET_ENERGY_VALUE = "set-energy-value";
         public static final String SET_ENERGY_VALUE_CURRENT_ITEM = "set-energy-value-current-item";
         public static final String SYNC_ENERGY_VALUES = "sync-energy-values";
+        public static final String NETWORK_STATISTICS = "netstats";
+        public static final String PERSISTENCE_STATISTICS = "persistence-stats";
         public static final String PLAYER_LEARN_EVERYTHING = "player-learn-everything";
         public static final String PLAYER_LEARN_ITEM = "player-learn-item";
         public static final String PLAYER_LEARN_CURRENT_ITEM = "player-learn-current-item";
@@ -1,6 +1,7 @@
 package com.pahimar.ee3.reference;
 
 import com.pahimar.ee3.configuration.EnergyRegenOption;
+import com.pahimar.ee3.configuration.KnowledgeStorageOption;
 import com.pahimar.ee3.configuration.SoundModeOption;
 
 public class Settings
@@ -23,6 +24,17 @@ public class Settings
     public static class Abilities
     {
         public static boolean onlyLoadFile;
+        public static int saveInterval;
+    }
+
+    public static class Knowledge
+    {
+        public static KnowledgeStorageOption storageBackend;
+        public static int writeBehindInterval;
+        public static int maxDirtyPlayers;
+        public static int maxCachedPlayers;
+        public static int cachedPlayerExpiry;
+        public static boolean inheritTemplate;
     }
 
     public static class DynamicEnergyValueGeneration
@@ -33,5 +45,6 @@ public class Settings
     public static class Debug
     {
         public static boolean logTraceToInfo;
+        public static int networkStatisticsLogInterval;
     }
 }
@@ -2,10 +2,12 @@ package com.pahimar.ee3.serialization;
 
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import com.pahimar.ee3.exchange.WrappedStack;
 import com.pahimar.ee3.knowledge.AbilityRegistry;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Iterator;
 import java.util.Set;
@@ -21,9 +23,26 @@ public class AbilityRegistrySerializer implements JsonSerializer<AbilityRegistry
         return JsonSerialization.jsonSerializer.toJson(registry);
     }
 
-    public static void toJson(AbilityRegistry registry, JsonWriter writer)
+    /**
+     * Writes the supplied registry one stack at a time, without building the intermediate element tree that
+     * {@link #serialize} creates
+     */
+    public static void toJson(AbilityRegistry registry, JsonWriter writer) throws IOException
     {
-        JsonSerialization.jsonSerializer.toJson(registry, AbilityRegistry.class, writer);
+        writer.beginObject();
+        writer.name(memberNotLearnableKey);
+        writeStacks(registry.getNotLearnableStacks(), writer);
+        writer.name(memberNotRecoverableKey);
+        writeStacks(registry.getNotRecoverableSet(), writer);
+        writer.endObject();
+    }
+
+    private static void writeStacks(Set<WrappedStack> wrappedStacks, JsonWriter writer) throws IOException
+    {
+        writer.beginArray();
+        for (WrappedStack wrappedStack : wrappedStacks)
+            JsonSerialization.jsonSerializer.toJson(wrappedStack, WrappedStack.class, writer);
+        writer.endArray();
     }
 
     public static AbilityRegistry createFromJson(String jsonRegistry)
@@ -32,10 +51,49 @@ public class AbilityRegistrySerializer implements JsonSerializer<AbilityRegistry
         return JsonSerialization.jsonSerializer.fromJson(jsonRegistry, AbilityRegistry.class);
     }
 
+    /**
+     * Reads a registry written by {@link #toJson(AbilityRegistry, JsonWriter)} one stack at a time
+     */
     public static AbilityRegistry createFromJson(JsonReader reader)
-            throws JsonParseException
+            throws IOException, JsonParseException
     {
-        return JsonSerialization.jsonSerializer.fromJson(reader, AbilityRegistry.class);
+        if (reader.peek() != JsonToken.BEGIN_OBJECT)
+        {
+            reader.skipValue();
+            return null;
+        }
+
+        Set<WrappedStack> notLearnableStacks = new TreeSet<WrappedStack>();
+        Set<WrappedStack> notRecoverableStacks = new TreeSet<WrappedStack>();
+
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+
+            if (name.equals(memberNotLearnableKey) && reader.peek() == JsonToken.BEGIN_ARRAY)
+                readStacks(reader, notLearnableStacks);
+            else if (name.equals(memberNotRecoverableKey) && reader.peek() == JsonToken.BEGIN_ARRAY)
+                readStacks(reader, notRecoverableStacks);
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+
+        return new AbilityRegistry(notLearnableStacks, notRecoverableStacks);
+    }
+
+    private static void readStacks(JsonReader reader, Set<WrappedStack> wrappedStacks) throws IOException
+    {
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            WrappedStack wrappedStack = JsonSerialization.jsonSerializer.fromJson(reader, WrappedStack.class);
+
+            if (wrappedStack != null)
+                wrappedStacks.add(wrappedStack);
+        }
+        reader.endArray();
     }
 
     @Override
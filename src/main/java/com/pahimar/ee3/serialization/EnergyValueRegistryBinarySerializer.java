@@ -0,0 +1,255 @@
+package com.pahimar.ee3.serialization;
+
+import com.pahimar.ee3.api.exchange.EnergyValue;
+import com.pahimar.ee3.exchange.OreStack;
+import com.pahimar.ee3.exchange.WrappedStack;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fluids.FluidStack;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compact binary form of energy value mappings, used to sync them to clients. Snapshots are written in the order of the
+ * supplied (sorted) map, so equal mappings always produce equal bytes and the bytes can be hashed to identify a snapshot.
+ * <p/>
+ * Stacks are written by registry (or ore, or fluid) name rather than by id, as ids differ between server and client.
+ * Stacks the reading side does not know are skipped.
+ */
+public class EnergyValueRegistryBinarySerializer
+{
+    private static final byte ITEM_STACK = 0;
+    private static final byte ORE_STACK = 1;
+    private static final byte FLUID_STACK = 2;
+
+    public static byte[] snapshotToBytes(Map<WrappedStack, EnergyValue> stackValueMap)
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try
+        {
+            DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+            writeSnapshot(stackValueMap, dataOutputStream);
+            dataOutputStream.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static Map<WrappedStack, EnergyValue> snapshotFromBytes(byte[] bytes) throws IOException
+    {
+        return readSnapshot(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * @return the changes that turn the old mappings into the new ones
+     */
+    public static byte[] deltaToBytes(Map<WrappedStack, EnergyValue> oldStackValueMap, Map<WrappedStack, EnergyValue> newStackValueMap)
+    {
+        List<WrappedStack> removedStacks = new ArrayList<WrappedStack>();
+        Map<WrappedStack, EnergyValue> changedStackValueMap = new TreeMap<WrappedStack, EnergyValue>();
+
+        for (WrappedStack wrappedStack : oldStackValueMap.keySet())
+        {
+            if (!newStackValueMap.containsKey(wrappedStack))
+            {
+                removedStacks.add(wrappedStack);
+            }
+        }
+
+        for (Map.Entry<WrappedStack, EnergyValue> entry : newStackValueMap.entrySet())
+        {
+            if (!entry.getValue().equals(oldStackValueMap.get(entry.getKey())))
+            {
+                changedStackValueMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try
+        {
+            DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+
+            dataOutputStream.writeInt(removedStacks.size());
+            for (WrappedStack wrappedStack : removedStacks)
+            {
+                writeWrappedStack(wrappedStack, dataOutputStream);
+            }
+
+            writeSnapshot(changedStackValueMap, dataOutputStream);
+            dataOutputStream.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * @return a new map holding the base mappings with the changes applied
+     */
+    public static Map<WrappedStack, EnergyValue> applyDelta(Map<WrappedStack, EnergyValue> baseStackValueMap, byte[] delta) throws IOException
+    {
+        Map<WrappedStack, EnergyValue> stackValueMap = new TreeMap<WrappedStack, EnergyValue>(baseStackValueMap);
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(delta));
+
+        int removedCount = dataInputStream.readInt();
+        for (int i = 0; i < removedCount; i++)
+        {
+            WrappedStack wrappedStack = readWrappedStack(dataInputStream);
+
+            if (wrappedStack != null)
+            {
+                stackValueMap.remove(wrappedStack);
+            }
+        }
+
+        stackValueMap.putAll(readSnapshot(dataInputStream));
+        return stackValueMap;
+    }
+
+    private static void writeSnapshot(Map<WrappedStack, EnergyValue> stackValueMap, DataOutputStream dataOutputStream) throws IOException
+    {
+        int count = 0;
+        for (Map.Entry<WrappedStack, EnergyValue> entry : stackValueMap.entrySet())
+        {
+            if (isWritable(entry.getKey()) && entry.getValue() != null)
+            {
+                count++;
+            }
+        }
+
+        dataOutputStream.writeInt(count);
+        for (Map.Entry<WrappedStack, EnergyValue> entry : stackValueMap.entrySet())
+        {
+            if (isWritable(entry.getKey()) && entry.getValue() != null)
+            {
+                writeWrappedStack(entry.getKey(), dataOutputStream);
+                dataOutputStream.writeFloat(entry.getValue().getValue());
+            }
+        }
+    }
+
+    private static Map<WrappedStack, EnergyValue> readSnapshot(DataInputStream dataInputStream) throws IOException
+    {
+        Map<WrappedStack, EnergyValue> stackValueMap = new TreeMap<WrappedStack, EnergyValue>();
+
+        int count = dataInputStream.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            WrappedStack wrappedStack = readWrappedStack(dataInputStream);
+            EnergyValue energyValue = new EnergyValue(dataInputStream.readFloat());
+
+            if (wrappedStack != null)
+            {
+                stackValueMap.put(wrappedStack, energyValue);
+            }
+        }
+
+        return stackValueMap;
+    }
+
+    private static boolean isWritable(WrappedStack wrappedStack)
+    {
+        return wrappedStack != null && (wrappedStack.getWrappedObject() instanceof ItemStack || wrappedStack.getWrappedObject() instanceof OreStack || wrappedStack.getWrappedObject() instanceof FluidStack);
+    }
+
+    private static void writeWrappedStack(WrappedStack wrappedStack, DataOutputStream dataOutputStream) throws IOException
+    {
+        Object wrappedObject = wrappedStack.getWrappedObject();
+
+        if (wrappedObject instanceof ItemStack)
+        {
+            ItemStack itemStack = (ItemStack) wrappedObject;
+            dataOutputStream.writeByte(ITEM_STACK);
+            dataOutputStream.writeInt(wrappedStack.getStackSize());
+            dataOutputStream.writeUTF(Item.itemRegistry.getNameForObject(itemStack.getItem()));
+            dataOutputStream.writeShort(itemStack.getItemDamage());
+            writeTagCompound(itemStack.stackTagCompound, dataOutputStream);
+        }
+        else if (wrappedObject instanceof OreStack)
+        {
+            dataOutputStream.writeByte(ORE_STACK);
+            dataOutputStream.writeInt(wrappedStack.getStackSize());
+            dataOutputStream.writeUTF(((OreStack) wrappedObject).oreName);
+        }
+        else if (wrappedObject instanceof FluidStack)
+        {
+            FluidStack fluidStack = (FluidStack) wrappedObject;
+            dataOutputStream.writeByte(FLUID_STACK);
+            dataOutputStream.writeInt(wrappedStack.getStackSize());
+            dataOutputStream.writeUTF(fluidStack.getFluid().getName());
+            writeTagCompound(fluidStack.tag, dataOutputStream);
+        }
+    }
+
+    private static WrappedStack readWrappedStack(DataInputStream dataInputStream) throws IOException
+    {
+        byte type = dataInputStream.readByte();
+        int stackSize = dataInputStream.readInt();
+
+        if (type == ITEM_STACK)
+        {
+            Item item = (Item) Item.itemRegistry.getObject(dataInputStream.readUTF());
+            int itemDamage = dataInputStream.readShort();
+            NBTTagCompound tagCompound = readTagCompound(dataInputStream);
+
+            if (item != null)
+            {
+                ItemStack itemStack = new ItemStack(item, stackSize, itemDamage);
+                itemStack.stackTagCompound = tagCompound;
+                return WrappedStack.wrap(itemStack);
+            }
+        }
+        else if (type == ORE_STACK)
+        {
+            return WrappedStack.wrap(new OreStack(dataInputStream.readUTF(), stackSize));
+        }
+        else if (type == FLUID_STACK)
+        {
+            Fluid fluid = FluidRegistry.getFluid(dataInputStream.readUTF());
+            NBTTagCompound tagCompound = readTagCompound(dataInputStream);
+
+            if (fluid != null)
+            {
+                return WrappedStack.wrap(new FluidStack(fluid, stackSize, tagCompound));
+            }
+        }
+        else
+        {
+            throw new IOException("Unknown stack type " + type);
+        }
+
+        return null;
+    }
+
+    private static void writeTagCompound(NBTTagCompound tagCompound, DataOutputStream dataOutputStream) throws IOException
+    {
+        dataOutputStream.writeBoolean(tagCompound != null);
+
+        if (tagCompound != null)
+        {
+            CompressedStreamTools.write(tagCompound, dataOutputStream);
+        }
+    }
+
+    private static NBTTagCompound readTagCompound(DataInputStream dataInputStream) throws IOException
+    {
+        return dataInputStream.readBoolean() ? CompressedStreamTools.read(dataInputStream) : null;
+    }
+}
@@ -1,14 +1,15 @@
 package com.pahimar.ee3.serialization;
 
-import com.google.common.collect.ImmutableSortedMap;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.pahimar.ee3.api.exchange.EnergyValue;
 import com.pahimar.ee3.exchange.EnergyValueRegistry;
 import com.pahimar.ee3.exchange.EnergyValueStackMapping;
 import com.pahimar.ee3.exchange.WrappedStack;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -19,6 +20,44 @@ public class EnergyValueRegistrySerializer implements JsonSerializer<EnergyValue
         return JsonSerialization.jsonSerializer.toJson(registry, EnergyValueRegistry.class);
     }
 
+    /**
+     * Writes the supplied stack mappings as a JSON array, one mapping at a time, without building the intermediate
+     * element tree that {@link #serialize} creates
+     */
+    public static void toJson(Map<WrappedStack, EnergyValue> stackValueMap, JsonWriter writer) throws IOException
+    {
+        writer.beginArray();
+        for (Map.Entry<WrappedStack, EnergyValue> entry : stackValueMap.entrySet())
+        {
+            if (entry.getKey() != null && entry.getKey().getWrappedObject() != null && entry.getValue() != null)
+            {
+                JsonSerialization.jsonSerializer.toJson(new EnergyValueStackMapping(entry.getKey(), entry.getValue()), EnergyValueStackMapping.class, writer);
+            }
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Reads a JSON array of stack mappings, as written by {@link #toJson(Map, JsonWriter)}, one mapping at a time
+     */
+    public static Map<WrappedStack, EnergyValue> createFromJson(JsonReader reader) throws IOException
+    {
+        Map<WrappedStack, EnergyValue> stackValueMap = new TreeMap<WrappedStack, EnergyValue>();
+
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            EnergyValueStackMapping energyValueStackMapping = JsonSerialization.jsonSerializer.fromJson(reader, EnergyValueStackMapping.class);
+            if (energyValueStackMapping != null)
+            {
+                stackValueMap.put(energyValueStackMapping.wrappedStack, energyValueStackMapping.energyValue);
+            }
+        }
+        reader.endArray();
+
+        return stackValueMap;
+    }
+
     @Override
     public JsonElement serialize(EnergyValueRegistry energyValueRegistry, Type typeOfSrc, JsonSerializationContext context)
     {
@@ -34,4 +73,4 @@ public class EnergyValueRegistrySerializer implements JsonSerializer<EnergyValue
 
         return jsonEnergyValueRegistry;
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.pahimar.ee3.serialization;
 
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import com.pahimar.ee3.exchange.JsonItemStack;
 import com.pahimar.ee3.knowledge.TransmutationKnowledge;
@@ -9,6 +10,7 @@ import com.pahimar.ee3.reference.Comparators;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Iterator;
 import java.util.Set;
@@ -17,15 +19,43 @@ import java.util.TreeSet;
 public class TransmutationKnowledgeSerializer implements JsonSerializer<TransmutationKnowledge>, JsonDeserializer<TransmutationKnowledge>
 {
     private static final String memberKnownTransmutationsKey = "knownTransmutations";
+    private static final String memberForgottenTransmutationsKey = "forgottenTransmutations";
+    private static final String memberBasedOnTemplateKey = "basedOnTemplate";
 
     public static String toJson(TransmutationKnowledge ransmutationKnowledge)
     {
         return JsonSerialization.jsonSerializer.toJson(ransmutationKnowledge);
     }
 
-    public static void toJson(TransmutationKnowledge ransmutationKnowledge, JsonWriter writer)
+    /**
+     * Writes the supplied knowledge one known transmutation at a time, without building the intermediate element tree
+     * that {@link #serialize} creates. Knowledge based on the template is written as its differences to the template.
+     */
+    public static void toJson(TransmutationKnowledge transmutationKnowledge, JsonWriter writer) throws IOException
     {
-        JsonSerialization.jsonSerializer.toJson(ransmutationKnowledge, TransmutationKnowledge.class, writer);
+        writer.beginObject();
+        if (transmutationKnowledge.isBasedOnTemplate())
+        {
+            writer.name(memberBasedOnTemplateKey).value(true);
+            writer.name(memberKnownTransmutationsKey);
+            writeItemStacks(transmutationKnowledge.getTransmutationsKnownOnTopOfTemplate(), writer);
+            writer.name(memberForgottenTransmutationsKey);
+            writeItemStacks(transmutationKnowledge.getTransmutationsForgottenFromTemplate(), writer);
+        }
+        else
+        {
+            writer.name(memberKnownTransmutationsKey);
+            writeItemStacks(transmutationKnowledge.getKnownTransmutations(), writer);
+        }
+        writer.endObject();
+    }
+
+    private static void writeItemStacks(Set<ItemStack> itemStacks, JsonWriter writer) throws IOException
+    {
+        writer.beginArray();
+        for (ItemStack itemStack : itemStacks)
+            JsonSerialization.jsonSerializer.toJson(new JsonItemStack(itemStack), JsonItemStack.class, writer);
+        writer.endArray();
     }
 
     public static TransmutationKnowledge createFromJson(String jsonTransmutationKnowledge)
@@ -34,10 +64,100 @@ public class TransmutationKnowledgeSerializer implements JsonSerializer<Transmut
         return JsonSerialization.jsonSerializer.fromJson(jsonTransmutationKnowledge, TransmutationKnowledge.class);
     }
 
+    /**
+     * Reads knowledge written by {@link #toJson(TransmutationKnowledge, JsonWriter)} one known transmutation at a time
+     */
     public static TransmutationKnowledge createFromJson(JsonReader reader)
-            throws JsonParseException
+            throws IOException, JsonParseException
+    {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT)
+        {
+            reader.skipValue();
+            return null;
+        }
+
+        Set<ItemStack> knownItemStacks = new TreeSet<ItemStack>(Comparators.idComparator);
+        Set<ItemStack> forgottenItemStacks = new TreeSet<ItemStack>(Comparators.idComparator);
+        boolean basedOnTemplate = false;
+
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+
+            if (name.equals(memberKnownTransmutationsKey) && reader.peek() == JsonToken.BEGIN_ARRAY)
+            {
+                readItemStacks(reader, knownItemStacks);
+            }
+            else if (name.equals(memberForgottenTransmutationsKey) && reader.peek() == JsonToken.BEGIN_ARRAY)
+            {
+                readItemStacks(reader, forgottenItemStacks);
+            }
+            else if (name.equals(memberBasedOnTemplateKey) && reader.peek() == JsonToken.BOOLEAN)
+            {
+                basedOnTemplate = reader.nextBoolean();
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return createTransmutationKnowledge(knownItemStacks, forgottenItemStacks, basedOnTemplate);
+    }
+
+    private static void readItemStacks(JsonReader reader, Set<ItemStack> itemStacks) throws IOException
+    {
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                try
+                {
+                    ItemStack itemStack = createItemStack(JsonSerialization.jsonSerializer.fromJson(reader, JsonItemStack.class));
+                    if (itemStack != null)
+                        itemStacks.add(itemStack);
+                }
+                catch (JsonParseException ignored)
+                {
+                }
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+    }
+
+    private static TransmutationKnowledge createTransmutationKnowledge(Set<ItemStack> knownItemStacks, Set<ItemStack> forgottenItemStacks, boolean basedOnTemplate)
     {
-        return JsonSerialization.jsonSerializer.fromJson(reader, TransmutationKnowledge.class);
+        if (basedOnTemplate)
+        {
+            return TransmutationKnowledge.createFromTemplateDifferences(knownItemStacks, forgottenItemStacks);
+        }
+
+        return new TransmutationKnowledge(knownItemStacks);
+    }
+
+    private static ItemStack createItemStack(JsonItemStack jsonItemStack)
+    {
+        if (jsonItemStack != null)
+        {
+            Item item = (Item) Item.itemRegistry.getObject(jsonItemStack.itemName);
+            if (item != null)
+            {
+                ItemStack itemStack = new ItemStack(item, 1, jsonItemStack.itemDamage);
+                if (jsonItemStack.itemNBTTagCompound != null)
+                    itemStack.stackTagCompound = jsonItemStack.itemNBTTagCompound;
+
+                return itemStack;
+            }
+        }
+
+        return null;
     }
 
     @Override
@@ -48,11 +168,20 @@ public class TransmutationKnowledgeSerializer implements JsonSerializer<Transmut
 
         JsonObject jsonObject = (JsonObject) json;
 
+        Set<ItemStack> knownItemStacks = readItemStacks(jsonObject, memberKnownTransmutationsKey);
+        Set<ItemStack> forgottenItemStacks = readItemStacks(jsonObject, memberForgottenTransmutationsKey);
+        boolean basedOnTemplate = jsonObject.has(memberBasedOnTemplateKey) && jsonObject.get(memberBasedOnTemplateKey).isJsonPrimitive() && jsonObject.get(memberBasedOnTemplateKey).getAsBoolean();
+
+        return createTransmutationKnowledge(knownItemStacks, forgottenItemStacks, basedOnTemplate);
+    }
+
+    private static Set<ItemStack> readItemStacks(JsonObject jsonObject, String memberName)
+    {
         Set<ItemStack> itemStacks = new TreeSet<ItemStack>(Comparators.idComparator);
 
-        if (jsonObject.has(memberKnownTransmutationsKey) && jsonObject.get(memberKnownTransmutationsKey).isJsonArray())
+        if (jsonObject.has(memberName) && jsonObject.get(memberName).isJsonArray())
         {
-            JsonArray jsonArray = (JsonArray) jsonObject.get(memberKnownTransmutationsKey);
+            JsonArray jsonArray = (JsonArray) jsonObject.get(memberName);
             Iterator<JsonElement> iterator = jsonArray.iterator();
 
             while (iterator.hasNext())
@@ -62,16 +191,7 @@ public class TransmutationKnowledgeSerializer implements JsonSerializer<Transmut
                 {
                     try
                     {
-                        JsonItemStack jsonItemStack = JsonSerialization.jsonSerializer.fromJson(jsonElement, JsonItemStack.class);
-
-                        ItemStack itemStack = null;
-                        Item item = (Item) Item.itemRegistry.getObject(jsonItemStack.itemName);
-                        if (item != null)
-                        {
-                            itemStack = new ItemStack(item, 1, jsonItemStack.itemDamage);
-                            if (jsonItemStack.itemNBTTagCompound != null)
-                                itemStack.stackTagCompound = jsonItemStack.itemNBTTagCompound;
-                        }
+                        ItemStack itemStack = createItemStack(JsonSerialization.jsonSerializer.fromJson(jsonElement, JsonItemStack.class));
 
                         if (itemStack != null)
                             itemStacks.add(itemStack);
@@ -83,7 +203,7 @@ public class TransmutationKnowledgeSerializer implements JsonSerializer<Transmut
             }
         }
 
-        return new TransmutationKnowledge(itemStacks);
+        return itemStacks;
     }
 
     @Override
@@ -91,11 +211,26 @@ public class TransmutationKnowledgeSerializer implements JsonSerializer<Transmut
     {
         JsonObject jsonTransmutationKnowledge = new JsonObject();
 
-        JsonArray knownTransmutations = new JsonArray();
-        for (ItemStack itemStack : transmutationKnowledge.getKnownTransmutations())
-            knownTransmutations.add(JsonSerialization.jsonSerializer.toJsonTree(new JsonItemStack(itemStack)));
+        if (transmutationKnowledge.isBasedOnTemplate())
+        {
+            jsonTransmutationKnowledge.addProperty(memberBasedOnTemplateKey, true);
+            jsonTransmutationKnowledge.add(memberKnownTransmutationsKey, createJsonArray(transmutationKnowledge.getTransmutationsKnownOnTopOfTemplate()));
+            jsonTransmutationKnowledge.add(memberForgottenTransmutationsKey, createJsonArray(transmutationKnowledge.getTransmutationsForgottenFromTemplate()));
+        }
+        else
+        {
+            jsonTransmutationKnowledge.add(memberKnownTransmutationsKey, createJsonArray(transmutationKnowledge.getKnownTransmutations()));
+        }
 
-        jsonTransmutationKnowledge.add(memberKnownTransmutationsKey, knownTransmutations);
         return jsonTransmutationKnowledge;
     }
+
+    private static JsonArray createJsonArray(Set<ItemStack> itemStacks)
+    {
+        JsonArray jsonArray = new JsonArray();
+        for (ItemStack itemStack : itemStacks)
+            jsonArray.add(JsonSerialization.jsonSerializer.toJsonTree(new JsonItemStack(itemStack)));
+
+        return jsonArray;
+    }
 }
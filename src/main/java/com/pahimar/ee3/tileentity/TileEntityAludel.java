@@ -6,9 +6,10 @@ import com.pahimar.ee3.network.PacketHandler;
 import com.pahimar.ee3.network.message.MessageTileEntityAludel;
 import com.pahimar.ee3.recipe.AludelRecipeManager;
 import com.pahimar.ee3.reference.Names;
-import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
+import io.netty.buffer.ByteBuf;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.ISidedInventory;
 import net.minecraft.item.ItemStack;
@@ -26,6 +27,8 @@ public class TileEntityAludel extends TileEntityEE implements ISidedInventory
     public static final int DUST_INVENTORY_INDEX = 2;
     public static final int OUTPUT_INVENTORY_INDEX = 3;
 
+    private static final int SYNC_OUTPUT = 1 << 1;
+
     public int deviceCookTime;              // How much longer the Aludel will cook
     public int fuelBurnTime;                // The fuel value for the currently burning fuel
     public int itemCookTime;                // How long the current item has been "cooking"
@@ -301,8 +304,7 @@ public class TileEntityAludel extends TileEntityEE implements ISidedInventory
         {
             this.markDirty();
             this.state = this.deviceCookTime > 0 ? (byte) 1 : (byte) 0;
-            this.worldObj.addBlockEvent(this.xCoord, this.yCoord, this.zCoord, this.getBlockType(), 1, this.state);
-            PacketHandler.INSTANCE.sendToAllAround(new MessageTileEntityAludel(this, inventory[OUTPUT_INVENTORY_INDEX]), new NetworkRegistry.TargetPoint(this.worldObj.provider.dimensionId, (double) this.xCoord, (double) this.yCoord, (double) this.zCoord, 128d));
+            this.markForSync(SYNC_STATE);
             this.worldObj.notifyBlockChange(this.xCoord, this.yCoord, this.zCoord, this.getBlockType());
         }
     }
@@ -310,7 +312,7 @@ public class TileEntityAludel extends TileEntityEE implements ISidedInventory
     @Override
     public void markDirty()
     {
-        PacketHandler.INSTANCE.sendToAllAround(new MessageTileEntityAludel(this, inventory[OUTPUT_INVENTORY_INDEX]), new NetworkRegistry.TargetPoint(this.worldObj.provider.dimensionId, (double) this.xCoord, (double) this.yCoord, (double) this.zCoord, 128d));
+        markForSync(SYNC_OUTPUT);
 
         worldObj.func_147451_t(xCoord, yCoord, zCoord);
 
@@ -320,6 +322,28 @@ public class TileEntityAludel extends TileEntityEE implements ISidedInventory
         }
     }
 
+    @Override
+    public void writeSyncData(ByteBuf buf, int changedFields)
+    {
+        super.writeSyncData(buf, changedFields);
+
+        if ((changedFields & SYNC_OUTPUT) != 0)
+        {
+            ByteBufUtils.writeItemStack(buf, inventory[OUTPUT_INVENTORY_INDEX]);
+        }
+    }
+
+    @Override
+    public void readSyncData(ByteBuf buf, int changedFields)
+    {
+        super.readSyncData(buf, changedFields);
+
+        if ((changedFields & SYNC_OUTPUT) != 0)
+        {
+            this.outputItemStack = ByteBufUtils.readItemStack(buf);
+        }
+    }
+
     private boolean canInfuse()
     {
         if (!hasGlassBell || inventory[INPUT_INVENTORY_INDEX] == null || inventory[DUST_INVENTORY_INDEX] == null)
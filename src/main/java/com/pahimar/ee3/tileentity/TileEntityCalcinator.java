@@ -6,6 +6,7 @@ import com.pahimar.ee3.reference.Names;
 import com.pahimar.ee3.util.CalcinationHelper;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
+import io.netty.buffer.ByteBuf;
 import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.ISidedInventory;
@@ -25,6 +26,7 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
     public static final int OUTPUT_LEFT_INVENTORY_INDEX = 2;
     public static final int OUTPUT_RIGHT_INVENTORY_INDEX = 3;
     private static final int DEFAULT_ITEM_SUCK_COOL_DOWN = 20;
+    private static final int SYNC_DUST_PILES = 1 << 1;
     public int deviceCookTime;              // How much longer the Calcinator will cook
     public int fuelBurnTime;                // The fuel value for the currently burning fuel
     public int itemCookTime;                // How long the current item has been "cooking"
@@ -100,7 +102,6 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
     @Override
     public ItemStack getStackInSlot(int slotIndex)
     {
-        sendDustPileData();
         return inventory[slotIndex];
     }
 
@@ -190,18 +191,33 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
         return false;
     }
 
-    private void sendDustPileData()
+    @Override
+    public void markDirty()
+    {
+        super.markDirty();
+
+        if (this.worldObj != null && !this.worldObj.isRemote)
+        {
+            updateDustPiles();
+        }
+    }
+
+    /**
+     * Syncs the dust piles shown on top of the Calcinator, if the output has changed since they were last synced
+     */
+    private void updateDustPiles()
     {
-        if (this.getBlockType() != null)
+        if (leftStackSize != (byte) getLeftStackSize() || leftStackMeta != (byte) getLeftStackMeta() || rightStackSize != (byte) getRightStackSize() || rightStackMeta != (byte) getRightStackMeta())
         {
-            this.worldObj.addBlockEvent(this.xCoord, this.yCoord, this.zCoord, this.getBlockType(), 2, getLeftStackSize());
-            this.worldObj.addBlockEvent(this.xCoord, this.yCoord, this.zCoord, this.getBlockType(), 3, getLeftStackMeta());
-            this.worldObj.addBlockEvent(this.xCoord, this.yCoord, this.zCoord, this.getBlockType(), 4, getRightStackSize());
-            this.worldObj.addBlockEvent(this.xCoord, this.yCoord, this.zCoord, this.getBlockType(), 5, getRightStackMeta());
+            leftStackSize = (byte) getLeftStackSize();
+            leftStackMeta = (byte) getLeftStackMeta();
+            rightStackSize = (byte) getRightStackSize();
+            rightStackMeta = (byte) getRightStackMeta();
+            markForSync(SYNC_DUST_PILES);
         }
     }
 
-    private int getLeftStackSize()
+    public int getLeftStackSize()
     {
         if (this.inventory[OUTPUT_LEFT_INVENTORY_INDEX] != null)
         {
@@ -211,7 +227,7 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
         return 0;
     }
 
-    private int getLeftStackMeta()
+    public int getLeftStackMeta()
     {
         if (this.inventory[OUTPUT_LEFT_INVENTORY_INDEX] != null)
         {
@@ -221,7 +237,7 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
         return 0;
     }
 
-    private int getRightStackSize()
+    public int getRightStackSize()
     {
         if (this.inventory[OUTPUT_RIGHT_INVENTORY_INDEX] != null)
         {
@@ -231,7 +247,7 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
         return 0;
     }
 
-    private int getRightStackMeta()
+    public int getRightStackMeta()
     {
         if (this.inventory[OUTPUT_RIGHT_INVENTORY_INDEX] != null)
         {
@@ -268,7 +284,6 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
     @Override
     public Packet getDescriptionPacket()
     {
-        sendDustPileData();
         return PacketHandler.INSTANCE.getPacketFrom(new MessageTileCalcinator(this));
     }
 
@@ -366,45 +381,36 @@ public class TileEntityCalcinator extends TileEntityEE implements ISidedInventor
         {
             this.markDirty();
             this.state = this.deviceCookTime > 0 ? (byte) 1 : (byte) 0;
-            this.worldObj.addBlockEvent(this.xCoord, this.yCoord, this.zCoord, this.getBlockType(), 1, this.state);
-            sendDustPileData();
+            this.markForSync(SYNC_STATE);
             this.worldObj.notifyBlockChange(this.xCoord, this.yCoord, this.zCoord, this.getBlockType());
         }
     }
 
     @Override
-    public boolean receiveClientEvent(int eventId, int eventData)
+    public void writeSyncData(ByteBuf buf, int changedFields)
     {
-        if (eventId == 1)
-        {
-            this.state = (byte) eventData;
-            // NAME UPDATE - this.worldObj.updateAllLightTypes(this.xCoord, this.yCoord, this.zCoord);
-            this.worldObj.func_147451_t(this.xCoord, this.yCoord, this.zCoord);
-            return true;
-        }
-        else if (eventId == 2)
-        {
-            this.leftStackSize = (byte) eventData;
-            return true;
-        }
-        else if (eventId == 3)
-        {
-            this.leftStackMeta = (byte) eventData;
-            return true;
-        }
-        else if (eventId == 4)
-        {
-            this.rightStackSize = (byte) eventData;
-            return true;
-        }
-        else if (eventId == 5)
+        super.writeSyncData(buf, changedFields);
+
+        if ((changedFields & SYNC_DUST_PILES) != 0)
         {
-            this.rightStackMeta = (byte) eventData;
-            return true;
+            buf.writeByte(leftStackSize);
+            buf.writeByte(leftStackMeta);
+            buf.writeByte(rightStackSize);
+            buf.writeByte(rightStackMeta);
         }
-        else
+    }
+
+    @Override
+    public void readSyncData(ByteBuf buf, int changedFields)
+    {
+        super.readSyncData(buf, changedFields);
+
+        if ((changedFields & SYNC_DUST_PILES) != 0)
         {
-            return super.receiveClientEvent(eventId, eventData);
+            this.leftStackSize = buf.readByte();
+            this.leftStackMeta = buf.readByte();
+            this.rightStackSize = buf.readByte();
+            this.rightStackMeta = buf.readByte();
         }
     }
 
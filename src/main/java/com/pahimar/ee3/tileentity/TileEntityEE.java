@@ -1,8 +1,10 @@
 package com.pahimar.ee3.tileentity;
 
 import com.pahimar.ee3.network.PacketHandler;
+import com.pahimar.ee3.network.TileEntitySyncScheduler;
 import com.pahimar.ee3.network.message.MessageTileEntityEE;
 import com.pahimar.ee3.reference.Names;
+import io.netty.buffer.ByteBuf;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.Packet;
@@ -14,10 +16,16 @@ import java.util.UUID;
 
 public class TileEntityEE extends TileEntity
 {
+    /**
+     * Synced field bits; subclasses use the bits above these for their own fields
+     */
+    protected static final int SYNC_STATE = 1;
+
     protected ForgeDirection orientation;
     protected byte state;
     protected String customName;
     protected UUID ownerUUID;
+    private int changedSyncFields;
 
     public TileEntityEE()
     {
@@ -143,6 +151,50 @@ public class TileEntityEE extends TileEntity
         return ownerUUID != null;
     }
 
+    /**
+     * Marks fields as changed, so they are sent to the players tracking this tile entity at the end of the tick. Fields
+     * changed several times in the same tick are only sent once.
+     */
+    protected void markForSync(int changedFields)
+    {
+        if (worldObj != null && !worldObj.isRemote)
+        {
+            if (changedSyncFields == 0)
+            {
+                TileEntitySyncScheduler.schedule(this);
+            }
+
+            changedSyncFields |= changedFields;
+        }
+    }
+
+    /**
+     * @return the fields marked as changed since this was last called
+     */
+    public int takeChangedSyncFields()
+    {
+        int changedFields = changedSyncFields;
+        changedSyncFields = 0;
+        return changedFields;
+    }
+
+    public void writeSyncData(ByteBuf buf, int changedFields)
+    {
+        if ((changedFields & SYNC_STATE) != 0)
+        {
+            buf.writeByte(state);
+        }
+    }
+
+    public void readSyncData(ByteBuf buf, int changedFields)
+    {
+        if ((changedFields & SYNC_STATE) != 0)
+        {
+            this.state = buf.readByte();
+            this.worldObj.func_147451_t(this.xCoord, this.yCoord, this.zCoord);
+        }
+    }
+
     @Override
     public Packet getDescriptionPacket()
     {
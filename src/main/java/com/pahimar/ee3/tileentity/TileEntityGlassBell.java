@@ -3,7 +3,8 @@ package com.pahimar.ee3.tileentity;
 import com.pahimar.ee3.network.PacketHandler;
 import com.pahimar.ee3.network.message.MessageTileEntityGlassBell;
 import com.pahimar.ee3.reference.Names;
-import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
 import net.minecraft.block.Block;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.IInventory;
@@ -16,6 +17,7 @@ public class TileEntityGlassBell extends TileEntityEE implements IInventory
 {
     public static final int INVENTORY_SIZE = 1;
     public static final int DISPLAY_SLOT_INVENTORY_INDEX = 0;
+    private static final int SYNC_DISPLAY = 1 << 1;
     public ItemStack outputItemStack;
 
     /**
@@ -116,7 +118,7 @@ public class TileEntityGlassBell extends TileEntityEE implements IInventory
                 this.state = 0;
             }
 
-            PacketHandler.INSTANCE.sendToAllAround(new MessageTileEntityGlassBell(this, displayStack), new NetworkRegistry.TargetPoint(this.worldObj.provider.dimensionId, this.xCoord, this.yCoord, this.zCoord, 128d));
+            markForSync(SYNC_STATE | SYNC_DISPLAY);
         }
 
         this.markDirty();
@@ -182,6 +184,28 @@ public class TileEntityGlassBell extends TileEntityEE implements IInventory
         nbtTagCompound.setTag(Names.NBT.ITEMS, tagList);
     }
 
+    @Override
+    public void writeSyncData(ByteBuf buf, int changedFields)
+    {
+        super.writeSyncData(buf, changedFields);
+
+        if ((changedFields & SYNC_DISPLAY) != 0)
+        {
+            ByteBufUtils.writeItemStack(buf, inventory[DISPLAY_SLOT_INVENTORY_INDEX]);
+        }
+    }
+
+    @Override
+    public void readSyncData(ByteBuf buf, int changedFields)
+    {
+        super.readSyncData(buf, changedFields);
+
+        if ((changedFields & SYNC_DISPLAY) != 0)
+        {
+            this.outputItemStack = ByteBufUtils.readItemStack(buf);
+        }
+    }
+
     @Override
     public Packet getDescriptionPacket()
     {
@@ -22,6 +22,9 @@ import net.minecraft.network.Packet;
 import net.minecraft.util.AxisAlignedBB;
 import net.minecraftforge.common.util.ForgeDirection;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 public class TileEntityTransmutationTablet extends TileEntityEE implements ISidedInventory
 {
     public static final int INVENTORY_SIZE = 10;
@@ -41,6 +44,14 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
     private ForgeDirection rotation;
     private ItemStack[] inventory;
 
+    /**
+     * The energy value of the stack in each input and stone slot, as of {@link #slotEnergyValuesVersion} of the energy
+     * value registry
+     */
+    private float[] slotEnergyValues;
+    private int slotEnergyValuesVersion;
+    private boolean slotEnergyValuesStale;
+
     public TileEntityTransmutationTablet()
     {
         super();
@@ -48,6 +59,8 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
         availableEnergyValue = new EnergyValue(0);
         storedEnergyValue = new EnergyValue(0);
         inventory = new ItemStack[INVENTORY_SIZE];
+        slotEnergyValues = new float[STONE_INDEX + 1];
+        slotEnergyValuesStale = true;
     }
 
     public EnergyValue getAvailableEnergyValue()
@@ -62,54 +75,192 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
 
     public void consumeInventoryForEnergyValue(ItemStack outputItemStack)
     {
-        EnergyValue outputEnergyValue = EnergyValueRegistryProxy.getEnergyValue(outputItemStack);
+        transmute(outputItemStack, 1);
+    }
+
+    /**
+     * @return how many of the output item stack the stored energy and the input slots can pay for, at most maxCount
+     */
+    public int getTransmutableCount(ItemStack outputItemStack, int maxCount)
+    {
+        if (outputItemStack == null || !EnergyValueRegistryProxy.hasEnergyValue(outputItemStack))
+        {
+            return 0;
+        }
 
-        /**
-         *  Algorithm:
-         *
-         *  1) Check the Stone slot, and attempt to take EMC out of the stone there (til 0)
-         *  2) Search the inventory for items that will most make up the difference, decrement them and consume their EMC
-         *  3) Repeat 2 until Stored EMC > outputItemStack EMC
-         *  4) Profit
-         */
+        float outputEnergyValue = EnergyValueRegistryProxy.getEnergyValue(outputItemStack).getValue();
 
-        if (this.storedEnergyValue.compareTo(outputEnergyValue) >= 0)
+        if (outputEnergyValue <= 0f)
         {
-            this.storedEnergyValue = new EnergyValue(this.storedEnergyValue.getValue() - outputEnergyValue.getValue());
+            return maxCount;
         }
-        else
+
+        double payableEnergyValue = storedEnergyValue.getValue();
+        for (int i = 0; i < STONE_INDEX; i++)
         {
-            while (this.storedEnergyValue.compareTo(outputEnergyValue) < 0 && this.availableEnergyValue.compareTo(outputEnergyValue) >= 0)
+            payableEnergyValue += slotEnergyValues[i];
+        }
+
+        return (int) Math.min(maxCount, Math.floor(payableEnergyValue / outputEnergyValue));
+    }
+
+    /**
+     * Pays for count of the output item stack in one go: the stored energy is used first, and whatever it falls short by
+     * is made up from the input slots (see {@link #planInputConsumption}). The inputs are all taken out, and the stored
+     * energy is updated, at once.
+     *
+     * @return false, without changing anything, if the stored energy and the inputs cannot pay for all of them
+     */
+    public boolean transmute(ItemStack outputItemStack, int count)
+    {
+        if (outputItemStack == null || count <= 0 || !EnergyValueRegistryProxy.hasEnergyValue(outputItemStack))
+        {
+            return false;
+        }
+
+        double requiredEnergyValue = (double) EnergyValueRegistryProxy.getEnergyValue(outputItemStack).getValue() * count;
+        double newStoredEnergyValue = storedEnergyValue.getValue() - requiredEnergyValue;
+
+        if (newStoredEnergyValue < 0)
+        {
+            float[] unitEnergyValues = new float[STONE_INDEX];
+            for (int i = 0; i < STONE_INDEX; i++)
+            {
+                if (inventory[i] != null && EnergyValueRegistryProxy.hasEnergyValue(inventory[i]))
+                {
+                    unitEnergyValues[i] = EnergyValueRegistryProxy.getEnergyValue(inventory[i]).getValue();
+                }
+            }
+
+            int[] consumedCounts = planInputConsumption(unitEnergyValues, -newStoredEnergyValue);
+            if (consumedCounts == null)
+            {
+                return false;
+            }
+
+            for (int i = 0; i < STONE_INDEX; i++)
             {
-                for (int i = 0; i < STONE_INDEX; i++)
+                if (consumedCounts[i] > 0)
                 {
-                    ItemStack stackInSlot = getStackInSlot(i);
-                    if (stackInSlot != null && EnergyValueRegistryProxy.hasEnergyValue(stackInSlot))
+                    newStoredEnergyValue += (double) unitEnergyValues[i] * consumedCounts[i];
+                    inventory[i].stackSize -= consumedCounts[i];
+
+                    if (inventory[i].stackSize <= 0)
                     {
-                        this.storedEnergyValue = new EnergyValue(this.storedEnergyValue.getValue() + EnergyValueRegistryProxy.getEnergyValue(stackInSlot).getValue());
-                        decrStackSize(i, 1);
+                        inventory[i] = null;
                     }
                 }
             }
+        }
 
-            if (this.storedEnergyValue.getValue() >= outputEnergyValue.getValue())
+        this.storedEnergyValue = new EnergyValue((float) Math.max(newStoredEnergyValue, 0));
+        updateEnergyValueFromInventory();
+        super.markDirty();
+        return true;
+    }
+
+    /**
+     * Works out how many items to take from each input slot to make up the given energy value, overshooting it by as
+     * little as it can without trying every combination: going from the most to the least valuable input, as many items
+     * are taken as fit in what is still missing, and if that is not enough, one more item of the least valuable input
+     * left makes up the rest. The overshoot is thereby less than the value of that one item.
+     *
+     * @return the number of items to take from each input slot, or null if all the inputs together are not enough
+     */
+    private int[] planInputConsumption(float[] unitEnergyValues, double requiredEnergyValue)
+    {
+        Integer[] slotsByValue = new Integer[STONE_INDEX];
+        for (int i = 0; i < STONE_INDEX; i++)
+        {
+            slotsByValue[i] = i;
+        }
+
+        final float[] sortValues = unitEnergyValues;
+        Arrays.sort(slotsByValue, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer slotIndex1, Integer slotIndex2)
             {
-                this.storedEnergyValue = new EnergyValue(this.storedEnergyValue.getValue() - outputEnergyValue.getValue());
+                return Float.compare(sortValues[slotIndex2], sortValues[slotIndex1]);
+            }
+        });
+
+        int[] consumedCounts = new int[STONE_INDEX];
+        double missingEnergyValue = requiredEnergyValue;
+
+        for (int slotIndex : slotsByValue)
+        {
+            if (unitEnergyValues[slotIndex] > 0f && missingEnergyValue > 0)
+            {
+                consumedCounts[slotIndex] = (int) Math.min(inventory[slotIndex].stackSize, Math.floor(missingEnergyValue / unitEnergyValues[slotIndex]));
+                missingEnergyValue -= (double) unitEnergyValues[slotIndex] * consumedCounts[slotIndex];
             }
         }
 
-        updateEnergyValueFromInventory();
+        if (missingEnergyValue > 0)
+        {
+            int leastValuableSlotIndex = -1;
+
+            for (int slotIndex : slotsByValue)
+            {
+                if (unitEnergyValues[slotIndex] > 0f && consumedCounts[slotIndex] < inventory[slotIndex].stackSize)
+                {
+                    leastValuableSlotIndex = slotIndex;
+                }
+            }
+
+            if (leastValuableSlotIndex < 0)
+            {
+                return null;
+            }
+
+            // Every slot with items left is worth more than what is still missing, so one item covers it
+            consumedCounts[leastValuableSlotIndex]++;
+        }
+
+        return consumedCounts;
     }
 
+    /**
+     * Looks up the energy value of every input and stone slot again
+     */
     public void updateEnergyValueFromInventory()
+    {
+        for (int i = 0; i <= STONE_INDEX; i++)
+        {
+            slotEnergyValues[i] = lookUpSlotEnergyValue(i);
+        }
+
+        slotEnergyValuesVersion = EnergyValueRegistry.getInstance().getVersion();
+        slotEnergyValuesStale = false;
+        sumAvailableEnergyValue();
+    }
+
+    private void updateSlotEnergyValue(int slotIndex)
+    {
+        if (slotIndex <= STONE_INDEX && !slotEnergyValuesStale)
+        {
+            slotEnergyValues[slotIndex] = lookUpSlotEnergyValue(slotIndex);
+            sumAvailableEnergyValue();
+        }
+    }
+
+    private float lookUpSlotEnergyValue(int slotIndex)
+    {
+        if (inventory[slotIndex] != null && EnergyValueRegistryProxy.hasEnergyValue(inventory[slotIndex]))
+        {
+            return EnergyValueRegistryProxy.getEnergyValueForStack(inventory[slotIndex]).getValue();
+        }
+
+        return 0f;
+    }
+
+    private void sumAvailableEnergyValue()
     {
         float newEnergyValue = storedEnergyValue.getValue();
         for (int i = 0; i <= STONE_INDEX; i++)
         {
-            if (inventory[i] != null && EnergyValueRegistryProxy.hasEnergyValue(inventory[i]))
-            {
-                newEnergyValue += EnergyValueRegistryProxy.getEnergyValueForStack(inventory[i]).getValue();
-            }
+            newEnergyValue += slotEnergyValues[i];
         }
         this.availableEnergyValue = new EnergyValue(newEnergyValue);
     }
@@ -147,7 +298,26 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
     public void updateEntity()
     {
         super.updateEntity();
-        updateEnergyValueFromInventory();
+
+        // The slot values only need looking up again when the energy values change, the slots keep them up to date otherwise
+        if (slotEnergyValuesStale || slotEnergyValuesVersion != EnergyValueRegistry.getInstance().getVersion())
+        {
+            updateEnergyValueFromInventory();
+        }
+    }
+
+    /**
+     * Stack sizes can be changed in place by containers, which then only mark the inventory dirty
+     */
+    @Override
+    public void markDirty()
+    {
+        super.markDirty();
+
+        if (!slotEnergyValuesStale)
+        {
+            updateEnergyValueFromInventory();
+        }
     }
 
     @Override
@@ -174,6 +344,7 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
                 inventory[slotIndex] = ItemStack.loadItemStackFromNBT(tagCompound);
             }
         }
+        slotEnergyValuesStale = true;
 
         NBTTagCompound energyValueTagCompound = nbtTagCompound.getCompoundTag("storedEnergyValue");
         if (!energyValueTagCompound.hasNoTags())
@@ -243,6 +414,10 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
                 {
                     setInventorySlotContents(slotIndex, null);
                 }
+                else
+                {
+                    updateSlotEnergyValue(slotIndex);
+                }
             }
         }
 
@@ -271,7 +446,7 @@ public class TileEntityTransmutationTablet extends TileEntityEE implements ISide
                 itemStack.stackSize = getInventoryStackLimit();
             }
 
-            updateEnergyValueFromInventory();
+            updateSlotEnergyValue(slotIndex);
         }
     }
 
@@ -0,0 +1,119 @@
+package com.pahimar.ee3.util;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs disk I/O for the mod's data stores on a single background thread. Tasks are executed in submission order, so a
+ * later write of the same file can never be overtaken by an earlier one.
+ */
+public class AsyncIOHelper
+{
+    private static ExecutorService executorService;
+    private static final Object executorSyncRoot = new Object();
+
+    private static ExecutorService getExecutorService()
+    {
+        if (executorService == null)
+        {
+            synchronized (executorSyncRoot)
+            {
+                if (executorService == null)
+                {
+                    executorService = Executors.newSingleThreadExecutor(new ThreadFactory()
+                    {
+                        @Override
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new Thread(runnable, "EE3 IO Thread");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+
+        return executorService;
+    }
+
+    public static Future<?> submit(final String taskName, final Runnable task)
+    {
+        return getExecutorService().submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    task.run();
+                }
+                catch (RuntimeException exception)
+                {
+                    LogHelper.error(String.format("Background I/O task '%s' failed", taskName));
+                    exception.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Submits a task that produces a result. Failures are logged, and rethrown from {@link Future#get()} so callers can
+     * tell a failed task from one that produced null.
+     */
+    public static <T> Future<T> submit(final String taskName, final Callable<T> task)
+    {
+        return getExecutorService().submit(new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                try
+                {
+                    return task.call();
+                }
+                catch (Exception exception)
+                {
+                    LogHelper.error(String.format("Background I/O task '%s' failed", taskName));
+                    exception.printStackTrace();
+                    throw exception;
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until the supplied task has completed, logging (rather than propagating) any failure
+     */
+    public static void waitFor(Future<?> future)
+    {
+        if (future != null)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Blocks until every task submitted before this call has completed
+     */
+    public static void waitForPendingTasks()
+    {
+        waitFor(submit("flush", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        }));
+    }
+}
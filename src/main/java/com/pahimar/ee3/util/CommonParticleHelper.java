@@ -1,8 +1,6 @@
 package com.pahimar.ee3.util;
 
-import com.pahimar.ee3.network.PacketHandler;
-import com.pahimar.ee3.network.message.MessageSingleParticleEvent;
-import cpw.mods.fml.common.network.NetworkRegistry;
+import com.pahimar.ee3.network.EffectBurstBroadcaster;
 
 public class CommonParticleHelper
 {
@@ -11,8 +9,11 @@ public class CommonParticleHelper
         spawnParticleAtLocation(particleName, dimensionId, xCoord, yCoord, zCoord, xVelocity, yVelocity, zVelocity, 64d);
     }
 
+    /**
+     * Queues the particle to be sent at the end of the tick, together with the other particles and sounds spawned near it
+     */
     public static void spawnParticleAtLocation(String particleName, int dimensionId, double xCoord, double yCoord, double zCoord, double xVelocity, double yVelocity, double zVelocity, double range)
     {
-        PacketHandler.INSTANCE.sendToAllAround(new MessageSingleParticleEvent(particleName, xCoord, yCoord, zCoord, xVelocity, yVelocity, zVelocity), new NetworkRegistry.TargetPoint(dimensionId, xCoord, yCoord, zCoord, range));
+        EffectBurstBroadcaster.queueParticle(particleName, dimensionId, xCoord, yCoord, zCoord, xVelocity, yVelocity, zVelocity, range);
     }
 }
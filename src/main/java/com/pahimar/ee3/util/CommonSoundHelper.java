@@ -1,5 +1,6 @@
 package com.pahimar.ee3.util;
 
+import com.pahimar.ee3.network.EffectBurstBroadcaster;
 import com.pahimar.ee3.network.PacketHandler;
 import com.pahimar.ee3.network.message.MessageSoundEvent;
 import cpw.mods.fml.common.network.NetworkRegistry;
@@ -12,9 +13,12 @@ public class CommonSoundHelper
         playSoundAtLocation(dimensionId, xCoord, yCoord, zCoord, soundName, volume, pitch, 32d);
     }
 
+    /**
+     * Queues the sound to be sent at the end of the tick, together with the other particles and sounds spawned near it
+     */
     public static void playSoundAtLocation(int dimensionId, float xCoord, float yCoord, float zCoord, String soundName, float volume, float pitch, double range)
     {
-        PacketHandler.INSTANCE.sendToAllAround(new MessageSoundEvent(soundName, xCoord, yCoord, zCoord, volume, pitch), new NetworkRegistry.TargetPoint(dimensionId, xCoord, yCoord, zCoord, range));
+        EffectBurstBroadcaster.queueSound(soundName, dimensionId, xCoord, yCoord, zCoord, volume, pitch, range);
     }
 
     public static void playSoundAtPlayer(EntityPlayer entityPlayer, String soundName, float volume, float pitch)
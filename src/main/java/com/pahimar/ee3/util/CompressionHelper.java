@@ -1,11 +1,30 @@
 package com.pahimar.ee3.util;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 import java.io.*;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class CompressionHelper
 {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PACKET_BUFFER_SIZE = 4 * 1024;
+
+    /**
+     * The scratch buffer of every thread decompressing byte arrays (netty threads and the sync worker), reused instead of
+     * being allocated per call
+     */
+    private static final ThreadLocal<byte[]> threadBuffers = new ThreadLocal<byte[]>()
+    {
+        @Override
+        protected byte[] initialValue()
+        {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
     public static byte[] compressStringToByteArray(String uncompressedString)
     {
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
@@ -44,4 +63,106 @@ public class CompressionHelper
         }
         return stringBuilder.toString();
     }
+
+    public static byte[] compressByteArray(byte[] uncompressedBytes)
+    {
+        // Sized for the usual case of compressible input, and grown by the output stream otherwise
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(uncompressedBytes.length / 2 + 32);
+
+        try
+        {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream, Math.max(1, Math.min(uncompressedBytes.length, BUFFER_SIZE)));
+            gzipOutputStream.write(uncompressedBytes);
+            gzipOutputStream.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static byte[] decompressByteArray(byte[] compressedBytes) throws IOException
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(compressedBytes.length * 4);
+        GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes), Math.max(1, Math.min(compressedBytes.length, BUFFER_SIZE)));
+        byte[] buffer = threadBuffers.get();
+
+        try
+        {
+            int bytesRead;
+            while ((bytesRead = gzipInputStream.read(buffer)) != -1)
+            {
+                byteArrayOutputStream.write(buffer, 0, bytesRead);
+            }
+        }
+        finally
+        {
+            gzipInputStream.close();
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Creates a JsonReader that inflates a network payload of the given (compressed) size on the fly, with buffers no
+     * larger than the payload itself
+     */
+    public static JsonReader createCompressedJsonReader(InputStream inputStream, int compressedSize) throws IOException
+    {
+        return new JsonReader(new InputStreamReader(new GZIPInputStream(inputStream, Math.max(1, Math.min(compressedSize, BUFFER_SIZE))), "UTF-8"));
+    }
+
+    /**
+     * Creates a JsonWriter that deflates a network payload directly into the supplied stream, using buffers sized for a
+     * packet rather than for a file
+     */
+    public static JsonWriter createCompressedPacketJsonWriter(OutputStream outputStream) throws IOException
+    {
+        return new JsonWriter(new OutputStreamWriter(new GZIPOutputStream(outputStream, PACKET_BUFFER_SIZE), "UTF-8"));
+    }
+
+    /**
+     * Creates a JsonReader that inflates the supplied stream on the fly, so the uncompressed JSON is never held in memory
+     * as a whole. Closing the returned reader closes the underlying stream.
+     */
+    public static JsonReader createCompressedJsonReader(InputStream inputStream) throws IOException
+    {
+        return new JsonReader(new InputStreamReader(new GZIPInputStream(inputStream, BUFFER_SIZE), "UTF-8"));
+    }
+
+    /**
+     * Creates a JsonWriter that deflates everything written to it directly into the supplied stream. The gzip trailer is
+     * only written once the returned writer has been closed.
+     */
+    public static JsonWriter createCompressedJsonWriter(OutputStream outputStream) throws IOException
+    {
+        return new JsonWriter(new OutputStreamWriter(new GZIPOutputStream(outputStream, BUFFER_SIZE), "UTF-8"));
+    }
+
+    public static JsonReader createCompressedJsonReader(File file) throws IOException
+    {
+        return createCompressedJsonReader(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    }
+
+    public static JsonWriter createCompressedJsonWriter(File file) throws IOException
+    {
+        return createCompressedJsonWriter(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    public static JsonReader createJsonReader(File file) throws IOException
+    {
+        return new JsonReader(new InputStreamReader(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), "UTF-8"));
+    }
+
+    public static JsonWriter createJsonWriter(File file) throws IOException
+    {
+        return createJsonWriter(new FileOutputStream(file));
+    }
+
+    public static JsonWriter createJsonWriter(OutputStream outputStream) throws IOException
+    {
+        return new JsonWriter(new OutputStreamWriter(new BufferedOutputStream(outputStream, BUFFER_SIZE), "UTF-8"));
+    }
 }
@@ -1,16 +1,15 @@
 package com.pahimar.ee3.util;
 
+import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import com.pahimar.ee3.api.exchange.EnergyValue;
-import com.pahimar.ee3.exchange.EnergyValueRegistry;
-import com.pahimar.ee3.exchange.EnergyValueStackMapping;
 import com.pahimar.ee3.exchange.WrappedStack;
 import com.pahimar.ee3.filesystem.*;
 import com.pahimar.ee3.knowledge.TransmutationKnowledge;
 import com.pahimar.ee3.reference.Files;
 import com.pahimar.ee3.reference.Reference;
-import com.pahimar.ee3.serialization.JsonSerialization;
+import com.pahimar.ee3.serialization.EnergyValueRegistrySerializer;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.ModContainer;
@@ -20,6 +19,7 @@ import net.minecraft.world.World;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.io.*;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 public class SerializationHelper
@@ -182,17 +182,8 @@ public class SerializationHelper
 
         try
         {
-            jsonReader = new JsonReader(new FileReader(jsonFile));
-            jsonReader.beginArray();
-            while (jsonReader.hasNext())
-            {
-                EnergyValueStackMapping energyValueStackMapping = JsonSerialization.jsonSerializer.fromJson(jsonReader, EnergyValueStackMapping.class);
-                if (energyValueStackMapping != null)
-                {
-                    energyValueStackMap.put(energyValueStackMapping.wrappedStack, energyValueStackMapping.energyValue);
-                }
-            }
-            jsonReader.endArray();
+            jsonReader = CompressionHelper.createJsonReader(jsonFile);
+            energyValueStackMap = EnergyValueRegistrySerializer.createFromJson(jsonReader);
             jsonReader.close();
         }
         catch (FileNotFoundException ignored)
@@ -202,6 +193,10 @@ public class SerializationHelper
         {
             e.printStackTrace();
         }
+        catch (JsonParseException e)
+        {
+            e.printStackTrace();
+        }
 
         return energyValueStackMap;
     }
@@ -220,18 +215,9 @@ public class SerializationHelper
 
         try
         {
-            jsonWriter = new JsonWriter(new FileWriter(jsonFile));
+            jsonWriter = CompressionHelper.createJsonWriter(jsonFile);
             jsonWriter.setIndent("    ");
-            jsonWriter.beginArray();
-            for (WrappedStack wrappedStack : energyValueMap.keySet())
-            {
-                if (wrappedStack != null && wrappedStack.getWrappedObject() != null)
-                {
-                    JsonSerialization.jsonSerializer.toJson(new EnergyValueStackMapping(wrappedStack, energyValueMap.get(wrappedStack)), EnergyValueStackMapping.class, jsonWriter);
-                }
-            }
-
-            jsonWriter.endArray();
+            EnergyValueRegistrySerializer.toJson(energyValueMap, jsonWriter);
             jsonWriter.close();
         }
         catch (IOException e)
@@ -248,26 +234,71 @@ public class SerializationHelper
         compressEnergyValueStackMapToFile(file, energyValueMap);
     }
 
-    public static void compressEnergyValueStackMapToFile(File file, Map<WrappedStack, EnergyValue> energyValueMap)
+    /**
+     * Serializes the supplied map once into the given file, then copies the result to any additional files. Every file is
+     * first written to a temporary sibling, synced to disk and then renamed over the target, so readers never observe a
+     * partially written file.
+     */
+    public static void compressEnergyValueStackMapToFile(File file, Map<WrappedStack, EnergyValue> energyValueMap, File... copies)
     {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        JsonWriter jsonWriter;
+
         try
         {
-            byte[] energyValueRegistryArray = CompressionHelper.compressStringToByteArray(EnergyValueRegistry.getInstance().toJson());
-            FileOutputStream fos = new FileOutputStream(file);
-            fos.write(energyValueRegistryArray);
-            fos.close();
+            jsonWriter = CompressionHelper.createCompressedJsonWriter(new BufferedOutputStream(new SyncedFileOutputStream(tempFile)));
+            EnergyValueRegistrySerializer.toJson(energyValueMap, jsonWriter);
+            jsonWriter.close();
+            replaceFile(tempFile, file);
+
+            for (File copy : copies)
+            {
+                copyFileAtomically(file, copy);
+            }
         }
-        catch (UnsupportedEncodingException e)
+        catch (IOException e)
         {
+            tempFile.delete();
             e.printStackTrace();
         }
-        catch (FileNotFoundException e)
+    }
+
+    public static void copyFileAtomically(File source, File target) throws IOException
+    {
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+        OutputStream outputStream = new SyncedFileOutputStream(tempFile);
+
+        try
         {
-            e.printStackTrace();
+            com.google.common.io.Files.copy(source, outputStream);
+        }
+        finally
+        {
+            outputStream.close();
+        }
+
+        replaceFile(tempFile, target);
+    }
+
+    /**
+     * Atomically moves the source file over the target file, falling back to deleting the target first and renaming the
+     * source where the file system cannot do that
+     */
+    public static void replaceFile(File source, File target) throws IOException
+    {
+        try
+        {
+            java.nio.file.Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         }
         catch (IOException e)
         {
-            e.printStackTrace();
+            LogHelper.debug(String.format("Unable to atomically move %s to %s (%s), replacing it instead", source.getAbsolutePath(), target.getAbsolutePath(), e.getMessage()));
+            target.delete();
+
+            if (!source.renameTo(target))
+            {
+                throw new IOException(String.format("Unable to move %s to %s", source.getAbsolutePath(), target.getAbsolutePath()));
+            }
         }
     }
 
@@ -282,21 +313,12 @@ public class SerializationHelper
     public static Map<WrappedStack, EnergyValue> decompressEnergyValueStackMapFromFile(File file)
     {
         Map<WrappedStack, EnergyValue> energyValueStackMap = new TreeMap<WrappedStack, EnergyValue>();
+        JsonReader jsonReader;
 
         try
         {
-            String jsonEnergyValueStackMap = CompressionHelper.decompressStringFromByteArray(com.google.common.io.Files.toByteArray(file));
-            JsonReader jsonReader = new JsonReader(new StringReader(jsonEnergyValueStackMap));
-            jsonReader.beginArray();
-            while (jsonReader.hasNext())
-            {
-                EnergyValueStackMapping energyValueStackMapping = JsonSerialization.jsonSerializer.fromJson(jsonReader, EnergyValueStackMapping.class);
-                if (energyValueStackMapping != null)
-                {
-                    energyValueStackMap.put(energyValueStackMapping.wrappedStack, energyValueStackMapping.energyValue);
-                }
-            }
-            jsonReader.endArray();
+            jsonReader = CompressionHelper.createCompressedJsonReader(file);
+            energyValueStackMap = EnergyValueRegistrySerializer.createFromJson(jsonReader);
             jsonReader.close();
         }
         catch (FileNotFoundException e)
@@ -307,7 +329,10 @@ public class SerializationHelper
         {
             e.printStackTrace();
         }
-
+        catch (JsonParseException e)
+        {
+            e.printStackTrace();
+        }
 
         return energyValueStackMap;
     }
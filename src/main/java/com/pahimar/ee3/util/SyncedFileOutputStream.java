@@ -0,0 +1,39 @@
+package com.pahimar.ee3.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A FileOutputStream that forces its contents to the storage device before it is closed
+ */
+public class SyncedFileOutputStream extends FileOutputStream
+{
+    private boolean closed = false;
+
+    public SyncedFileOutputStream(File file) throws FileNotFoundException
+    {
+        super(file);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        closed = true;
+
+        try
+        {
+            getFD().sync();
+        }
+        finally
+        {
+            super.close();
+        }
+    }
+}